@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx;
+
+import com.badlogic.gdx.utils.Disposable;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBufferPool;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBufferRenderer;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBufferResampler;
+import com.crashinvaders.vfx.utils.ScreenQuadMesh;
+
+/**
+ * Holds the resources that don't depend on a particular effect chain
+ * and thus could be shared among multiple {@link VfxManager}s (e.g. a number of {@link com.crashinvaders.vfx.scene2d.VfxWidgetGroup}s):
+ * the full-screen mesh, the copy and resampling programs and the transient buffer pool.
+ * <p>
+ * The effect shader programs are shared through {@link com.crashinvaders.vfx.gl.VfxShaderCache} regardless of the context.
+ * <p>
+ * The managers built against a context don't dispose it, the context should be disposed after all of them.
+ * @see VfxManager#VfxManager(VfxContext, com.badlogic.gdx.graphics.Pixmap.Format, int, int)
+ */
+public class VfxContext implements Disposable {
+
+    private final ScreenQuadMesh screenQuadMesh;
+    private final VfxFrameBufferRenderer bufferRenderer;
+    private final VfxFrameBufferResampler resampler;
+    private final VfxFrameBufferPool bufferPool;
+
+    public VfxContext() {
+        screenQuadMesh = new ScreenQuadMesh();
+        bufferRenderer = new VfxFrameBufferRenderer(screenQuadMesh);
+        resampler = new VfxFrameBufferResampler();
+        bufferPool = new VfxFrameBufferPool();
+    }
+
+    @Override
+    public void dispose() {
+        bufferPool.dispose();
+        bufferRenderer.dispose();
+        resampler.dispose();
+        screenQuadMesh.dispose();
+    }
+
+    /** Restores the programs' state on OpenGL context loss. Every {@link VfxManager#rebind()} call does it as well. */
+    public void rebind() {
+        bufferRenderer.rebind();
+        resampler.rebind();
+    }
+
+    /** @return the mesh that is shared among the filters to draw to full screen. */
+    public ScreenQuadMesh getScreenQuadMesh() {
+        return screenQuadMesh;
+    }
+
+    public VfxFrameBufferRenderer getBufferRenderer() {
+        return bufferRenderer;
+    }
+
+    public VfxFrameBufferResampler getResampler() {
+        return resampler;
+    }
+
+    /**
+     * @return the pool of transient buffers the effects of all the context's managers borrow their intermediate buffers from.
+     * Use {@link VfxFrameBufferPool#setBudget(long)} to limit the amount of the retained idle video memory.
+     */
+    public VfxFrameBufferPool getBufferPool() {
+        return bufferPool;
+    }
+}
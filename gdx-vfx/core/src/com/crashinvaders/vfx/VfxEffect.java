@@ -19,6 +19,8 @@ package com.crashinvaders.vfx;
 import com.badlogic.gdx.utils.Disposable;
 import com.crashinvaders.vfx.utils.ScreenQuadMesh;
 import com.crashinvaders.vfx.framebuffer.VfxFrameBuffer;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBufferPool;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBufferResampler.UpsampleMode;
 
 /**
  * This interface defines the base class for the concrete implementation of post-processor effects.
@@ -31,6 +33,16 @@ public abstract class VfxEffect implements Disposable {
 
     protected boolean disabled = false;
 
+    /** Assigned by {@link VfxManager} when the effect gets added to it. */
+    VfxFrameBufferPool bufferPool = null;
+
+    private float resolutionScale = 1f;
+    private UpsampleMode upsampleMode = UpsampleMode.BILINEAR;
+    /** The size the effect was last resized to by {@link VfxManager}. */
+    int scaledWidth = -1, scaledHeight = -1;
+
+    private int paramsVersion = 0;
+
     /**
      * This method will be called once effect will be added to {@link VfxManager}.
      * Also it will be called on every application resize as usual.
@@ -43,9 +55,95 @@ public abstract class VfxEffect implements Disposable {
      */
     public abstract void rebind();
 
-    /** Concrete objects shall implements its own rendering, given the source and destination buffers. */
+    /**
+     * Concrete objects shall implements its own rendering, given the source and destination buffers.
+     * The destination buffer may be null, which means the effect should render into the currently bound target
+     * (e.g. when the manager renders the last effect straight to the screen).
+     * The filters treat the null output the same way.
+     */
     public abstract void render(ScreenQuadMesh mesh, final VfxFrameBuffer src, final VfxFrameBuffer dst);
 
+    /**
+     * @return the transient buffer pool of the {@link VfxManager} the effect belongs to,
+     * or null if the effect is not added to any manager.
+     */
+    protected VfxFrameBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    public float getResolutionScale() {
+        return resolutionScale;
+    }
+
+    /**
+     * Sets the resolution the effect is processed at, relative to the {@link VfxManager}'s buffers.
+     * For a value less than one the manager downsamples the effect's input, runs the effect on the scaled buffers
+     * and upsamples the result back (see {@link #setUpsampleMode(UpsampleMode)}).
+     * The low frequency effects (e.g. blurs) look almost the same at a half or a quarter of the resolution.
+     * <p>
+     * The effect receives {@link #resize(int, int)} call with the scaled size.
+     */
+    public void setResolutionScale(float resolutionScale) {
+        if (resolutionScale <= 0f || resolutionScale > 1f) {
+            throw new IllegalArgumentException("Resolution scale must be in the (0..1] range: " + resolutionScale);
+        }
+        this.resolutionScale = resolutionScale;
+        markParamsChanged();
+    }
+
+    public UpsampleMode getUpsampleMode() {
+        return upsampleMode;
+    }
+
+    /** Sets the filtering the result is upsampled with, when the effect is processed at a reduced resolution. */
+    public void setUpsampleMode(UpsampleMode upsampleMode) {
+        if (upsampleMode == null) throw new IllegalArgumentException("Upsample mode cannot be null.");
+        this.upsampleMode = upsampleMode;
+        markParamsChanged();
+    }
+
+    /**
+     * @return the version of the effect's parameters.
+     * The value changes every time the effect's output for the same input might change.
+     * @see VfxManager#setMemoizationEnabled(boolean)
+     */
+    public int getParamsVersion() {
+        return paramsVersion;
+    }
+
+    /**
+     * Bumps the parameters version. The effects call it from their setters.
+     * Call it manually if you modify the effect's internals (e.g. its filters) directly.
+     */
+    public void markParamsChanged() {
+        paramsVersion++;
+    }
+
+    /**
+     * @return true if the effect's output changes over time (or depends on the previous frames) even for the same input and parameters.
+     * Such an effect disables the memoization of the whole effect chain.
+     */
+    public boolean isTimeDependent() {
+        return false;
+    }
+
+    /**
+     * @return true if the effect with its current parameters wouldn't change the image (e.g. a zoom of 1).
+     * Such effects are skipped by {@link VfxManager} for the frame, just like the disabled ones.
+     */
+    public boolean isIdentity() {
+        return false;
+    }
+
+    /**
+     * @return false if the effect keeps the size dependent state (e.g. the previous frames) that gets reallocated
+     * or lost on every {@link #resize(int, int)}. Such an effect doesn't follow the render scale of
+     * {@link VfxResolutionGovernor}, it's kept at the full size and the manager resamples the image around it.
+     */
+    public boolean isRenderScaleSupported() {
+        return true;
+    }
+
     /** Whether or not this effect is disabled and shouldn't be processed */
     public boolean isDisabled() {
         return disabled;
@@ -22,8 +22,13 @@ import com.badlogic.gdx.math.Matrix3;
 import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectMap;
 import com.crashinvaders.vfx.framebuffer.VfxFrameBuffer;
+import com.crashinvaders.vfx.gl.VfxGLUtils;
+import com.crashinvaders.vfx.gl.VfxShaderCache;
+import com.crashinvaders.vfx.profiling.VfxRenderCounters;
 import com.crashinvaders.vfx.utils.ScreenQuadMesh;
 
 /**
@@ -47,7 +52,16 @@ public abstract class VfxFilter<T extends VfxFilter> implements Disposable {
     protected Texture inputTexture = null;
     protected VfxFrameBuffer outputBuffer = null;
 
-    private boolean programBegan = false;
+    /** Recorded parameter values. */
+    private final ObjectMap<Parameter, Uniform> uniforms = new ObjectMap<>();
+    private final Array<Uniform> uniformList = new Array<>(false, 16);
+    /** Parameters whose values are yet to be uploaded. */
+    private final Array<Uniform> dirtyUniforms = new Array<>(false, 16);
+
+    /** Gets bumped on every OpenGL context loss, see {@link #invalidateAllUniforms()}. */
+    private static int contextGeneration = 0;
+    /** The {@link #contextGeneration} the uniform locations were resolved for. */
+    private int uniformGeneration = 0;
 
     public VfxFilter(ShaderProgram program) {
         this.program = program;
@@ -69,7 +83,7 @@ public abstract class VfxFilter<T extends VfxFilter> implements Disposable {
 
     @Override
     public void dispose() {
-        program.dispose();
+        VfxGLUtils.releaseShader(program);
     }
 
     /**
@@ -81,13 +95,12 @@ public abstract class VfxFilter<T extends VfxFilter> implements Disposable {
     /**
      * Concrete objects shall be responsible to recreate or rebind its own resources whenever its needed, usually when the OpenGL
      * context is lost. Eg., framebuffer textures should be updated and shader parameters should be reuploaded/rebound.
+     * <p>
+     * The resolved uniform locations and the recorded parameter values are taken care of by the base class,
+     * see {@link #invalidateAllUniforms()}.
      */
     public abstract void rebind();
 
-	/*
-     * Sets the parameter to the specified value for this filter. This is for one-off operations since the shader is being bound
-	 * and unbound once per call: for a batch-ready version of this function see and use setParams instead.
-	 */
     public void render(ScreenQuadMesh mesh) {
         boolean manualBufferBind = outputBuffer != null && !outputBuffer.isDrawing();
         if (manualBufferBind) { outputBuffer.begin(); }
@@ -96,6 +109,18 @@ public abstract class VfxFilter<T extends VfxFilter> implements Disposable {
         onBeforeRender();
 
         program.begin();
+        if (uniformGeneration != contextGeneration) {
+            // The context was lost since the last render, the program might have been recompiled.
+            uniformGeneration = contextGeneration;
+            invalidateUniforms();
+        }
+        // The program might be shared with the other filters, which could have overridden the uniform values.
+        if (VfxShaderCache.claimOwnership(program, this)) {
+            for (int i = 0; i < uniformList.size; i++) {
+                markDirty(uniformList.get(i));
+            }
+        }
+        uploadDirtyParams();
         mesh.render(program);
         program.end();
 
@@ -105,169 +130,246 @@ public abstract class VfxFilter<T extends VfxFilter> implements Disposable {
     /** This method gets called just before rendering. */
     protected abstract void onBeforeRender();
 
+    /**
+     * Makes every filter drop its resolved uniform locations and upload all the recorded parameter values
+     * on its next render. Called by {@link VfxManager#rebind()} on the OpenGL context loss.
+     */
+    static void invalidateAllUniforms() {
+        contextGeneration++;
+    }
+
+    private void invalidateUniforms() {
+        for (int i = 0; i < uniformList.size; i++) {
+            Uniform uniform = uniformList.get(i);
+            uniform.location = Uniform.UNRESOLVED;
+            markDirty(uniform);
+        }
+    }
+
+    //region Parameters
+    // Parameter values are not uploaded right away, but recorded and marked dirty.
+    // All the dirty values are uploaded within a single program binding right before the next render call.
+    // Thus the setters don't touch OpenGL and could be called at any time (e.g. from the non-GL code).
+
     /** int */
     protected void setParam(Parameter param, int value) {
-        program.begin();
-        program.setUniformi(param.mnemonic(), value);
-        program.end();
+        recordParam(param, Uniform.TYPE_INT).intValue = value;
     }
 
     /** float */
     protected void setParam(Parameter param, float value) {
-        program.begin();
-        program.setUniformf(param.mnemonic(), value);
-        program.end();
+        recordParam(param, Uniform.TYPE_FLOAT).set(value);
     }
 
     /** vec2 */
     protected void setParam(Parameter param, Vector2 value) {
-        program.begin();
-        program.setUniformf(param.mnemonic(), value);
-        program.end();
+        recordParam(param, Uniform.TYPE_VEC2).set(value.x, value.y);
     }
 
     /** vec3 */
     protected void setParam(Parameter param, Vector3 value) {
-        program.begin();
-        program.setUniformf(param.mnemonic(), value);
-        program.end();
+        recordParam(param, Uniform.TYPE_VEC3).set(value.x, value.y, value.z);
     }
 
     /** mat3 */
     protected T setParam(Parameter param, Matrix3 value) {
-        program.begin();
-        program.setUniformMatrix(param.mnemonic(), value);
-        program.end();
+        recordParam(param, Uniform.TYPE_MAT3).setMatrix(value);
         return (T) this;
     }
 
     /** mat4 */
     protected T setParam(Parameter param, Matrix4 value) {
-        program.begin();
-        program.setUniformMatrix(param.mnemonic(), value);
-        program.end();
+        recordParam(param, Uniform.TYPE_MAT4).setMatrix(value);
         return (T) this;
     }
 
     /** float[], vec2[], vec3[], vec4[] */
     protected T setParamv(Parameter param, float[] values, int offset, int length) {
-        program.begin();
-
-        switch (param.arrayElementSize()) {
-            case 4:
-                program.setUniform4fv(param.mnemonic(), values, offset, length);
-                break;
-            case 3:
-                program.setUniform3fv(param.mnemonic(), values, offset, length);
-                break;
-            case 2:
-                program.setUniform2fv(param.mnemonic(), values, offset, length);
-                break;
-            default:
-            case 1:
-                program.setUniform1fv(param.mnemonic(), values, offset, length);
-                break;
-        }
-
-        program.end();
+        recordParam(param, Uniform.TYPE_FLOAT_ARRAY).setArray(values, offset, length);
         return (T) this;
     }
 
-    //region
-    // Utility methods to set the parameter to the specified value for the filter.
-    // When you are finished building the batch you shall signal it by invoking endParams().
     //TODO Rename/move the methods under a subclass to avoid naming ambiguity between setParam/setParams.
+    // setParams methods are left for compatibility, since all the parameters are batched now, they are identical to setParam.
 
     /** float */
     protected T setParams(Parameter param, float value) {
-        if (!programBegan) {
-            programBegan = true;
-            program.begin();
-        }
-        program.setUniformf(param.mnemonic(), value);
+        setParam(param, value);
         return (T) this;
     }
 
     /** int */
     protected T setParams(Parameter param, int value) {
-        if (!programBegan) {
-            programBegan = true;
-            program.begin();
-        }
-        program.setUniformi(param.mnemonic(), value);
+        setParam(param, value);
         return (T) this;
     }
 
     /** vec2 */
     protected T setParams(Parameter param, Vector2 value) {
-        if (!programBegan) {
-            programBegan = true;
-            program.begin();
-        }
-        program.setUniformf(param.mnemonic(), value);
+        setParam(param, value);
         return (T) this;
     }
 
     /** vec3 */
     protected T setParams(Parameter param, Vector3 value) {
-        if (!programBegan) {
-            programBegan = true;
-            program.begin();
-        }
-        program.setUniformf(param.mnemonic(), value);
+        setParam(param, value);
         return (T) this;
     }
 
     /** mat3 */
     protected T setParams(Parameter param, Matrix3 value) {
-        if (!programBegan) {
-            programBegan = true;
-            program.begin();
-        }
-        program.setUniformMatrix(param.mnemonic(), value);
-        return (T) this;
+        return setParam(param, value);
     }
 
     /** mat4 */
     protected T setParams(Parameter param, Matrix4 value) {
-        if (!programBegan) {
-            programBegan = true;
-            program.begin();
-        }
-        program.setUniformMatrix(param.mnemonic(), value);
-        return (T) this;
+        return setParam(param, value);
     }
 
     /** float[], vec2[], vec3[], vec4[] */
     protected T setParamsv(Parameter param, float[] values, int offset, int length) {
-        if (!programBegan) {
-            programBegan = true;
-            program.begin();
+        return setParamv(param, values, offset, length);
+    }
+
+    /** Should be called after any one or more setParams method calls. The values will be uploaded on the next render call. */
+    protected void endParams() {
+        // Nothing to do here, the values are uploaded on render.
+    }
+
+    private Uniform recordParam(Parameter param, int type) {
+        Uniform uniform = uniforms.get(param);
+        if (uniform == null) {
+            uniform = new Uniform(param);
+            uniforms.put(param, uniform);
+            uniformList.add(uniform);
         }
+        uniform.type = type;
+        markDirty(uniform);
+        return uniform;
+    }
 
-        switch (param.arrayElementSize()) {
-            case 4:
-                program.setUniform4fv(param.mnemonic(), values, offset, length);
-                break;
-            case 3:
-                program.setUniform3fv(param.mnemonic(), values, offset, length);
-                break;
-            case 2:
-                program.setUniform2fv(param.mnemonic(), values, offset, length);
-                break;
-            default:
-            case 1:
-                program.setUniform1fv(param.mnemonic(), values, offset, length);
-                break;
+    private void markDirty(Uniform uniform) {
+        if (!uniform.dirty) {
+            uniform.dirty = true;
+            dirtyUniforms.add(uniform);
         }
-        return (T) this;
     }
 
-    /** Should be called after any one or more setParams method calls. */
-    protected void endParams() {
-        if (programBegan) {
-            program.end();
-            programBegan = false;
+    /** Uploads all the recorded parameter values. The program must be bound. */
+    private void uploadDirtyParams() {
+        for (int i = 0; i < dirtyUniforms.size; i++) {
+            Uniform uniform = dirtyUniforms.get(i);
+            uniform.upload(program);
+            uniform.dirty = false;
+        }
+        dirtyUniforms.clear();
+    }
+
+    /** A recorded parameter value along with the resolved uniform location. */
+    private static class Uniform {
+        static final int UNRESOLVED = -2;
+
+        static final int TYPE_INT = 0;
+        static final int TYPE_FLOAT = 1;
+        static final int TYPE_VEC2 = 2;
+        static final int TYPE_VEC3 = 3;
+        static final int TYPE_MAT3 = 4;
+        static final int TYPE_MAT4 = 5;
+        static final int TYPE_FLOAT_ARRAY = 6;
+
+        final Parameter param;
+        int type;
+        boolean dirty;
+        int location = UNRESOLVED;
+
+        int intValue;
+        float[] values = new float[3];
+        int length;
+        Matrix3 mat3;
+        Matrix4 mat4;
+
+        Uniform(Parameter param) {
+            this.param = param;
+        }
+
+        void set(float x) {
+            values[0] = x;
+        }
+
+        void set(float x, float y) {
+            values[0] = x;
+            values[1] = y;
+        }
+
+        void set(float x, float y, float z) {
+            values[0] = x;
+            values[1] = y;
+            values[2] = z;
+        }
+
+        void setMatrix(Matrix3 matrix) {
+            if (mat3 == null) mat3 = new Matrix3();
+            mat3.set(matrix);
+        }
+
+        void setMatrix(Matrix4 matrix) {
+            if (mat4 == null) mat4 = new Matrix4();
+            mat4.set(matrix);
+        }
+
+        void setArray(float[] source, int offset, int length) {
+            if (values.length < length) {
+                values = new float[length];
+            }
+            System.arraycopy(source, offset, values, 0, length);
+            this.length = length;
+        }
+
+        void upload(ShaderProgram program) {
+            if (location == UNRESOLVED) {
+                // Resolved once per program (and again after rebind), so there are no string lookups on the hot path.
+                location = program.fetchUniformLocation(param.mnemonic(), ShaderProgram.pedantic);
+            }
+            if (location < 0) return;
+
+            VfxRenderCounters.onUniformUpload();
+            switch (type) {
+                case TYPE_INT:
+                    program.setUniformi(location, intValue);
+                    break;
+                case TYPE_FLOAT:
+                    program.setUniformf(location, values[0]);
+                    break;
+                case TYPE_VEC2:
+                    program.setUniformf(location, values[0], values[1]);
+                    break;
+                case TYPE_VEC3:
+                    program.setUniformf(location, values[0], values[1], values[2]);
+                    break;
+                case TYPE_MAT3:
+                    program.setUniformMatrix(location, mat3);
+                    break;
+                case TYPE_MAT4:
+                    program.setUniformMatrix(location, mat4);
+                    break;
+                case TYPE_FLOAT_ARRAY:
+                    switch (param.arrayElementSize()) {
+                        case 4:
+                            program.setUniform4fv(location, values, 0, length);
+                            break;
+                        case 3:
+                            program.setUniform3fv(location, values, 0, length);
+                            break;
+                        case 2:
+                            program.setUniform2fv(location, values, 0, length);
+                            break;
+                        default:
+                        case 1:
+                            program.setUniform1fv(location, values, 0, length);
+                            break;
+                    }
+                    break;
+            }
         }
     }
     //endregion
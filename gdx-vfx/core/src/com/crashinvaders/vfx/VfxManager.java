@@ -24,7 +24,22 @@ import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.Texture.TextureWrap;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongMap;
+import com.crashinvaders.vfx.fusion.FusableVfxEffect;
+import com.crashinvaders.vfx.fusion.FusedVfxProgram;
+import com.crashinvaders.vfx.gl.VfxGLUtils;
+import com.crashinvaders.vfx.gl.VfxGlViewport;
+import com.crashinvaders.vfx.graph.VfxGraphEffect;
+import com.crashinvaders.vfx.graph.VfxRenderGraph;
+import com.crashinvaders.vfx.profiling.VfxFrameStats;
+import com.crashinvaders.vfx.profiling.VfxGpuProfiler;
+import com.crashinvaders.vfx.profiling.VfxRenderCounters;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBufferPool;
 import com.crashinvaders.vfx.framebuffer.VfxFrameBufferRenderer;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBufferResampler;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBufferResampler.UpsampleMode;
 import com.crashinvaders.vfx.utils.ScreenQuadMesh;
 import com.crashinvaders.vfx.utils.PrioritizedArray;
 import com.crashinvaders.vfx.framebuffer.VfxFrameBuffer;
@@ -45,52 +60,171 @@ public final class VfxManager implements Disposable {
     /** Maintains a per-frame updated list of enabled effects */
     private final Array<VfxEffect> effectsEnabled = new Array<>();
 
+    private final VfxContext context;
+    /** Whether the context was created by the manager (and should be disposed along with it). */
+    private final boolean ownsContext;
     /** A mesh that is shared among basic filters to draw to full screen. */
-    private final ScreenQuadMesh screenQuadMesh = new ScreenQuadMesh();
-    private final com.crashinvaders.vfx.framebuffer.VfxFrameBufferRenderer bufferRenderer = new VfxFrameBufferRenderer();
+    private final ScreenQuadMesh screenQuadMesh;
+    private final VfxFrameBufferRenderer bufferRenderer;
+    /** Scales the buffers for the effects that are processed at a reduced resolution. */
+    private final VfxFrameBufferResampler resampler;
 
     private final Format fboFormat;
     private final PingPongBuffer pingPongBuffer;
+    /** Transient buffers, shared among the effects. */
+    private final VfxFrameBufferPool bufferPool;
+
+    /** Generated programs for the fused effect sequences, mapped by {@link FusedVfxProgram#hash(Array)}. */
+    private final LongMap<FusedVfxProgram> fusedPrograms = new LongMap<>();
+    private final Array<FusableVfxEffect> fusionGroup = new Array<>();
+
+    /** Only exists when the render graph mode is enabled. */
+    private VfxRenderGraph renderGraph = null;
+    /** The effect chain the render graph was built for. */
+    private final Array<VfxEffect> renderGraphChain = new Array<>();
+    private final FloatArray renderGraphScales = new FloatArray();
+    private final Array<UpsampleMode> renderGraphUpsampleModes = new Array<>();
+    /** {@link VfxGraphEffect#getGraphStructureVersion()} of the chain effects, zero for the regular effects. */
+    private final IntArray renderGraphStructureVersions = new IntArray();
+    private VfxRenderGraph.Resource renderGraphInput, renderGraphOutput;
+
+    /** Borrowed pool buffers for the effect chain at the reduced render scale. */
+    private final PingPongBuffer scaledPingPongBuffer;
+    private VfxResolutionGovernor resolutionGovernor = null;
+    private final VfxFrameStats frameStats = new VfxFrameStats();
+    /** Exists when the profiling is enabled or when the resolution governor needs the GPU time measurements. */
+    private VfxGpuProfiler gpuProfiler = null;
+    private VfxResolutionGovernor.GpuTimeSource gpuTimeSource = null;
+    private boolean gpuProfilingEnabled = false;
+    private float renderScale = 1f;
+
+    private boolean memoizationEnabled = false;
+    /** Bumped by {@link #markCaptureDirty()}. */
+    private int captureVersion = 0;
+    /** The effect chain state the current result was produced for. */
+    private final Array<VfxEffect> memoChain = new Array<>();
+    private final IntArray memoParamsVersions = new IntArray();
+    private int memoCaptureVersion;
+    private float memoRenderScale;
+    private boolean memoResultValid = false;
+    /** Whether the latest capture went to the source buffer, to keep the memoized result in the destination one. */
+    private boolean memoResultPreserved = false;
 
     private boolean disabled = false;
+    private boolean passthroughEnabled = false;
     private boolean capturing = false;
     private boolean hasCaptured = false;
     private boolean applyingEffects = false;
 
     private boolean blendingEnabled = false;
+    private boolean effectFusionEnabled = false;
+
+    /** The direct output target of the current {@link #applyEffectsToFbo(VfxFrameBuffer)} call, null means the screen. */
+    private VfxFrameBuffer directOutputBuffer = null;
+    private final VfxGlViewport directOutputViewport = new VfxGlViewport();
 
     private int width, height;
+    /** The effect chain processing size. */
+    private int renderWidth, renderHeight;
 
     public VfxManager(Format fboFormat) {
         this(fboFormat, Gdx.graphics.getBackBufferWidth(), Gdx.graphics.getBackBufferHeight());
     }
 
     public VfxManager(Format fboFormat, int bufferWidth, int bufferHeight) {
+        this(new VfxContext(), true, fboFormat, bufferWidth, bufferHeight);
+    }
+
+    /**
+     * Creates a manager that uses the shared resources of the context.
+     * The context is not disposed along with the manager.
+     */
+    public VfxManager(VfxContext context, Format fboFormat) {
+        this(context, fboFormat, Gdx.graphics.getBackBufferWidth(), Gdx.graphics.getBackBufferHeight());
+    }
+
+    /**
+     * Creates a manager that uses the shared resources of the context.
+     * The context is not disposed along with the manager.
+     */
+    public VfxManager(VfxContext context, Format fboFormat, int bufferWidth, int bufferHeight) {
+        this(context, false, fboFormat, bufferWidth, bufferHeight);
+    }
+
+    private VfxManager(VfxContext context, boolean ownsContext, Format fboFormat, int bufferWidth, int bufferHeight) {
+        if (context == null) throw new IllegalArgumentException("Context cannot be null.");
+        this.context = context;
+        this.ownsContext = ownsContext;
+        this.screenQuadMesh = context.getScreenQuadMesh();
+        this.bufferRenderer = context.getBufferRenderer();
+        this.resampler = context.getResampler();
+        this.bufferPool = context.getBufferPool();
         this.fboFormat = fboFormat;
         this.pingPongBuffer = new PingPongBuffer(fboFormat, bufferWidth, bufferHeight);
         this.width = bufferWidth;
         this.height = bufferHeight;
+        this.renderWidth = bufferWidth;
+        this.renderHeight = bufferHeight;
+        // Placeholders, the actual buffers are borrowed from the pool per frame.
+        this.scaledPingPongBuffer = new PingPongBuffer(new VfxFrameBuffer(fboFormat), new VfxFrameBuffer(fboFormat));
     }
 
     @Override
     public void dispose() {
         pingPongBuffer.dispose();
-        screenQuadMesh.dispose();
+        if (ownsContext) {
+            context.dispose();
+        }
+        clearFusedPrograms();
+        setRenderGraphEnabled(false);
+        gpuProfilingEnabled = false;
+        resolutionGovernor = null;
+        updateGpuProfiler();
     }
 
     public void resize(int width, int height) {
         this.width = width;
         this.height = height;
+        updateRenderSize();
+        invalidateMemoizedResult();
 
         pingPongBuffer.resize(width, height);
+        // Most likely the buffers of the old size won't be requested anymore.
+        // The shared pool is left to its budget, the other managers may still use those sizes.
+        if (ownsContext) {
+            bufferPool.trim();
+        }
+
+        if (renderGraph != null) {
+            renderGraph.resize(width, height);
+        }
 
         for (int i = 0; i < effectsAll.size(); i++) {
-            effectsAll.get(i).resize(width, height);
+            resizeEffect(effectsAll.get(i));
         }
     }
 
     public void rebind() {
-        bufferRenderer.rebind();
+        // OpenGL state is reset on context loss.
+        VfxGLUtils.invalidateGlStateCache();
+        VfxRenderCounters.rebind();
+        VfxFilter.invalidateAllUniforms();
+        // The buffers' content is lost along with the context.
+        invalidateMemoizedResult();
+
+        context.rebind();
+
+        for (FusedVfxProgram program : fusedPrograms.values()) {
+            program.rebind();
+        }
+
+        if (renderGraph != null) {
+            renderGraph.rebind();
+        }
+
+        if (gpuProfiler != null) {
+            gpuProfiler.rebind();
+        }
 
         for (int i = 0; i < effectsAll.size(); i++) {
             effectsAll.get(i).rebind();
@@ -114,6 +248,39 @@ public final class VfxManager implements Disposable {
         this.disabled = disabled;
     }
 
+    public boolean isPassthroughEnabled() {
+        return passthroughEnabled;
+    }
+
+    /**
+     * Enables the passthrough mode. In this mode, when there are no enabled effects,
+     * {@link #beginCapture()} doesn't capture and returns false, so the scene is rendered straight to the current target,
+     * and there is nothing to apply or to render for {@link #applyEffects()} and {@link #renderToScreen()}.
+     * This saves the full-screen copy and the offscreen rendering when the effect chain would do nothing.
+     * <p>
+     * The internal buffers are kept allocated, so enabling an effect later doesn't cause any reallocation.
+     * Disabled by default.
+     * @see #isPassthrough()
+     */
+    public void setPassthroughEnabled(boolean passthroughEnabled) {
+        if (capturing) throw new IllegalStateException("Cannot switch passthrough mode when capturing.");
+        this.passthroughEnabled = passthroughEnabled;
+    }
+
+    /**
+     * @return true if the passthrough mode is enabled and the next {@link #beginCapture()} call will be skipped,
+     * as there are no enabled (and non {@link VfxEffect#isIdentity() identity}) effects.
+     * @see #setPassthroughEnabled(boolean)
+     */
+    public boolean isPassthrough() {
+        if (!passthroughEnabled) return false;
+        for (int i = 0; i < effectsAll.size(); i++) {
+            VfxEffect effect = effectsAll.get(i);
+            if (!effect.isDisabled() && !effect.isIdentity()) return false;
+        }
+        return true;
+    }
+
     public boolean isBlendingEnabled() {
         return blendingEnabled;
     }
@@ -126,6 +293,186 @@ public final class VfxManager implements Disposable {
         this.blendingEnabled = blendingEnabled;
     }
 
+    public boolean isEffectFusionEnabled() {
+        return effectFusionEnabled;
+    }
+
+    /**
+     * Enables merging of adjacent {@link FusableVfxEffect}s into a single generated shader program,
+     * so the whole run of such effects costs one full-screen pass.
+     * The programs are generated on demand and are cached for every distinct effect sequence.
+     * Disabled by default.
+     */
+    public void setEffectFusionEnabled(boolean effectFusionEnabled) {
+        this.effectFusionEnabled = effectFusionEnabled;
+        if (!effectFusionEnabled) {
+            clearFusedPrograms();
+        }
+    }
+
+    public boolean isMemoizationEnabled() {
+        return memoizationEnabled;
+    }
+
+    /**
+     * Enables skipping of the effect chain processing when neither the captured scene nor the effects changed since the last
+     * {@link #applyEffects()} call. The previous result is presented instead.
+     * <p>
+     * The manager cannot tell whether the captured content is different,
+     * so call {@link #markCaptureDirty()} every time the scene is captured with a changed content.
+     * The effect changes are tracked through {@link VfxEffect#getParamsVersion()},
+     * and any enabled {@link VfxEffect#isTimeDependent() time dependent} effect disables the memoization for the frame.
+     * Disabled by default.
+     */
+    public void setMemoizationEnabled(boolean memoizationEnabled) {
+        if (capturing) throw new IllegalStateException("Cannot switch memoization when capturing.");
+        if (applyingEffects) throw new IllegalStateException("Cannot switch memoization when applying effects.");
+
+        this.memoizationEnabled = memoizationEnabled;
+        if (!memoizationEnabled) {
+            invalidateMemoizedResult();
+        }
+    }
+
+    /**
+     * Notifies the manager that the content of the next (or the current) capture differs from the previous one.
+     * Only matters when the memoization is enabled.
+     * @see #setMemoizationEnabled(boolean)
+     */
+    public void markCaptureDirty() {
+        captureVersion++;
+    }
+
+    /** @return the captured content version, bumped with every {@link #markCaptureDirty()} call. */
+    public int getCaptureVersion() {
+        return captureVersion;
+    }
+
+    public VfxResolutionGovernor getResolutionGovernor() {
+        return resolutionGovernor;
+    }
+
+    /**
+     * Installs the governor that dynamically adjusts the effect chain render scale to maintain the frame time.
+     * With the render scale less than one, the captured scene is downsampled once,
+     * the whole effect chain is processed at the reduced size (through the pooled buffers)
+     * and the result is upsampled back.
+     * <p>
+     * The render scale is applied in the regular (non render graph) mode only.
+     * <p>
+     * When the timer queries are supported (see {@link VfxGpuProfiler#isSupported()}),
+     * the manager measures the GPU time of the effect chain and feeds it to the governor
+     * (unless the governor has its own frame time source set).
+     * @param resolutionGovernor the governor or null to disable the dynamic resolution.
+     */
+    public void setResolutionGovernor(VfxResolutionGovernor resolutionGovernor) {
+        if (this.resolutionGovernor != null) {
+            this.resolutionGovernor.setDefaultFrameTimeSource(null);
+        }
+        this.resolutionGovernor = resolutionGovernor;
+        if (resolutionGovernor == null) {
+            setRenderScale(1f);
+        }
+        updateGpuProfiler();
+    }
+
+    /** @return the current scale the effect chain is processed at. */
+    public float getRenderScale() {
+        return renderScale;
+    }
+
+    public boolean isGpuProfilingEnabled() {
+        return gpuProfilingEnabled;
+    }
+
+    /**
+     * Enables the GPU time measurement of every effect (or every render graph pass, when the render graph mode is enabled).
+     * The results are available through {@link #getGpuProfiler()}, a few frames later.
+     * <p>
+     * Requires the timer query support, see {@link VfxGpuProfiler#isSupported()}.
+     * Disabled by default.
+     */
+    public void setGpuProfilingEnabled(boolean gpuProfilingEnabled) {
+        if (this.gpuProfilingEnabled == gpuProfilingEnabled) return;
+
+        if (gpuProfilingEnabled && !VfxGpuProfiler.isSupported()) {
+            throw new IllegalStateException("GPU timer queries are not supported by the current GL context.");
+        }
+        this.gpuProfilingEnabled = gpuProfilingEnabled;
+        updateGpuProfiler();
+    }
+
+    /** Creates or disposes the profiler, depending on whether the profiling or the resolution governor need it. */
+    private void updateGpuProfiler() {
+        boolean required = gpuProfilingEnabled || (resolutionGovernor != null && VfxGpuProfiler.isSupported());
+        if (required && gpuProfiler == null) {
+            gpuProfiler = new VfxGpuProfiler();
+            gpuTimeSource = new VfxResolutionGovernor.GpuTimeSource(gpuProfiler);
+        } else if (!required && gpuProfiler != null) {
+            gpuProfiler.dispose();
+            gpuProfiler = null;
+            gpuTimeSource = null;
+        }
+        if (renderGraph != null) {
+            renderGraph.setGpuProfiler(gpuProfiler);
+        }
+        if (resolutionGovernor != null) {
+            resolutionGovernor.setDefaultFrameTimeSource(gpuTimeSource);
+        }
+    }
+
+    /**
+     * @return the rendering work numbers of the latest {@link #applyEffects()} call, broken down by the effects.
+     * The instance is reused, copy the values if they are needed later.
+     * In the render graph mode only the total numbers are available.
+     */
+    public VfxFrameStats getFrameStats() {
+        return frameStats;
+    }
+
+    /** @return the GPU profiler with the per effect timings, or null if the profiling is not enabled. */
+    public VfxGpuProfiler getGpuProfiler() {
+        return gpuProfilingEnabled ? gpuProfiler : null;
+    }
+
+    public boolean isRenderGraphEnabled() {
+        return renderGraph != null;
+    }
+
+    /**
+     * Switches the effect chain processing to a {@link VfxRenderGraph}.
+     * <p>
+     * In this mode every effect is a node of the graph, and the effects that implement
+     * {@link VfxGraphEffect} declare their internal passes and buffers as graph resources.
+     * The intermediate buffers of all the effects are then shared among the passes with the non-overlapping lifetimes
+     * (including the manager's own ping-pong buffers), which lowers the overall video memory footprint.
+     * The graph is rebuilt only when the set or the order of the enabled effects changes,
+     * or an effect changes its resolution scale or its {@link VfxGraphEffect#getGraphStructureVersion() pass structure}.
+     * <p>
+     * Effect fusion ({@link #setEffectFusionEnabled(boolean)}) is not applied in this mode.
+     * Disabled by default.
+     */
+    public void setRenderGraphEnabled(boolean renderGraphEnabled) {
+        if (isRenderGraphEnabled() == renderGraphEnabled) return;
+        if (applyingEffects) throw new IllegalStateException("Cannot switch render graph mode when applying effects.");
+
+        if (renderGraphEnabled) {
+            renderGraph = new VfxRenderGraph(fboFormat, width, height);
+            renderGraph.setGpuProfiler(gpuProfiler);
+        } else {
+            renderGraph.dispose();
+            renderGraph = null;
+            renderGraphChain.clear();
+            renderGraphInput = null;
+            renderGraphOutput = null;
+        }
+    }
+
+    /** @return the render graph if the mode is enabled, null otherwise. */
+    public VfxRenderGraph getRenderGraph() {
+        return renderGraph;
+    }
+
     /**
      * Returns the internal framebuffer format, computed from the parameters specified during construction. NOTE: the returned
      * Format will be valid after construction and NOT early!
@@ -164,6 +511,33 @@ public final class VfxManager implements Disposable {
         return pingPongBuffer;
     }
 
+    /**
+     * @return the pool of transient buffers the effects borrow their intermediate buffers from.
+     * It belongs to the manager's {@link #getContext() context}.
+     * Use {@link VfxFrameBufferPool#setBudget(long)} to limit the amount of the retained idle video memory.
+     */
+    public VfxFrameBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /** @return the context with the resources the manager shares with the other managers built against it. */
+    public VfxContext getContext() {
+        return context;
+    }
+
+    ScreenQuadMesh getScreenQuadMesh() {
+        return screenQuadMesh;
+    }
+
+    /**
+     * Creates a warm-up task to prepare the effects (compile the shaders and allocate the buffers) ahead of time,
+     * spreading the work over multiple frames.
+     * @see VfxWarmUp
+     */
+    public VfxWarmUp createWarmUp() {
+        return new VfxWarmUp(this);
+    }
+
     /**
      * Adds an effect to the effect chain and transfers ownership to the VfxManager.
      * The order of the inserted effects IS important, since effects will be applied in a FIFO fashion,
@@ -178,7 +552,17 @@ public final class VfxManager implements Disposable {
 
     public void addEffect(VfxEffect effect, int priority) {
         effectsAll.add(effect, priority);
-        effect.resize(width, height);
+        effect.bufferPool = bufferPool;
+        resizeEffect(effect);
+    }
+
+    /**
+     * Adds an effect that will be processed at a reduced resolution.
+     * @see VfxEffect#setResolutionScale(float)
+     */
+    public void addEffect(VfxEffect effect, int priority, float resolutionScale) {
+        effect.setResolutionScale(resolutionScale);
+        addEffect(effect, priority);
     }
 
     /**
@@ -186,13 +570,24 @@ public final class VfxManager implements Disposable {
      */
     public void removeEffect(VfxEffect effect) {
         effectsAll.remove(effect);
+        frameStats.removeSection(effect);
+        effect.bufferPool = null;
+        effect.scaledWidth = -1;
+        effect.scaledHeight = -1;
     }
 
     /**
      * Removes all effects from the effect chain.
      */
     public void removeAllEffects() {
+        for (int i = 0; i < effectsAll.size(); i++) {
+            VfxEffect effect = effectsAll.get(i);
+            effect.bufferPool = null;
+            effect.scaledWidth = -1;
+            effect.scaledHeight = -1;
+        }
         effectsAll.clear();
+        frameStats.clearSections();
     }
 
     /**
@@ -218,13 +613,15 @@ public final class VfxManager implements Disposable {
 
         pingPongBuffer.cleanUpBuffers(color);
         hasCaptured = false;
+        invalidateMemoizedResult();
     }
 
     /**
      * Starts capturing the scene.
      *
      * @return true or false, whether or not capturing has been initiated.
-     * Capturing will fail if the manager is disabled or capturing is already started.
+     * Capturing will fail if the manager is disabled, capturing is already started
+     * or the manager is in {@link #isPassthrough() passthrough} state.
      */
     public boolean beginCapture() {
         if (applyingEffects) {
@@ -234,7 +631,19 @@ public final class VfxManager implements Disposable {
         if (disabled) return false;
         if (capturing) return false;
 
+        if (isPassthrough()) {
+            // There is nothing to process, the scene goes straight to the current target.
+            hasCaptured = false;
+            invalidateMemoizedResult();
+            return false;
+        }
+
         capturing = true;
+        if (memoizationEnabled && memoResultValid && !memoResultPreserved) {
+            // Capture into the source buffer, so the memoized result survives in case it's still relevant.
+            pingPongBuffer.swap();
+            memoResultPreserved = true;
+        }
         pingPongBuffer.begin();
         return true;
     }
@@ -256,6 +665,49 @@ public final class VfxManager implements Disposable {
      * Applies the effect chain, if there is one.
      */
     public void applyEffects() {
+        applyEffects(false);
+    }
+
+    /**
+     * Applies the effect chain and renders the result to the screen at once.
+     * @see #applyEffectsToScreen(int, int, int, int)
+     */
+    public void applyEffectsToScreen() {
+        applyEffectsToScreen(0, 0, Gdx.graphics.getBackBufferWidth(), Gdx.graphics.getBackBufferHeight());
+    }
+
+    /**
+     * Applies the effect chain and renders the result to the screen at once.
+     * Unlike {@link #applyEffects()} followed by {@link #renderToScreen(int, int, int, int)},
+     * the last effect of the chain writes straight to the screen with the given viewport,
+     * which saves one full-screen copy pass.
+     * <p>
+     * The result doesn't end up in the internal buffers, so {@link #hasResult()} is false after the call,
+     * until the next capture.
+     * The render graph mode doesn't support the direct output and falls back to the regular copy.
+     * <p>
+     * <b>NOTE:</b> The effects that use the intermediate buffers restore the viewport the regular {@link VfxFrameBuffer} way,
+     * so if {@link VfxFrameBuffer#setRootState(int, int, int, int, int)} is used, it should match the given viewport.
+     */
+    public void applyEffectsToScreen(int x, int y, int width, int height) {
+        directOutputBuffer = null;
+        directOutputViewport.set(x, y, width, height);
+        applyEffects(true);
+    }
+
+    /**
+     * Applies the effect chain and renders the result into the given buffer at once.
+     * The last effect of the chain writes straight to the buffer, which saves one full-screen copy pass.
+     * @see #applyEffectsToScreen(int, int, int, int)
+     */
+    public void applyEffectsToFbo(VfxFrameBuffer output) {
+        if (output == null) throw new IllegalArgumentException("Output buffer cannot be null.");
+        directOutputBuffer = output;
+        applyEffects(true);
+        directOutputBuffer = null;
+    }
+
+    private void applyEffects(boolean directOutput) {
         if (capturing) {
             throw new IllegalStateException("You should call VfxManager.endCapture() before applying the effects.");
         }
@@ -263,10 +715,40 @@ public final class VfxManager implements Disposable {
         if (disabled) return;
         if (!hasCaptured) return;
 
+        if (gpuProfiler != null) {
+            gpuProfiler.collect();
+        }
+
         Array<VfxEffect> effectChain = updateEnabledEffectList();
+        if (resolutionGovernor != null) {
+            resolutionGovernor.update();
+            setRenderScale(renderGraph != null ? 1f : resolutionGovernor.getScale());
+        }
+        // The resolution scale might have been changed since the last frame.
+        for (int i = 0; i < effectChain.size; i++) {
+            resizeEffect(effectChain.get(i));
+        }
+
+        if (memoizationEnabled && isMemoizedResultUpToDate(effectChain)) {
+            if (memoResultPreserved) {
+                pingPongBuffer.swap(); // Swap buffers to get the memoized result back in dst buffer.
+                memoResultPreserved = false;
+            }
+            frameStats.begin();
+            if (directOutput) {
+                renderDirectOutputCopy();
+            }
+            frameStats.end();
+            return;
+        }
+        memoResultPreserved = false;
 
         applyingEffects = true;
+        frameStats.begin();
         int count = effectChain.size;
+        if (count == 0 && directOutput) {
+            renderDirectOutputCopy();
+        }
         if (count > 0) {
             // Enable blending to preserve buffer's alpha values.
             if (blendingEnabled) {
@@ -276,19 +758,17 @@ public final class VfxManager implements Disposable {
             Gdx.gl.glDisable(GL20.GL_CULL_FACE);
             Gdx.gl.glDisable(GL20.GL_DEPTH_TEST);
 
-            // Render the effect chain.
-            pingPongBuffer.swap(); // Swap buffers to get captured result in src buffer.
-            pingPongBuffer.begin();
-            for (int i = 0; i < count; i++) {
-                VfxEffect effect = effectChain.get(i);
-                effect.render(screenQuadMesh,
-                        pingPongBuffer.getSrcBuffer(),
-                        pingPongBuffer.getDstBuffer());
-                if (i < count - 1) {
-                    pingPongBuffer.swap();
+            if (renderGraph != null) {
+                renderEffectGraph(effectChain);
+                if (directOutput) {
+                    renderDirectOutputCopy();
                 }
+            } else if (renderScale < 1f) {
+                renderScaledEffectChain(effectChain, directOutput);
+            } else {
+                pingPongBuffer.swap(); // Swap buffers to get captured result in src buffer.
+                renderEffectChain(effectChain, pingPongBuffer, directOutput);
             }
-            pingPongBuffer.end();
 
             // Ensure default texture unit #0 is active.
             Gdx.gl.glActiveTexture(GL20.GL_TEXTURE0); //TODO Do we need this?
@@ -297,7 +777,226 @@ public final class VfxManager implements Disposable {
                 Gdx.gl.glDisable(GL20.GL_BLEND);
             }
         }
+        frameStats.end();
         applyingEffects = false;
+
+        if (directOutput && count > 0 && renderGraph == null) {
+            // The internal buffers don't hold the result.
+            hasCaptured = false;
+            invalidateMemoizedResult();
+        } else if (memoizationEnabled) {
+            storeMemoizedState(effectChain);
+        }
+    }
+
+    /**
+     * Renders the effect chain. The input is expected to be in the source buffer, the result ends up in the destination buffer.
+     * @param directOutput if true, the last effect renders into the direct output target instead.
+     */
+    private void renderEffectChain(Array<VfxEffect> effectChain, PingPongBuffer pingPongBuffer, boolean directOutput) {
+        int count = effectChain.size;
+
+        pingPongBuffer.begin();
+        for (int i = 0; i < count; ) {
+            int fusedCount = effectFusionEnabled ? collectFusionGroup(effectChain, i) : 0;
+            VfxFrameBuffer dst = pingPongBuffer.getDstBuffer();
+            if (directOutput && i + Math.max(fusedCount, 1) >= count) {
+                pingPongBuffer.end();
+                dst = beginDirectOutput();
+            }
+            if (fusedCount > 1) {
+                FusedVfxProgram fusedProgram = obtainFusedProgram(fusionGroup);
+                frameStats.beginSection(fusedProgram);
+                if (gpuProfiler != null) { gpuProfiler.begin(fusedProgram); }
+                fusedProgram.render(screenQuadMesh, fusionGroup,
+                        pingPongBuffer.getSrcBuffer(),
+                        dst);
+                if (gpuProfiler != null) { gpuProfiler.end(); }
+                frameStats.endSection();
+                fusionGroup.clear();
+                i += fusedCount;
+            } else {
+                VfxEffect effect = effectChain.get(i);
+                frameStats.beginSection(effect);
+                if (gpuProfiler != null) { gpuProfiler.begin(effect); }
+                if (effect.getResolutionScale() < 1f || !isAtRenderScale(effect)) {
+                    renderScaledEffect(effect,
+                            pingPongBuffer.getSrcBuffer(),
+                            dst);
+                } else {
+                    effect.render(screenQuadMesh,
+                            pingPongBuffer.getSrcBuffer(),
+                            dst);
+                }
+                if (gpuProfiler != null) { gpuProfiler.end(); }
+                frameStats.endSection();
+                i++;
+            }
+            if (i < count) {
+                pingPongBuffer.swap();
+            }
+        }
+        if (!directOutput) {
+            pingPongBuffer.end();
+        }
+    }
+
+    /** Renders the effect chain at the reduced render scale through the pooled buffers. */
+    private void renderScaledEffectChain(Array<VfxEffect> effectChain, boolean directOutput) {
+        VfxFrameBuffer buffer1 = bufferPool.obtain(fboFormat, renderWidth, renderHeight);
+        VfxFrameBuffer buffer2 = bufferPool.obtain(fboFormat, renderWidth, renderHeight);
+        scaledPingPongBuffer.setBuffers(buffer1, buffer2);
+
+        pingPongBuffer.swap(); // Swap buffers to get captured result in src buffer.
+        if (gpuProfiler != null) { gpuProfiler.begin(resampler, "Downsample"); }
+        resampler.downsample(screenQuadMesh, pingPongBuffer.getSrcBuffer(), scaledPingPongBuffer.getSrcBuffer());
+        if (gpuProfiler != null) { gpuProfiler.end(); }
+        renderEffectChain(effectChain, scaledPingPongBuffer, false);
+        if (gpuProfiler != null) { gpuProfiler.begin(scaledPingPongBuffer, "Upsample"); }
+        resampler.upsample(screenQuadMesh, UpsampleMode.BILINEAR,
+                scaledPingPongBuffer.getDstBuffer(), null, null,
+                directOutput ? beginDirectOutput() : pingPongBuffer.getDstBuffer());
+        if (gpuProfiler != null) { gpuProfiler.end(); }
+
+        bufferPool.free(buffer1);
+        bufferPool.free(buffer2);
+    }
+
+    /**
+     * Renders the effect at its own resolution through the pooled buffers.
+     * That is either the reduced resolution scale, or the full size for the effects that don't follow the render scale.
+     */
+    private void renderScaledEffect(VfxEffect effect, VfxFrameBuffer src, VfxFrameBuffer dst) {
+        VfxFrameBuffer scaledSrc = bufferPool.obtain(fboFormat, effect.scaledWidth, effect.scaledHeight);
+        VfxFrameBuffer scaledDst = bufferPool.obtain(fboFormat, effect.scaledWidth, effect.scaledHeight);
+
+        resampler.downsample(screenQuadMesh, src, scaledSrc);
+        effect.render(screenQuadMesh, scaledSrc, scaledDst);
+        // The edge-aware upsampling makes no sense when the effect's buffers are the larger ones.
+        UpsampleMode upsampleMode = effect.scaledWidth > src.getFbo().getWidth() ?
+                UpsampleMode.BILINEAR : effect.getUpsampleMode();
+        resampler.upsample(screenQuadMesh, upsampleMode, scaledDst, scaledSrc, src, dst);
+
+        bufferPool.free(scaledSrc);
+        bufferPool.free(scaledDst);
+    }
+
+    /**
+     * Prepares the direct output target.
+     * @return the target buffer or null for the screen (the viewport is set up then).
+     */
+    private VfxFrameBuffer beginDirectOutput() {
+        if (directOutputBuffer != null) {
+            return directOutputBuffer;
+        }
+        VfxGlViewport viewport = directOutputViewport;
+        Gdx.gl.glViewport(viewport.x, viewport.y, viewport.width, viewport.height);
+        VfxRenderCounters.onScreenViewport(viewport.width, viewport.height);
+        return null;
+    }
+
+    /** Copies the result to the direct output target, for when it cannot be rendered there straight away. */
+    private void renderDirectOutputCopy() {
+        if (blendingEnabled) { Gdx.gl.glEnable(GL20.GL_BLEND); }
+        if (directOutputBuffer != null) {
+            bufferRenderer.renderToFbo(pingPongBuffer.getDstBuffer(), directOutputBuffer);
+        } else {
+            VfxGlViewport viewport = directOutputViewport;
+            bufferRenderer.renderToScreen(pingPongBuffer.getDstBuffer(), viewport.x, viewport.y, viewport.width, viewport.height);
+        }
+        if (blendingEnabled) { Gdx.gl.glDisable(GL20.GL_BLEND); }
+    }
+
+    private void renderEffectGraph(Array<VfxEffect> effectChain) {
+        // The captured result is in the destination buffer, the source one is free to use.
+        if (!isRenderGraphUpToDate(effectChain)) {
+            rebuildRenderGraph(effectChain);
+        } else {
+            renderGraphInput.setImportedBuffer(pingPongBuffer.getDstBuffer());
+            renderGraphOutput.setImportedBuffer(pingPongBuffer.getSrcBuffer());
+        }
+
+        renderGraph.execute(screenQuadMesh);
+
+        pingPongBuffer.swap(); // Swap buffers to get the graph output in dst buffer.
+    }
+
+    private void rebuildRenderGraph(Array<VfxEffect> effectChain) {
+        renderGraph.clear();
+        renderGraphChain.clear();
+        renderGraphChain.addAll(effectChain);
+        renderGraphScales.clear();
+        renderGraphUpsampleModes.clear();
+        renderGraphStructureVersions.clear();
+        for (int i = 0; i < effectChain.size; i++) {
+            renderGraphScales.add(effectChain.get(i).getResolutionScale());
+            renderGraphUpsampleModes.add(effectChain.get(i).getUpsampleMode());
+            renderGraphStructureVersions.add(getGraphStructureVersion(effectChain.get(i)));
+        }
+
+        // Both ping-pong buffers' content is needed only within the resource lifetimes,
+        // so they may also back the intermediate results.
+        renderGraphInput = renderGraph.importBuffer("input", pingPongBuffer.getDstBuffer(), true);
+        renderGraphOutput = renderGraph.importBuffer("output", pingPongBuffer.getSrcBuffer(), true);
+
+        VfxRenderGraph.Resource input = renderGraphInput;
+        for (int i = 0; i < effectChain.size; i++) {
+            VfxEffect effect = effectChain.get(i);
+            VfxRenderGraph.Resource output = i < effectChain.size - 1 ?
+                    renderGraph.createBuffer(effect.getClass().getSimpleName() + "-out") :
+                    renderGraphOutput;
+            if (effect.getResolutionScale() < 1f) {
+                addScaledEffectPasses(effect, input, output);
+            } else {
+                renderGraph.addEffect(effect, input, output);
+            }
+            input = output;
+        }
+    }
+
+    private boolean isRenderGraphUpToDate(Array<VfxEffect> effectChain) {
+        if (!renderGraphChain.equals(effectChain)) return false;
+        for (int i = 0; i < effectChain.size; i++) {
+            VfxEffect effect = effectChain.get(i);
+            if (renderGraphScales.get(i) != effect.getResolutionScale()) return false;
+            if (renderGraphUpsampleModes.get(i) != effect.getUpsampleMode()) return false;
+            if (renderGraphStructureVersions.get(i) != getGraphStructureVersion(effect)) return false;
+        }
+        return true;
+    }
+
+    private static int getGraphStructureVersion(VfxEffect effect) {
+        return effect instanceof VfxGraphEffect ? ((VfxGraphEffect) effect).getGraphStructureVersion() : 0;
+    }
+
+    /** Declares the downsample, the effect and the upsample passes, the same way {@link #renderScaledEffect} does. */
+    private void addScaledEffectPasses(final VfxEffect effect,
+                                       final VfxRenderGraph.Resource input,
+                                       final VfxRenderGraph.Resource output) {
+        String name = effect.getClass().getSimpleName();
+        float scale = effect.getResolutionScale();
+        final VfxRenderGraph.Resource scaledInput = renderGraph.createBuffer(name + "-scaled-in", scale);
+        final VfxRenderGraph.Resource scaledOutput = renderGraph.createBuffer(name + "-scaled-out", scale);
+
+        renderGraph.addPass(name + "-downsample", new VfxRenderGraph.PassExecutor() {
+            @Override
+            public void execute(VfxRenderGraph graph, ScreenQuadMesh mesh) {
+                resampler.downsample(mesh, graph.getBuffer(input), graph.getBuffer(scaledInput));
+            }
+        }).read(input).write(scaledInput);
+
+        renderGraph.addEffect(effect, scaledInput, scaledOutput);
+
+        renderGraph.addPass(name + "-upsample", new VfxRenderGraph.PassExecutor() {
+            @Override
+            public void execute(VfxRenderGraph graph, ScreenQuadMesh mesh) {
+                resampler.upsample(mesh, effect.getUpsampleMode(),
+                        graph.getBuffer(scaledOutput),
+                        graph.getBuffer(scaledInput),
+                        graph.getBuffer(input),
+                        graph.getBuffer(output));
+            }
+        }).read(scaledOutput).read(scaledInput).read(input).write(output);
     }
 
     public void renderToScreen() {
@@ -344,10 +1043,123 @@ public final class VfxManager implements Disposable {
         effectsEnabled.clear();
         for (int i = 0; i < effectsAll.size(); i++) {
             VfxEffect effect = effectsAll.get(i);
-            if (!effect.isDisabled()) {
+            // The effects at the neutral parameters would only waste a pass.
+            if (!effect.isDisabled() && !effect.isIdentity()) {
                 effectsEnabled.add(effect);
             }
         }
         return effectsEnabled;
     }
-}
\ No newline at end of file
+
+    /**
+     * Fills {@link #fusionGroup} with the longest run of fusable effects, starting from the specified index.
+     * @return the number of effects in the group.
+     */
+    private int collectFusionGroup(Array<VfxEffect> effectChain, int startIndex) {
+        fusionGroup.clear();
+        for (int i = startIndex; i < effectChain.size; i++) {
+            VfxEffect effect = effectChain.get(i);
+            if (!(effect instanceof FusableVfxEffect)) break;
+
+            FusableVfxEffect fusable = (FusableVfxEffect) effect;
+            if (!fusable.isFusable()) break;
+            if (effect.getResolutionScale() < 1f) break;
+            // Only the first effect of a group may sample the input texture.
+            if (i > startIndex && fusable.isSamplingInput()) break;
+
+            fusionGroup.add(fusable);
+        }
+        return fusionGroup.size;
+    }
+
+    private FusedVfxProgram obtainFusedProgram(Array<FusableVfxEffect> effects) {
+        long hash = FusedVfxProgram.hash(effects);
+        FusedVfxProgram program = fusedPrograms.get(hash);
+        if (program != null && !program.matches(effects)) {
+            // Hash collision, the program will be replaced.
+            frameStats.removeSection(program);
+            program.dispose();
+            program = null;
+        }
+        if (program == null) {
+            program = new FusedVfxProgram(effects);
+            fusedPrograms.put(hash, program);
+        }
+        return program;
+    }
+
+    /**
+     * Resizes the effect to its scaled size, if it's changed.
+     * The effects that don't {@link VfxEffect#isRenderScaleSupported() support} the render scale are sized
+     * off the full size, so the render scale steps never reallocate their buffers.
+     */
+    void resizeEffect(VfxEffect effect) {
+        boolean atRenderScale = effect.isRenderScaleSupported();
+        int baseWidth = atRenderScale ? renderWidth : width;
+        int baseHeight = atRenderScale ? renderHeight : height;
+        int scaledWidth = Math.max(1, Math.round(baseWidth * effect.getResolutionScale()));
+        int scaledHeight = Math.max(1, Math.round(baseHeight * effect.getResolutionScale()));
+        if (effect.scaledWidth == scaledWidth && effect.scaledHeight == scaledHeight) return;
+
+        effect.scaledWidth = scaledWidth;
+        effect.scaledHeight = scaledHeight;
+        effect.resize(scaledWidth, scaledHeight);
+    }
+
+    /** @return false if the effect is kept at the full size while the chain is processed at the reduced render scale. */
+    private boolean isAtRenderScale(VfxEffect effect) {
+        return renderScale == 1f || effect.isRenderScaleSupported();
+    }
+
+    private boolean isMemoizedResultUpToDate(Array<VfxEffect> effectChain) {
+        if (!memoResultValid) return false;
+        if (memoCaptureVersion != captureVersion) return false;
+        if (memoRenderScale != renderScale) return false;
+        if (!memoChain.equals(effectChain)) return false;
+        for (int i = 0; i < effectChain.size; i++) {
+            VfxEffect effect = effectChain.get(i);
+            if (effect.isTimeDependent()) return false;
+            if (memoParamsVersions.get(i) != effect.getParamsVersion()) return false;
+        }
+        return true;
+    }
+
+    private void storeMemoizedState(Array<VfxEffect> effectChain) {
+        memoChain.clear();
+        memoChain.addAll(effectChain);
+        memoParamsVersions.clear();
+        for (int i = 0; i < effectChain.size; i++) {
+            memoParamsVersions.add(effectChain.get(i).getParamsVersion());
+        }
+        memoCaptureVersion = captureVersion;
+        memoRenderScale = renderScale;
+        memoResultValid = true;
+    }
+
+    private void invalidateMemoizedResult() {
+        memoResultValid = false;
+        memoResultPreserved = false;
+        memoChain.clear();
+        memoParamsVersions.clear();
+    }
+
+    private void setRenderScale(float renderScale) {
+        if (this.renderScale == renderScale) return;
+        this.renderScale = renderScale;
+        // The effects are resized lazily, right before the next effect chain processing.
+        updateRenderSize();
+    }
+
+    private void updateRenderSize() {
+        renderWidth = Math.max(1, Math.round(width * renderScale));
+        renderHeight = Math.max(1, Math.round(height * renderScale));
+    }
+
+    private void clearFusedPrograms() {
+        for (FusedVfxProgram program : fusedPrograms.values()) {
+            frameStats.removeSection(program);
+            program.dispose();
+        }
+        fusedPrograms.clear();
+    }
+}
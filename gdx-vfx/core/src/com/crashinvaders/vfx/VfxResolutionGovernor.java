@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx;
+
+import com.badlogic.gdx.Gdx;
+import com.crashinvaders.vfx.profiling.VfxGpuProfiler;
+
+/**
+ * Adjusts the render scale of the {@link VfxManager}'s effect chain to keep the measured frame time within the target.
+ * <p>
+ * The scale moves in fixed steps between the min and max values, so only a few distinct buffer sizes are ever requested
+ * and the buffers of the recently used scale levels are served from the manager's {@link com.crashinvaders.vfx.framebuffer.VfxFrameBufferPool}.
+ * The effects get resized on the scale steps, but the ones added to a manager borrow their buffers from the same pool.
+ * The effects that own size dependent buffers (e.g. {@code MotionBlurEffect} with its previous frame)
+ * report {@link VfxEffect#isRenderScaleSupported()} of false and are excluded from the scaling:
+ * they stay at the full size and the manager resamples the image around them.
+ * <p>
+ * To avoid oscillation, the scale goes down only after the smoothed frame time stays over the target for a number of frames in a row
+ * and goes up only after it stays well under the target for a (longer) number of frames.
+ * <p>
+ * By default, the frame time is the GPU time of the effect chain, measured by {@link VfxManager}
+ * with the timer queries ({@link GpuTimeSource}). So the target is the GPU time budget of the effects.
+ * When the timer queries are not supported (or the governor is used on its own), the frame delta time is used instead ({@link #DELTA_TIME}).
+ * @see VfxManager#setResolutionGovernor(VfxResolutionGovernor)
+ */
+public class VfxResolutionGovernor {
+
+    /** Provides the frame time measurements. */
+    public interface FrameTimeSource {
+        /** @return the latest frame time measurement in milliseconds or a negative value if there is no new one yet. */
+        float pollFrameTime();
+    }
+
+    /**
+     * Uses the application's frame delta time. It's only a fallback for when the timer queries are not available.
+     * The delta time includes the CPU time and the vertical sync wait, so with the vsync enabled it never goes under the refresh interval
+     * and the scale may never go back up (unless the target and the upscale ratio account for that).
+     */
+    public static final FrameTimeSource DELTA_TIME = new FrameTimeSource() {
+        @Override
+        public float pollFrameTime() {
+            return Gdx.graphics.getRawDeltaTime() * 1000f;
+        }
+    };
+
+    /**
+     * Uses the total GPU time of the sections timed by the profiler within a frame (see {@link VfxGpuProfiler#getFrameStats()}).
+     * For the profiler of {@link VfxManager} that is the whole effect chain.
+     * The measurements arrive a few frames late, the governor's hysteresis covers that.
+     */
+    public static class GpuTimeSource implements FrameTimeSource {
+        private final VfxGpuProfiler profiler;
+        private long lastSampleCount;
+
+        public GpuTimeSource(VfxGpuProfiler profiler) {
+            if (profiler == null) throw new IllegalArgumentException("Profiler cannot be null.");
+            this.profiler = profiler;
+            this.lastSampleCount = profiler.getFrameStats().getTotalSampleCount();
+        }
+
+        public VfxGpuProfiler getProfiler() {
+            return profiler;
+        }
+
+        @Override
+        public float pollFrameTime() {
+            VfxGpuProfiler.TimerStats stats = profiler.getFrameStats();
+            long sampleCount = stats.getTotalSampleCount();
+            if (sampleCount == lastSampleCount) return -1f;
+            lastSampleCount = sampleCount;
+            return stats.getLatest();
+        }
+    }
+
+    /** Explicitly set source, or null to use the default one. */
+    private FrameTimeSource frameTimeSource = null;
+    /** Provided by {@link VfxManager}, depending on the timer query support. */
+    private FrameTimeSource defaultFrameTimeSource = DELTA_TIME;
+
+    private float targetFrameTime = 1000f / 60f;
+    private float minScale = 0.5f;
+    private float maxScale = 1f;
+    private float scaleStep = 0.125f;
+    /** The scale goes down when the frame time exceeds the target by this factor. */
+    private float downscaleRatio = 1.1f;
+    /** The scale goes up when the frame time is under the target by this factor. */
+    private float upscaleRatio = 0.75f;
+    private int downscaleFrames = 10;
+    private int upscaleFrames = 60;
+    private float smoothing = 0.1f;
+
+    private float scale = 1f;
+    private float averageFrameTime = -1f;
+    private int overBudgetCount = 0;
+    private int underBudgetCount = 0;
+
+    /** Should be called once per frame. {@link VfxManager} does it for the governor installed into it. */
+    public void update() {
+        float frameTime = getEffectiveFrameTimeSource().pollFrameTime();
+        if (frameTime < 0f) return;
+
+        if (averageFrameTime < 0f) {
+            averageFrameTime = frameTime;
+        } else {
+            averageFrameTime += (frameTime - averageFrameTime) * smoothing;
+        }
+
+        if (averageFrameTime > targetFrameTime * downscaleRatio) {
+            overBudgetCount++;
+            underBudgetCount = 0;
+        } else if (averageFrameTime < targetFrameTime * upscaleRatio) {
+            underBudgetCount++;
+            overBudgetCount = 0;
+        } else {
+            overBudgetCount = 0;
+            underBudgetCount = 0;
+        }
+
+        if (overBudgetCount >= downscaleFrames && scale > minScale) {
+            setScaleInternal(Math.max(minScale, scale - scaleStep));
+        } else if (underBudgetCount >= upscaleFrames && scale < maxScale) {
+            setScaleInternal(Math.min(maxScale, scale + scaleStep));
+        }
+    }
+
+    /** Resets the scale to the max value and drops the collected measurements. */
+    public void reset() {
+        setScaleInternal(maxScale);
+    }
+
+    /** @return the current render scale. */
+    public float getScale() {
+        return scale;
+    }
+
+    /** @return the smoothed frame time in milliseconds or a negative value if there were no measurements yet. */
+    public float getAverageFrameTime() {
+        return averageFrameTime;
+    }
+
+    /** @return the explicitly set frame time source or null if the default one is used. */
+    public FrameTimeSource getFrameTimeSource() {
+        return frameTimeSource;
+    }
+
+    /** @return the frame time source the governor actually polls. */
+    public FrameTimeSource getEffectiveFrameTimeSource() {
+        return frameTimeSource != null ? frameTimeSource : defaultFrameTimeSource;
+    }
+
+    /** @param frameTimeSource the source to poll, or null to use the default one (see the class description). */
+    public void setFrameTimeSource(FrameTimeSource frameTimeSource) {
+        this.frameTimeSource = frameTimeSource;
+        averageFrameTime = -1f;
+    }
+
+    /** @param defaultFrameTimeSource the source to use when there is no explicitly set one, or null to fall back to {@link #DELTA_TIME}. */
+    void setDefaultFrameTimeSource(FrameTimeSource defaultFrameTimeSource) {
+        if (defaultFrameTimeSource == null) {
+            defaultFrameTimeSource = DELTA_TIME;
+        }
+        if (this.defaultFrameTimeSource == defaultFrameTimeSource) return;
+        this.defaultFrameTimeSource = defaultFrameTimeSource;
+        if (frameTimeSource == null) {
+            averageFrameTime = -1f;
+        }
+    }
+
+    public float getTargetFrameTime() {
+        return targetFrameTime;
+    }
+
+    /** @param targetFrameTime the frame time to maintain in milliseconds. */
+    public void setTargetFrameTime(float targetFrameTime) {
+        if (targetFrameTime <= 0f) throw new IllegalArgumentException("Target frame time must be positive: " + targetFrameTime);
+        this.targetFrameTime = targetFrameTime;
+    }
+
+    public float getMinScale() {
+        return minScale;
+    }
+
+    public float getMaxScale() {
+        return maxScale;
+    }
+
+    /**
+     * @param minScale the lowest scale to go down to.
+     * @param maxScale the highest scale to go up to. Should be within the (0..1] range.
+     * @param scaleStep the scale change per adjustment.
+     */
+    public void setScaleRange(float minScale, float maxScale, float scaleStep) {
+        if (minScale <= 0f || maxScale > 1f || minScale > maxScale) {
+            throw new IllegalArgumentException("Invalid scale range: [" + minScale + ".." + maxScale + "]");
+        }
+        if (scaleStep <= 0f) throw new IllegalArgumentException("Scale step must be positive: " + scaleStep);
+        this.minScale = minScale;
+        this.maxScale = maxScale;
+        this.scaleStep = scaleStep;
+        setScaleInternal(Math.max(minScale, Math.min(maxScale, scale)));
+    }
+
+    /**
+     * @param downscaleRatio the frame time to target ratio the scale goes down over (e.g. 1.1).
+     * @param upscaleRatio the frame time to target ratio the scale goes up under (e.g. 0.75).
+     * @param downscaleFrames how many frames in a row the frame time should be over the threshold for the scale to go down.
+     * @param upscaleFrames how many frames in a row the frame time should be under the threshold for the scale to go up.
+     */
+    public void setHysteresis(float downscaleRatio, float upscaleRatio, int downscaleFrames, int upscaleFrames) {
+        if (upscaleRatio >= downscaleRatio) {
+            throw new IllegalArgumentException("Upscale ratio must be less than downscale ratio.");
+        }
+        if (downscaleFrames <= 0 || upscaleFrames <= 0) {
+            throw new IllegalArgumentException("Frame counts must be positive.");
+        }
+        this.downscaleRatio = downscaleRatio;
+        this.upscaleRatio = upscaleRatio;
+        this.downscaleFrames = downscaleFrames;
+        this.upscaleFrames = upscaleFrames;
+    }
+
+    public float getSmoothing() {
+        return smoothing;
+    }
+
+    /** @param smoothing the weight of a new measurement in the exponential moving average, in the (0..1] range. */
+    public void setSmoothing(float smoothing) {
+        if (smoothing <= 0f || smoothing > 1f) throw new IllegalArgumentException("Smoothing must be in the (0..1] range: " + smoothing);
+        this.smoothing = smoothing;
+    }
+
+    private void setScaleInternal(float scale) {
+        this.scale = scale;
+        // The measurements are no longer relevant for the new scale.
+        averageFrameTime = -1f;
+        overBudgetCount = 0;
+        underBudgetCount = 0;
+    }
+}
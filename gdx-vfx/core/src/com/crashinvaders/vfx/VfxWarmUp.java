@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBuffer;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBufferPool;
+import com.crashinvaders.vfx.gl.VfxGLUtils;
+
+/**
+ * Prepares effects ahead of time, so adding them to the {@link VfxManager} later on doesn't cause frame hitches.
+ * <p>
+ * The work is split into steps, each effect takes two:
+ * the instantiation (which is where the shaders get compiled, in case the effect is supplied through an {@link EffectFactory})
+ * and a single offscreen priming draw (which makes the driver finish up the programs and allocates the effect's buffers).
+ * Call {@link #update(long)} once per frame, outside of {@link VfxManager#beginCapture()}/{@link VfxManager#applyEffects()}
+ * to process as many steps as the time budget allows.
+ * <p>
+ * The effects are not added to the manager, use {@link #getEffects()} once the warm-up is finished.
+ * @see VfxManager#createWarmUp()
+ */
+public class VfxWarmUp {
+    private static final String TAG = VfxWarmUp.class.getSimpleName();
+
+    private final VfxManager vfxManager;
+
+    private final Array<Object> sources = new Array<>();
+    private final Array<VfxEffect> effects = new Array<>();
+    private final Color tmpColor = new Color();
+
+    private int stepIndex = 0;
+
+    VfxWarmUp(VfxManager vfxManager) {
+        this.vfxManager = vfxManager;
+    }
+
+    /** Adds an already created effect. It will only be primed. */
+    public VfxWarmUp add(VfxEffect effect) {
+        if (effect == null) throw new IllegalArgumentException("Effect cannot be null.");
+        checkNotStarted();
+        sources.add(effect);
+        return this;
+    }
+
+    /** Adds an effect that will be created and primed as a part of the warm-up. */
+    public VfxWarmUp add(EffectFactory factory) {
+        if (factory == null) throw new IllegalArgumentException("Factory cannot be null.");
+        checkNotStarted();
+        sources.add(factory);
+        return this;
+    }
+
+    /**
+     * Processes the pending steps until the time budget is exhausted.
+     * At least one step is processed per call, so the warm-up always makes progress.
+     * @return true if the warm-up is finished.
+     */
+    public boolean update(long budgetMillis) {
+        long startTime = TimeUtils.millis();
+        while (!isFinished()) {
+            processStep(stepIndex);
+            stepIndex++;
+
+            if (TimeUtils.timeSinceMillis(startTime) >= budgetMillis) break;
+        }
+        return isFinished();
+    }
+
+    /** Processes all the pending steps at once. */
+    public void finish() {
+        while (!isFinished()) {
+            processStep(stepIndex);
+            stepIndex++;
+        }
+    }
+
+    public boolean isFinished() {
+        return stepIndex >= getStepCount();
+    }
+
+    /** @return the warm-up progress in the [0..1] range. */
+    public float getProgress() {
+        int stepCount = getStepCount();
+        return stepCount == 0 ? 1f : stepIndex / (float) stepCount;
+    }
+
+    /** @return the prepared effects in the order they were added. Complete only when the warm-up is finished. */
+    public Array<VfxEffect> getEffects() {
+        return effects;
+    }
+
+    private int getStepCount() {
+        return sources.size * 2;
+    }
+
+    private void processStep(int step) {
+        int index = step / 2;
+        if (step % 2 == 0) {
+            Object source = sources.get(index);
+            VfxEffect effect = source instanceof EffectFactory ? ((EffectFactory) source).create() : (VfxEffect) source;
+            if (effect == null) {
+                throw new IllegalStateException("Effect factory returned null.");
+            }
+            effects.add(effect);
+        } else {
+            prime(effects.get(index));
+        }
+    }
+
+    /** Renders the effect once into a throwaway buffer, using the same buffer sizes as the manager would. */
+    private void prime(VfxEffect effect) {
+        if (vfxManager.isCapturing() || vfxManager.isApplyingEffects()) {
+            throw new IllegalStateException("Cannot prime the effects while the manager is capturing or applying the effects.");
+        }
+
+        VfxFrameBufferPool bufferPool = vfxManager.getBufferPool();
+
+        VfxFrameBufferPool prevBufferPool = effect.bufferPool;
+        effect.bufferPool = bufferPool;
+        vfxManager.resizeEffect(effect);
+        // Effects with a reduced resolution scale get primed at their own size.
+        int width = effect.scaledWidth;
+        int height = effect.scaledHeight;
+
+        VfxFrameBuffer src = bufferPool.obtain(vfxManager.getFramebufferFormat(), width, height);
+        VfxFrameBuffer dst = bufferPool.obtain(vfxManager.getFramebufferFormat(), width, height);
+        // The effects that keep the previous frames (e.g. motion blur) should not pick up any garbage.
+        // The application's clear color is restored right after.
+        Color clearColor = VfxGLUtils.getClearColor(tmpColor);
+        src.begin();
+        Gdx.gl.glClearColor(Color.CLEAR.r, Color.CLEAR.g, Color.CLEAR.b, Color.CLEAR.a);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+        src.end();
+        Gdx.gl.glClearColor(clearColor.r, clearColor.g, clearColor.b, clearColor.a);
+
+        Gdx.gl.glDisable(GL20.GL_CULL_FACE);
+        Gdx.gl.glDisable(GL20.GL_DEPTH_TEST);
+        effect.render(vfxManager.getScreenQuadMesh(), src, dst);
+
+        bufferPool.free(src);
+        bufferPool.free(dst);
+        effect.bufferPool = prevBufferPool;
+
+        Gdx.app.debug(TAG, "Primed " + effect.getClass().getSimpleName());
+    }
+
+    private void checkNotStarted() {
+        if (stepIndex > 0) throw new IllegalStateException("Cannot add effects after the warm-up has started.");
+    }
+
+    /** Instantiates an effect. Effect constructors compile the shaders, so it's a part of the warm-up. */
+    public interface EffectFactory {
+        VfxEffect create();
+    }
+}
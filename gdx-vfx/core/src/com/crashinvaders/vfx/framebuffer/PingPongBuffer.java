@@ -43,8 +43,10 @@ import com.badlogic.gdx.graphics.Texture.TextureWrap;
  */
 public final class PingPongBuffer {
 
-    private final VfxFrameBuffer buffer1;
-    private final VfxFrameBuffer buffer2;
+    private VfxFrameBuffer buffer1;
+    private VfxFrameBuffer buffer2;
+    /** Whether the encapsulated buffers are created and thus disposed by this instance. */
+    private final boolean ownsBuffers;
 
     private VfxFrameBuffer bufDst;
     private VfxFrameBuffer bufSrc;
@@ -79,6 +81,7 @@ public final class PingPongBuffer {
      * @param fbFormat Pixel format of encapsulated {@link VfxFrameBuffer}s.
      */
     public PingPongBuffer(Format fbFormat, int width, int height) {
+        this.ownsBuffers = true;
         this.buffer1 = new VfxFrameBuffer(fbFormat);
         this.buffer2 = new VfxFrameBuffer(fbFormat);
         resize(width, height);
@@ -89,11 +92,51 @@ public final class PingPongBuffer {
         this.bufSrc = buffer2;
     }
 
+    /**
+     * Initializes ping-pong buffer over the external buffers (e.g. borrowed from {@link VfxFrameBufferPool}).
+     * The buffers are not owned by the instance and will not be disposed along with it.
+     * @see #setBuffers(VfxFrameBuffer, VfxFrameBuffer)
+     */
+    public PingPongBuffer(VfxFrameBuffer buffer1, VfxFrameBuffer buffer2) {
+        this.ownsBuffers = false;
+        setBuffers(buffer1, buffer2);
+    }
+
     public void dispose() {
+        if (!ownsBuffers) return;
+
         buffer1.dispose();
         buffer2.dispose();
     }
 
+    /**
+     * Replaces the external buffers. Applicable only to the instances created with
+     * {@link #PingPongBuffer(VfxFrameBuffer, VfxFrameBuffer)}.
+     * The texture parameters of the buffers will be updated and the ping-pong state will be reset.
+     */
+    public void setBuffers(VfxFrameBuffer buffer1, VfxFrameBuffer buffer2) {
+        if (ownsBuffers) {
+            throw new IllegalStateException("The buffers are owned by the ping-pong buffer and cannot be replaced.");
+        }
+        if (capturing) {
+            throw new IllegalStateException("Cannot replace the buffers when capturing.");
+        }
+        if (buffer1 == null || buffer2 == null || buffer1 == buffer2) {
+            throw new IllegalArgumentException("Two different non-null buffers expected.");
+        }
+        this.buffer1 = buffer1;
+        this.buffer2 = buffer2;
+
+        writeState = false;
+        this.bufDst = buffer1;
+        this.bufSrc = buffer2;
+        rebind();
+    }
+
+    /**
+     * (Re)initializes the encapsulated buffers with the given size.
+     * Please note that for the external buffers it will reinitialize the buffers' owner objects.
+     */
     public void resize(int width, int height) {
         this.buffer1.initialize(width, height);
         this.buffer2.initialize(width, height);
@@ -30,6 +30,7 @@ import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.Pool;
 import com.crashinvaders.vfx.gl.VfxGLUtils;
 import com.crashinvaders.vfx.gl.VfxGlViewport;
+import com.crashinvaders.vfx.profiling.VfxRenderCounters;
 
 /**
  * Wraps {@link FrameBuffer} and manages currently bound OpenGL FBO.
@@ -63,15 +64,63 @@ import com.crashinvaders.vfx.gl.VfxGlViewport;
  * The registered renderers will automatically switch their matrices back and forth respectively upon {@link #begin()} and {@link #end()} calls.
  * They will also be flushed in the right time.
  * <p>
+ * The bound FBO and the viewport are tracked in software (see {@link #getCurrentBuffer()}),
+ * so the nested {@link #begin()}/{@link #end()} calls never query OpenGL state (such queries may stall the pipeline).
+ * The only query takes place upon the outermost {@link #begin()} call to find out the state to restore
+ * and could be avoided as well by defining the state through {@link #setRootState(int, int, int, int, int)}.
+ * Since the viewport is tracked, the code that draws into a buffer should not change it (or should restore it after).
+ * To check that the tracked state matches the actual one, use {@link #setStateValidationEnabled(boolean)}.
+ * <p>
  * <b>NOTE:</b> Depth and stencil buffers are not supported.
  *
  * @author metaphore
  */
 public class VfxFrameBuffer implements Disposable {
+    /** Currently activated buffers, the last one is bound. */
+    private static final Array<VfxFrameBuffer> bufferStack = new Array<>();
     /** Current depth of buffer nesting rendering (keeps track of how many buffers currently activated). */
-    private static int bufferNesting = 0;
-    /** @see #bufferNesting */
-    public static int getBufferNesting() { return bufferNesting; }
+    public static int getBufferNesting() { return bufferStack.size; }
+
+    private static final VfxGlViewport rootViewport = new VfxGlViewport();
+    private static int rootFboHandle = 0;
+    private static boolean rootStateDefined = false;
+    private static boolean stateValidationEnabled = false;
+
+    /** @return the currently bound buffer or null if none of the buffers is activated. */
+    public static VfxFrameBuffer getCurrentBuffer() {
+        return bufferStack.size > 0 ? bufferStack.peek() : null;
+    }
+
+    /**
+     * Defines the OpenGL state that is expected to be active when there are no buffers activated
+     * (usually it's the default framebuffer and the application's screen viewport).
+     * This way the outermost {@link #begin()} call won't have to query it.
+     * <p>
+     * The state should be updated every time the application changes it (e.g. on window resize).
+     */
+    public static void setRootState(int fboHandle, int viewportX, int viewportY, int viewportWidth, int viewportHeight) {
+        rootFboHandle = fboHandle;
+        rootViewport.set(viewportX, viewportY, viewportWidth, viewportHeight);
+        rootStateDefined = true;
+    }
+
+    /** Switches back to querying the root state upon the outermost {@link #begin()} call. */
+    public static void clearRootState() {
+        rootStateDefined = false;
+    }
+
+    public static boolean isStateValidationEnabled() {
+        return stateValidationEnabled;
+    }
+
+    /**
+     * When enabled, the tracked OpenGL state is compared against the actual one on every {@link #begin()}/{@link #end()} call.
+     * Useful for debugging, but beware the pipeline may stall on state queries!
+     * Disabled by default.
+     */
+    public static void setStateValidationEnabled(boolean enabled) {
+        stateValidationEnabled = enabled;
+    }
 
     private static final OrthographicCamera tmpCam = new OrthographicCamera();
     private static final Matrix4 zeroTransform = new Matrix4();
@@ -102,7 +151,7 @@ public class VfxFrameBuffer implements Disposable {
 
         initialized = true;
 
-        int boundFboHandle = getBoundFboHandle();
+        int boundFboHandle = getTrackedFboHandle();
         fbo = new FrameBuffer(pixelFormat, width, height, false);
         fbo.getColorBufferTexture().setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
         Gdx.gl20.glBindFramebuffer(GL20.GL_FRAMEBUFFER, boundFboHandle);
@@ -166,39 +215,81 @@ public class VfxFrameBuffer implements Disposable {
     }
 
     public void begin() {
-        bufferNesting++;
-
         if (!initialized) throw new IllegalStateException("BatchedFboWrapper must be initialized first");
         if (drawing) throw new IllegalStateException("Already drawing");
 
         drawing = true;
 
         renderers.flush();
-        previousFboHandle = getBoundFboHandle();
-        preservedViewport.set(getViewport());
+        if (bufferStack.size > 0) {
+            // The state is defined by the parent buffer.
+            FrameBuffer parentFbo = bufferStack.peek().fbo;
+            previousFboHandle = parentFbo.getFramebufferHandle();
+            preservedViewport.set(0, 0, parentFbo.getWidth(), parentFbo.getHeight());
+        } else if (rootStateDefined) {
+            previousFboHandle = rootFboHandle;
+            preservedViewport.set(rootViewport);
+        } else {
+            previousFboHandle = getBoundFboHandle();
+            preservedViewport.set(getViewport());
+        }
+        if (stateValidationEnabled) {
+            validateState(previousFboHandle, preservedViewport);
+        }
+        bufferStack.add(this);
+
         Gdx.gl20.glBindFramebuffer(GL20.GL_FRAMEBUFFER, fbo.getFramebufferHandle());
         Gdx.gl20.glViewport(0, 0, getFbo().getWidth(), getFbo().getHeight());
+        VfxRenderCounters.onFramebufferBind();
         renderers.assignLocalMatrices(localProjection, localTransform);
     }
 
     public void end() {
-        bufferNesting--;
-
         if (!initialized) throw new IllegalStateException("BatchedFboWrapper must be initialized first");
         if (!drawing) throw new IllegalStateException("Is not drawing");
 
-        if (getBoundFboHandle() != fbo.getFramebufferHandle()) {
+        if (bufferStack.size == 0 || bufferStack.peek() != this) {
+            throw new IllegalStateException("The buffer is not the last activated one. It seems like begin/end order was violated.");
+        }
+        if (stateValidationEnabled && getBoundFboHandle() != fbo.getFramebufferHandle()) {
             throw new IllegalStateException("Current bound OpenGL FBO's handle doesn't match to wrapped one. It seems like begin/end order was violated.");
         }
 
         drawing = false;
+        bufferStack.pop();
 
         renderers.flush();
         Gdx.gl20.glBindFramebuffer(GL20.GL_FRAMEBUFFER, previousFboHandle);
         Gdx.gl20.glViewport(preservedViewport.x, preservedViewport.y, preservedViewport.width, preservedViewport.height);
+        VfxRenderCounters.onFramebufferBind();
         renderers.restoreOwnMatrices();
     }
 
+    /** @return the handle of the currently bound FBO, queries OpenGL only if the state is unknown. */
+    private int getTrackedFboHandle() {
+        if (bufferStack.size > 0) {
+            return bufferStack.peek().fbo.getFramebufferHandle();
+        }
+        if (rootStateDefined) {
+            return rootFboHandle;
+        }
+        return getBoundFboHandle();
+    }
+
+    private void validateState(int expectedFboHandle, VfxGlViewport expectedViewport) {
+        int boundFboHandle = getBoundFboHandle();
+        if (boundFboHandle != expectedFboHandle) {
+            throw new IllegalStateException("Tracked FBO handle (" + expectedFboHandle + ") doesn't match to the actual one (" + boundFboHandle + "). " +
+                    "It seems like the FBO was bound bypassing VfxFrameBuffer or the root state is outdated.");
+        }
+        VfxGlViewport viewport = getViewport();
+        if (viewport.x != expectedViewport.x || viewport.y != expectedViewport.y ||
+                viewport.width != expectedViewport.width || viewport.height != expectedViewport.height) {
+            throw new IllegalStateException("Tracked viewport (" + expectedViewport + ") doesn't match to the actual one (" + viewport + "). " +
+                    "It seems like the viewport was changed while the buffer was bound or the root state is outdated.");
+        }
+    }
+
     protected int getBoundFboHandle() {
         int boundFboHandle = VfxGLUtils.getBoundFboHandle();
         return boundFboHandle;
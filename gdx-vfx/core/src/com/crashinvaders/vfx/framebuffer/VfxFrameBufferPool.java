@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx.framebuffer;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectSet;
+
+/**
+ * A pool of transient {@link VfxFrameBuffer}s, keyed by pixel format and size.
+ * <p>
+ * The buffers are meant to be borrowed for a short period of time (usually within a single render call)
+ * and returned right after, so the same video memory gets reused by the different consumers.
+ * The total amount of the allocated memory is thus defined by the peak number of simultaneously borrowed buffers
+ * rather than by the number of consumers.
+ * <p>
+ * The idle buffers are evicted in the least recently used order, whenever the total size of the pool exceeds the budget.
+ * The borrowed buffers are never evicted, so the budget is a soft limit.
+ * <p>
+ * A borrowed buffer's content is undefined. Its texture has {@link Texture.TextureFilter#Nearest} filtering
+ * and {@link Texture.TextureWrap#ClampToEdge} wrapping.
+ */
+public class VfxFrameBufferPool implements Disposable {
+
+    /** Idle buffers, the least recently used go first. */
+    private final Array<VfxFrameBuffer> freeBuffers = new Array<>();
+    private final ObjectSet<VfxFrameBuffer> borrowedBuffers = new ObjectSet<>();
+
+    private long budget;
+    private long totalBytes = 0L;
+
+    /** Creates a pool with no budget limit (use {@link #trim()} to release the idle buffers). */
+    public VfxFrameBufferPool() {
+        this(Long.MAX_VALUE);
+    }
+
+    /** @param budget the max total size of the pooled buffers in bytes. */
+    public VfxFrameBufferPool(long budget) {
+        setBudget(budget);
+    }
+
+    @Override
+    public void dispose() {
+        for (int i = 0; i < freeBuffers.size; i++) {
+            freeBuffers.get(i).dispose();
+        }
+        freeBuffers.clear();
+        for (VfxFrameBuffer buffer : borrowedBuffers) {
+            buffer.dispose();
+        }
+        borrowedBuffers.clear();
+        totalBytes = 0L;
+    }
+
+    /**
+     * Borrows a buffer of the specified format and size.
+     * The buffer must be returned with {@link #free(VfxFrameBuffer)} once it's no longer needed.
+     */
+    public VfxFrameBuffer obtain(Pixmap.Format format, int width, int height) {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("Invalid buffer size: " + width + "x" + height);
+
+        VfxFrameBuffer buffer = null;
+        // Look up the most recently used buffers first.
+        for (int i = freeBuffers.size - 1; i >= 0; i--) {
+            VfxFrameBuffer candidate = freeBuffers.get(i);
+            if (candidate.getPixelFormat() == format &&
+                    candidate.getFbo().getWidth() == width &&
+                    candidate.getFbo().getHeight() == height) {
+                buffer = freeBuffers.removeIndex(i);
+                break;
+            }
+        }
+
+        if (buffer == null) {
+            buffer = new VfxFrameBuffer(format);
+            buffer.initialize(width, height);
+            totalBytes += computeSize(buffer);
+        }
+
+        Texture texture = buffer.getFbo().getColorBufferTexture();
+        texture.setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+        texture.setWrap(Texture.TextureWrap.ClampToEdge, Texture.TextureWrap.ClampToEdge);
+
+        borrowedBuffers.add(buffer);
+        return buffer;
+    }
+
+    /** Returns the borrowed buffer to the pool. */
+    public void free(VfxFrameBuffer buffer) {
+        if (buffer.isDrawing()) {
+            throw new IllegalStateException("The buffer is still drawing. Call VfxFrameBuffer#end() before returning it to the pool.");
+        }
+        if (!borrowedBuffers.remove(buffer)) {
+            throw new IllegalArgumentException("The buffer doesn't belong to the pool or is already freed.");
+        }
+        freeBuffers.add(buffer);
+        evict(budget);
+    }
+
+    /** Releases all the idle buffers. */
+    public void trim() {
+        evict(0L);
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    /** @param budget the max total size of the pooled buffers in bytes. */
+    public void setBudget(long budget) {
+        if (budget < 0L) throw new IllegalArgumentException("Budget cannot be negative: " + budget);
+        this.budget = budget;
+        evict(budget);
+    }
+
+    /** @return the estimated size of all the pooled (both idle and borrowed) buffers in bytes. */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public int getFreeCount() {
+        return freeBuffers.size;
+    }
+
+    public int getBorrowedCount() {
+        return borrowedBuffers.size;
+    }
+
+    private void evict(long limit) {
+        while (totalBytes > limit && freeBuffers.size > 0) {
+            VfxFrameBuffer buffer = freeBuffers.removeIndex(0);
+            totalBytes -= computeSize(buffer);
+            buffer.dispose();
+        }
+    }
+
+    private static long computeSize(VfxFrameBuffer buffer) {
+        return (long) buffer.getFbo().getWidth() * buffer.getFbo().getHeight() * getBytesPerPixel(buffer.getPixelFormat());
+    }
+
+    /** @return an estimated texel size. Drivers usually pad the three component formats to four bytes. */
+    private static int getBytesPerPixel(Pixmap.Format format) {
+        switch (format) {
+            case Alpha:
+            case Intensity:
+                return 1;
+            case LuminanceAlpha:
+            case RGB565:
+            case RGBA4444:
+                return 2;
+            case RGB888:
+            case RGBA8888:
+            default:
+                return 4;
+        }
+    }
+}
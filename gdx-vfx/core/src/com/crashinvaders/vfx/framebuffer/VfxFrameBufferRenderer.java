@@ -19,6 +19,7 @@ package com.crashinvaders.vfx.framebuffer;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.glutils.ShaderProgram;
 import com.badlogic.gdx.utils.Disposable;
+import com.crashinvaders.vfx.profiling.VfxRenderCounters;
 import com.crashinvaders.vfx.utils.ScreenQuadMesh;
 
 /**
@@ -30,10 +31,21 @@ import com.crashinvaders.vfx.utils.ScreenQuadMesh;
 public class VfxFrameBufferRenderer implements Disposable {
 
     private final ScreenQuadMesh mesh;
+    private final boolean ownsMesh;
     private final ShaderProgram shader;
 
     public VfxFrameBufferRenderer() {
-        mesh = new ScreenQuadMesh();
+        this(new ScreenQuadMesh(), true);
+    }
+
+    /** @param mesh the shared mesh to draw with. It won't be disposed along with the renderer. */
+    public VfxFrameBufferRenderer(ScreenQuadMesh mesh) {
+        this(mesh, false);
+    }
+
+    private VfxFrameBufferRenderer(ScreenQuadMesh mesh, boolean ownsMesh) {
+        this.mesh = mesh;
+        this.ownsMesh = ownsMesh;
 
         shader = new ShaderProgram(
                 "#ifdef GL_ES\n" +
@@ -68,7 +80,9 @@ public class VfxFrameBufferRenderer implements Disposable {
     @Override
     public void dispose() {
         shader.dispose();
-        mesh.dispose();
+        if (ownsMesh) {
+            mesh.dispose();
+        }
     }
 
     public void rebind() {
@@ -84,6 +98,7 @@ public class VfxFrameBufferRenderer implements Disposable {
     public void renderToScreen(VfxFrameBuffer input, int x, int y, int width, int height) {
         input.getFbo().getColorBufferTexture().bind(0);
         Gdx.graphics.getGL20().glViewport(x, y, width, height);
+        VfxRenderCounters.onScreenViewport(width, height);
 
         shader.begin();
         mesh.render(shader);
@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx.framebuffer;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.crashinvaders.vfx.profiling.VfxRenderCounters;
+import com.crashinvaders.vfx.utils.ScreenQuadMesh;
+
+/**
+ * Rescales {@link VfxFrameBuffer}s' content, so the effects could be processed at a reduced resolution.
+ * <p>
+ * The downsampling averages four bilinear taps over the destination pixel's footprint.
+ * The upsampling is either a plain bilinear one, or an edge-aware one ({@link UpsampleMode#JOINT_BILATERAL}),
+ * which uses the full resolution input as a guide image to prevent the low resolution result from bleeding over the edges.
+ */
+public class VfxFrameBufferResampler implements Disposable {
+
+    public enum UpsampleMode {
+        /** Plain bilinear interpolation. The best fit for the low frequency effects (e.g. blurs). */
+        BILINEAR,
+        /** Bilinear interpolation weighted by the luminance similarity of the full and low resolution input pixels. */
+        JOINT_BILATERAL,
+    }
+
+    private static final String VERTEX_SHADER =
+            "#ifdef GL_ES\n" +
+            "    #define PRECISION mediump\n" +
+            "    precision PRECISION float;\n" +
+            "#else\n" +
+            "    #define PRECISION\n" +
+            "#endif\n" +
+            "attribute vec4 a_position;\n" +
+            "attribute vec2 a_texCoord0;\n" +
+            "varying vec2 v_texCoords;\n" +
+            "void main() {\n" +
+            "    v_texCoords = a_texCoord0;\n" +
+            "    gl_Position = a_position;\n" +
+            "}";
+
+    private static final String FRAGMENT_HEADER =
+            "#ifdef GL_ES\n" +
+            "    #define PRECISION mediump\n" +
+            "    precision PRECISION float;\n" +
+            "#else\n" +
+            "    #define PRECISION\n" +
+            "#endif\n" +
+            "varying vec2 v_texCoords;\n";
+
+    private static final String DOWNSAMPLE_SHADER = FRAGMENT_HEADER +
+            "uniform sampler2D u_texture0;\n" +
+            "uniform vec2 u_offset;\n" +
+            "void main() {\n" +
+            "    gl_FragColor = 0.25 * (\n" +
+            "            texture2D(u_texture0, v_texCoords + vec2(-u_offset.x, -u_offset.y)) +\n" +
+            "            texture2D(u_texture0, v_texCoords + vec2( u_offset.x, -u_offset.y)) +\n" +
+            "            texture2D(u_texture0, v_texCoords + vec2(-u_offset.x,  u_offset.y)) +\n" +
+            "            texture2D(u_texture0, v_texCoords + vec2( u_offset.x,  u_offset.y)));\n" +
+            "}";
+
+    private static final String BILINEAR_UPSAMPLE_SHADER = FRAGMENT_HEADER +
+            "uniform sampler2D u_texture0;\n" +
+            "void main() {\n" +
+            "    gl_FragColor = texture2D(u_texture0, v_texCoords);\n" +
+            "}";
+
+    private static final String JOINT_BILATERAL_UPSAMPLE_SHADER = FRAGMENT_HEADER +
+            "uniform sampler2D u_texture0; // Low resolution result.\n" +
+            "uniform sampler2D u_texture1; // Low resolution guide.\n" +
+            "uniform sampler2D u_texture2; // Full resolution guide.\n" +
+            "uniform vec2 u_lowResSize;\n" +
+            "const vec3 LUMA = vec3(0.299, 0.587, 0.114);\n" +
+            "const float EPSILON = 0.05;\n" +
+            "void main() {\n" +
+            "    vec2 pos = v_texCoords * u_lowResSize - 0.5;\n" +
+            "    vec2 f = fract(pos);\n" +
+            "    vec2 texel = 1.0 / u_lowResSize;\n" +
+            "    vec2 uv00 = (floor(pos) + 0.5) * texel;\n" +
+            "    vec2 uv10 = uv00 + vec2(texel.x, 0.0);\n" +
+            "    vec2 uv01 = uv00 + vec2(0.0, texel.y);\n" +
+            "    vec2 uv11 = uv00 + texel;\n" +
+            "    float lum = dot(texture2D(u_texture2, v_texCoords).rgb, LUMA);\n" +
+            "    vec4 w = vec4((1.0 - f.x) * (1.0 - f.y), f.x * (1.0 - f.y), (1.0 - f.x) * f.y, f.x * f.y);\n" +
+            "    w /= EPSILON + abs(vec4(\n" +
+            "            dot(texture2D(u_texture1, uv00).rgb, LUMA),\n" +
+            "            dot(texture2D(u_texture1, uv10).rgb, LUMA),\n" +
+            "            dot(texture2D(u_texture1, uv01).rgb, LUMA),\n" +
+            "            dot(texture2D(u_texture1, uv11).rgb, LUMA)) - lum);\n" +
+            "    gl_FragColor = (\n" +
+            "            w.x * texture2D(u_texture0, uv00) +\n" +
+            "            w.y * texture2D(u_texture0, uv10) +\n" +
+            "            w.z * texture2D(u_texture0, uv01) +\n" +
+            "            w.w * texture2D(u_texture0, uv11)) / dot(w, vec4(1.0));\n" +
+            "}";
+
+    private final ShaderProgram downsampleShader;
+    private final ShaderProgram bilinearShader;
+    private final ShaderProgram jointBilateralShader;
+
+    private int downsampleOffsetLoc, lowResSizeLoc;
+
+    public VfxFrameBufferResampler() {
+        downsampleShader = compile(DOWNSAMPLE_SHADER);
+        bilinearShader = compile(BILINEAR_UPSAMPLE_SHADER);
+        jointBilateralShader = compile(JOINT_BILATERAL_UPSAMPLE_SHADER);
+        rebind();
+    }
+
+    @Override
+    public void dispose() {
+        downsampleShader.dispose();
+        bilinearShader.dispose();
+        jointBilateralShader.dispose();
+    }
+
+    public void rebind() {
+        downsampleShader.begin();
+        downsampleShader.setUniformi("u_texture0", 0);
+        downsampleOffsetLoc = downsampleShader.fetchUniformLocation("u_offset", true);
+        downsampleShader.end();
+
+        bilinearShader.begin();
+        bilinearShader.setUniformi("u_texture0", 0);
+        bilinearShader.end();
+
+        jointBilateralShader.begin();
+        jointBilateralShader.setUniformi("u_texture0", 0);
+        jointBilateralShader.setUniformi("u_texture1", 1);
+        jointBilateralShader.setUniformi("u_texture2", 2);
+        lowResSizeLoc = jointBilateralShader.fetchUniformLocation("u_lowResSize", true);
+        jointBilateralShader.end();
+    }
+
+    /** Renders the source buffer's content into the (usually smaller) destination buffer. */
+    public void downsample(ScreenQuadMesh mesh, VfxFrameBuffer src, VfxFrameBuffer dst) {
+        Texture srcTexture = src.getFbo().getColorBufferTexture();
+        TextureFilter minFilter = srcTexture.getMinFilter();
+        TextureFilter magFilter = srcTexture.getMagFilter();
+        srcTexture.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+
+        srcTexture.bind(0);
+        dst.begin();
+        downsampleShader.begin();
+        downsampleShader.setUniformf(downsampleOffsetLoc,
+                0.25f / dst.getFbo().getWidth(),
+                0.25f / dst.getFbo().getHeight());
+        VfxRenderCounters.onUniformUpload();
+        mesh.render(downsampleShader);
+        downsampleShader.end();
+        dst.end();
+
+        srcTexture.setFilter(minFilter, magFilter);
+    }
+
+    /**
+     * Renders the low resolution buffer's content into the destination buffer.
+     * @param lowResGuide the low resolution input of the effect (only used by {@link UpsampleMode#JOINT_BILATERAL}).
+     * @param fullResGuide the full resolution input of the effect (only used by {@link UpsampleMode#JOINT_BILATERAL}).
+     * @param dst the destination buffer or null to render into the currently bound target.
+     */
+    public void upsample(ScreenQuadMesh mesh, UpsampleMode mode,
+                         VfxFrameBuffer lowRes, VfxFrameBuffer lowResGuide, VfxFrameBuffer fullResGuide,
+                         VfxFrameBuffer dst) {
+        Texture lowResTexture = lowRes.getFbo().getColorBufferTexture();
+        TextureFilter minFilter = lowResTexture.getMinFilter();
+        TextureFilter magFilter = lowResTexture.getMagFilter();
+
+        switch (mode) {
+            case BILINEAR: {
+                lowResTexture.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+                lowResTexture.bind(0);
+                if (dst != null) { dst.begin(); }
+                bilinearShader.begin();
+                mesh.render(bilinearShader);
+                bilinearShader.end();
+                if (dst != null) { dst.end(); }
+                break;
+            }
+            case JOINT_BILATERAL: {
+                // The taps are placed exactly at the texel centers, the filtering mode doesn't matter.
+                fullResGuide.getFbo().getColorBufferTexture().bind(2);
+                lowResGuide.getFbo().getColorBufferTexture().bind(1);
+                lowResTexture.bind(0);
+                if (dst != null) { dst.begin(); }
+                jointBilateralShader.begin();
+                jointBilateralShader.setUniformf(lowResSizeLoc, lowRes.getFbo().getWidth(), lowRes.getFbo().getHeight());
+                VfxRenderCounters.onUniformUpload();
+                mesh.render(jointBilateralShader);
+                jointBilateralShader.end();
+                if (dst != null) { dst.end(); }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unexpected upsample mode: " + mode);
+        }
+
+        lowResTexture.setFilter(minFilter, magFilter);
+    }
+
+    private static ShaderProgram compile(String fragmentShader) {
+        ShaderProgram program = new ShaderProgram(VERTEX_SHADER, fragmentShader);
+        if (!program.isCompiled()) {
+            throw new GdxRuntimeException("Resampler shader compile error:\n" + program.getLog());
+        }
+        return program;
+    }
+}
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx.fusion;
+
+import com.crashinvaders.vfx.VfxEffect;
+import com.crashinvaders.vfx.VfxManager;
+
+/**
+ * An optional interface for {@link VfxEffect}s whose whole processing could be expressed as a single GLSL snippet.
+ * <p>
+ * When effect fusion is enabled ({@link VfxManager#setEffectFusionEnabled(boolean)}),
+ * a run of adjacent fusable effects is merged into one generated shader program
+ * and is rendered in a single full-screen pass instead of a pass per effect.
+ * <p>
+ * Every identifier from {@link #getFusionDeclarations()} (uniforms, constants and functions) should start with {@link #NS} token.
+ * The token will be replaced with a unique per-effect namespace, so the same effect type may appear in a fused program multiple times.
+ */
+public interface FusableVfxEffect {
+
+    /** Namespace token. */
+    String NS = "$";
+
+    /**
+     * @return false if the effect in its current configuration cannot be fused (e.g. it depends on an extra texture).
+     * Such effect will be rendered the regular way.
+     */
+    boolean isFusable();
+
+    /**
+     * @return true if the snippet reads the input texture by itself (through {@code u_texture0} sampler)
+     * rather than only processing the incoming {@code color} value.
+     * An effect like that may only lead a fused group.
+     */
+    boolean isSamplingInput();
+
+    /**
+     * @return the ID of the effect's GLSL code.
+     * It must reflect all the compile time parameters, so two effects with the same key produce the same code.
+     * Prefer returning a constant string here, the value is requested every frame.
+     */
+    String getFusionKey();
+
+    /** @return GLSL declarations: uniforms, constants and functions. */
+    String getFusionDeclarations();
+
+    /**
+     * @return GLSL statements that modify {@code vec4 color} value of the pixel at {@code vec2 uv} texture coordinates.
+     * The statements are placed within their own block scope.
+     */
+    String getFusionBody();
+
+    /** Uploads the effect's current parameter values to the fused program. */
+    void applyFusionUniforms(FusedVfxProgram.Uniforms uniforms);
+}
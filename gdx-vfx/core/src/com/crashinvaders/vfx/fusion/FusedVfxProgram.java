@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx.fusion;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBuffer;
+import com.crashinvaders.vfx.profiling.VfxRenderCounters;
+import com.crashinvaders.vfx.utils.ScreenQuadMesh;
+
+/**
+ * A shader program generated out of a sequence of {@link FusableVfxEffect}s.
+ * Renders the whole sequence in a single pass.
+ */
+public class FusedVfxProgram implements Disposable {
+    private static final String TAG = FusedVfxProgram.class.getSimpleName();
+
+    private static final String VERTEX_SHADER =
+            "#ifdef GL_ES\n" +
+            "    #define PRECISION mediump\n" +
+            "    precision PRECISION float;\n" +
+            "#else\n" +
+            "    #define PRECISION\n" +
+            "#endif\n" +
+            "attribute vec4 a_position;\n" +
+            "attribute vec2 a_texCoord0;\n" +
+            "varying vec2 v_texCoords;\n" +
+            "void main() {\n" +
+            "    v_texCoords = a_texCoord0;\n" +
+            "    gl_Position = a_position;\n" +
+            "}";
+
+    private static final String FRAGMENT_HEADER =
+            "#ifdef GL_ES\n" +
+            "    #ifdef GL_FRAGMENT_PRECISION_HIGH\n" +
+            "        #define PRECISION highp\n" +
+            "    #else\n" +
+            "        #define PRECISION mediump\n" +
+            "    #endif\n" +
+            "    precision PRECISION float;\n" +
+            "#else\n" +
+            "    #define PRECISION\n" +
+            "#endif\n" +
+            "varying vec2 v_texCoords;\n" +
+            "uniform sampler2D u_texture0;\n";
+
+    private final ShaderProgram program;
+    private final String[] keys;
+    private final Uniforms[] uniforms;
+    private int textureLocation = Uniforms.UNRESOLVED;
+
+    public FusedVfxProgram(Array<FusableVfxEffect> effects) {
+        if (effects.size == 0) {
+            throw new IllegalArgumentException("Effect sequence cannot be empty.");
+        }
+        for (int i = 1; i < effects.size; i++) {
+            if (effects.get(i).isSamplingInput()) {
+                throw new IllegalArgumentException("Only the first effect of the sequence may sample the input texture.");
+            }
+        }
+
+        keys = new String[effects.size];
+        uniforms = new Uniforms[effects.size];
+
+        StringBuilder declarations = new StringBuilder(FRAGMENT_HEADER);
+        StringBuilder body = new StringBuilder();
+        body.append("void main() {\n");
+        body.append("    vec2 uv = v_texCoords;\n");
+        body.append(effects.first().isSamplingInput() ?
+                "    vec4 color = vec4(0.0);\n" :
+                "    vec4 color = texture2D(u_texture0, uv);\n");
+
+        for (int i = 0; i < effects.size; i++) {
+            FusableVfxEffect effect = effects.get(i);
+            String namespace = "fx" + i + "_";
+            keys[i] = effect.getFusionKey();
+
+            declarations.append("// ").append(keys[i]).append('\n');
+            declarations.append(effect.getFusionDeclarations().replace(FusableVfxEffect.NS, namespace)).append('\n');
+
+            body.append("    {\n");
+            body.append(effect.getFusionBody().replace(FusableVfxEffect.NS, namespace)).append('\n');
+            body.append("    }\n");
+        }
+        body.append("    gl_FragColor = color;\n");
+        body.append("}");
+
+        Gdx.app.log(TAG, "Compiling fused program for " + describe(keys) + "...");
+
+        program = new ShaderProgram(VERTEX_SHADER, declarations.append(body).toString());
+        if (!program.isCompiled()) {
+            throw new GdxRuntimeException("Fused shader compile error: " + describe(keys) + "\n" + program.getLog());
+        }
+
+        for (int i = 0; i < effects.size; i++) {
+            uniforms[i] = new Uniforms(program, "fx" + i + "_");
+        }
+    }
+
+    @Override
+    public void dispose() {
+        program.dispose();
+    }
+
+    /** Should be called when the OpenGL context was lost and the program was recompiled. */
+    public void rebind() {
+        textureLocation = Uniforms.UNRESOLVED;
+        for (int i = 0; i < uniforms.length; i++) {
+            uniforms[i].reset();
+        }
+    }
+
+    /** @return true if the program was generated for the exact same effect sequence. */
+    public boolean matches(Array<FusableVfxEffect> effects) {
+        if (effects.size != keys.length) return false;
+        for (int i = 0; i < keys.length; i++) {
+            if (!keys[i].equals(effects.get(i).getFusionKey())) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Renders the effect sequence from the source buffer into the destination buffer in one pass.
+     * @param dst the destination buffer or null to render into the currently bound target.
+     */
+    public void render(ScreenQuadMesh mesh, Array<FusableVfxEffect> effects, VfxFrameBuffer src, VfxFrameBuffer dst) {
+        boolean manualBufferBind = dst != null && !dst.isDrawing();
+        if (manualBufferBind) { dst.begin(); }
+
+        src.getFbo().getColorBufferTexture().bind(0);
+
+        program.begin();
+        if (textureLocation == Uniforms.UNRESOLVED) {
+            textureLocation = program.fetchUniformLocation("u_texture0", false);
+        }
+        program.setUniformi(textureLocation, 0);
+        VfxRenderCounters.onUniformUpload();
+        for (int i = 0; i < effects.size; i++) {
+            effects.get(i).applyFusionUniforms(uniforms[i]);
+        }
+        mesh.render(program);
+        program.end();
+
+        if (manualBufferBind) { dst.end(); }
+    }
+
+    public ShaderProgram getProgram() {
+        return program;
+    }
+
+    /**
+     * Computes a hash value of the effect sequence's fusion keys.
+     * Allocation free, so it's safe to use per frame.
+     */
+    public static long hash(Array<FusableVfxEffect> effects) {
+        long hash = effects.size;
+        for (int i = 0; i < effects.size; i++) {
+            hash = hash * 31L + effects.get(i).getFusionKey().hashCode();
+        }
+        return hash;
+    }
+
+    private static String describe(String[] keys) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) sb.append(" + ");
+            sb.append(keys[i]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Namespaced uniform setters for a single effect within a fused program.
+     * Missing (e.g. optimized out by the GLSL compiler) uniforms are silently ignored.
+     */
+    public static class Uniforms {
+        private static final int UNRESOLVED = Integer.MIN_VALUE;
+
+        private final ShaderProgram program;
+        private final String namespace;
+        private final ObjectIntMap<String> locations = new ObjectIntMap<>();
+
+        Uniforms(ShaderProgram program, String namespace) {
+            this.program = program;
+            this.namespace = namespace;
+        }
+
+        void reset() {
+            locations.clear();
+        }
+
+        private int location(String name) {
+            // Every setter goes through here.
+            VfxRenderCounters.onUniformUpload();
+            int location = locations.get(name, UNRESOLVED);
+            if (location == UNRESOLVED) {
+                location = program.fetchUniformLocation(namespace + name, false);
+                locations.put(name, location);
+            }
+            return location;
+        }
+
+        /** @param name uniform name without the {@link FusableVfxEffect#NS} token. */
+        public void set(String name, int value) {
+            program.setUniformi(location(name), value);
+        }
+
+        /** @param name uniform name without the {@link FusableVfxEffect#NS} token. */
+        public void set(String name, float value) {
+            program.setUniformf(location(name), value);
+        }
+
+        /** @param name uniform name without the {@link FusableVfxEffect#NS} token. */
+        public void set(String name, float x, float y) {
+            program.setUniformf(location(name), x, y);
+        }
+
+        /** @param name uniform name without the {@link FusableVfxEffect#NS} token. */
+        public void set(String name, float x, float y, float z) {
+            program.setUniformf(location(name), x, y, z);
+        }
+
+        /** @param name uniform name without the {@link FusableVfxEffect#NS} token. */
+        public void set(String name, Vector2 value) {
+            program.setUniformf(location(name), value);
+        }
+
+        /** @param name uniform name without the {@link FusableVfxEffect#NS} token. */
+        public void set(String name, Vector3 value) {
+            program.setUniformf(location(name), value);
+        }
+    }
+}
@@ -0,0 +1,502 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx.gl;
+
+import com.badlogic.gdx.graphics.GL30;
+
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * {@link GL30} version of {@link CachingGL20}.
+ * None of the GL30 specific calls affect the tracked state, so they are simply delegated.
+ */
+// GL30 deprecates glVertexAttribPointer(..., Buffer) that is inherited from CachingGL20.
+@SuppressWarnings("deprecation")
+public class CachingGL30 extends CachingGL20 implements GL30 {
+
+    protected final GL30 gl30;
+
+    public CachingGL30(GL30 gl30) {
+        super(gl30);
+        this.gl30 = gl30;
+    }
+
+    //region GL30 delegated calls
+    @Override
+    public void glReadBuffer(int mode) {
+        gl30.glReadBuffer(mode);
+    }
+
+    @Override
+    public void glDrawRangeElements(int mode, int start, int end, int count, int type, Buffer indices) {
+        gl30.glDrawRangeElements(mode, start, end, count, type, indices);
+    }
+
+    @Override
+    public void glDrawRangeElements(int mode, int start, int end, int count, int type, int offset) {
+        gl30.glDrawRangeElements(mode, start, end, count, type, offset);
+    }
+
+    @Override
+    public void glTexImage3D(int target, int level, int internalformat, int width, int height, int depth, int border, int format, int type, Buffer pixels) {
+        gl30.glTexImage3D(target, level, internalformat, width, height, depth, border, format, type, pixels);
+    }
+
+    @Override
+    public void glTexImage3D(int target, int level, int internalformat, int width, int height, int depth, int border, int format, int type, int offset) {
+        gl30.glTexImage3D(target, level, internalformat, width, height, depth, border, format, type, offset);
+    }
+
+    @Override
+    public void glTexSubImage3D(int target, int level, int xoffset, int yoffset, int zoffset, int width, int height, int depth, int format, int type, Buffer pixels) {
+        gl30.glTexSubImage3D(target, level, xoffset, yoffset, zoffset, width, height, depth, format, type, pixels);
+    }
+
+    @Override
+    public void glTexSubImage3D(int target, int level, int xoffset, int yoffset, int zoffset, int width, int height, int depth, int format, int type, int offset) {
+        gl30.glTexSubImage3D(target, level, xoffset, yoffset, zoffset, width, height, depth, format, type, offset);
+    }
+
+    @Override
+    public void glCopyTexSubImage3D(int target, int level, int xoffset, int yoffset, int zoffset, int x, int y, int width, int height) {
+        gl30.glCopyTexSubImage3D(target, level, xoffset, yoffset, zoffset, x, y, width, height);
+    }
+
+    @Override
+    public void glGenQueries(int n, int[] ids, int offset) {
+        gl30.glGenQueries(n, ids, offset);
+    }
+
+    @Override
+    public void glGenQueries(int n, IntBuffer ids) {
+        gl30.glGenQueries(n, ids);
+    }
+
+    @Override
+    public void glDeleteQueries(int n, int[] ids, int offset) {
+        gl30.glDeleteQueries(n, ids, offset);
+    }
+
+    @Override
+    public void glDeleteQueries(int n, IntBuffer ids) {
+        gl30.glDeleteQueries(n, ids);
+    }
+
+    @Override
+    public boolean glIsQuery(int id) {
+        return gl30.glIsQuery(id);
+    }
+
+    @Override
+    public void glBeginQuery(int target, int id) {
+        gl30.glBeginQuery(target, id);
+    }
+
+    @Override
+    public void glEndQuery(int target) {
+        gl30.glEndQuery(target);
+    }
+
+    @Override
+    public void glGetQueryiv(int target, int pname, IntBuffer params) {
+        gl30.glGetQueryiv(target, pname, params);
+    }
+
+    @Override
+    public void glGetQueryObjectuiv(int id, int pname, IntBuffer params) {
+        gl30.glGetQueryObjectuiv(id, pname, params);
+    }
+
+    @Override
+    public boolean glUnmapBuffer(int target) {
+        return gl30.glUnmapBuffer(target);
+    }
+
+    @Override
+    public Buffer glGetBufferPointerv(int target, int pname) {
+        return gl30.glGetBufferPointerv(target, pname);
+    }
+
+    @Override
+    public void glDrawBuffers(int n, IntBuffer bufs) {
+        gl30.glDrawBuffers(n, bufs);
+    }
+
+    @Override
+    public void glUniformMatrix2x3fv(int location, int count, boolean transpose, FloatBuffer value) {
+        gl30.glUniformMatrix2x3fv(location, count, transpose, value);
+    }
+
+    @Override
+    public void glUniformMatrix3x2fv(int location, int count, boolean transpose, FloatBuffer value) {
+        gl30.glUniformMatrix3x2fv(location, count, transpose, value);
+    }
+
+    @Override
+    public void glUniformMatrix2x4fv(int location, int count, boolean transpose, FloatBuffer value) {
+        gl30.glUniformMatrix2x4fv(location, count, transpose, value);
+    }
+
+    @Override
+    public void glUniformMatrix4x2fv(int location, int count, boolean transpose, FloatBuffer value) {
+        gl30.glUniformMatrix4x2fv(location, count, transpose, value);
+    }
+
+    @Override
+    public void glUniformMatrix3x4fv(int location, int count, boolean transpose, FloatBuffer value) {
+        gl30.glUniformMatrix3x4fv(location, count, transpose, value);
+    }
+
+    @Override
+    public void glUniformMatrix4x3fv(int location, int count, boolean transpose, FloatBuffer value) {
+        gl30.glUniformMatrix4x3fv(location, count, transpose, value);
+    }
+
+    @Override
+    public void glBlitFramebuffer(int srcX0, int srcY0, int srcX1, int srcY1, int dstX0, int dstY0, int dstX1, int dstY1, int mask, int filter) {
+        gl30.glBlitFramebuffer(srcX0, srcY0, srcX1, srcY1, dstX0, dstY0, dstX1, dstY1, mask, filter);
+    }
+
+    @Override
+    public void glRenderbufferStorageMultisample(int target, int samples, int internalformat, int width, int height) {
+        gl30.glRenderbufferStorageMultisample(target, samples, internalformat, width, height);
+    }
+
+    @Override
+    public void glFramebufferTextureLayer(int target, int attachment, int texture, int level, int layer) {
+        gl30.glFramebufferTextureLayer(target, attachment, texture, level, layer);
+    }
+
+    @Override
+    public void glFlushMappedBufferRange(int target, int offset, int length) {
+        gl30.glFlushMappedBufferRange(target, offset, length);
+    }
+
+    @Override
+    public void glBindVertexArray(int array) {
+        gl30.glBindVertexArray(array);
+    }
+
+    @Override
+    public void glDeleteVertexArrays(int n, int[] arrays, int offset) {
+        gl30.glDeleteVertexArrays(n, arrays, offset);
+    }
+
+    @Override
+    public void glDeleteVertexArrays(int n, IntBuffer arrays) {
+        gl30.glDeleteVertexArrays(n, arrays);
+    }
+
+    @Override
+    public void glGenVertexArrays(int n, int[] arrays, int offset) {
+        gl30.glGenVertexArrays(n, arrays, offset);
+    }
+
+    @Override
+    public void glGenVertexArrays(int n, IntBuffer arrays) {
+        gl30.glGenVertexArrays(n, arrays);
+    }
+
+    @Override
+    public boolean glIsVertexArray(int array) {
+        return gl30.glIsVertexArray(array);
+    }
+
+    @Override
+    public void glBeginTransformFeedback(int primitiveMode) {
+        gl30.glBeginTransformFeedback(primitiveMode);
+    }
+
+    @Override
+    public void glEndTransformFeedback() {
+        gl30.glEndTransformFeedback();
+    }
+
+    @Override
+    public void glBindBufferRange(int target, int index, int buffer, int offset, int size) {
+        gl30.glBindBufferRange(target, index, buffer, offset, size);
+    }
+
+    @Override
+    public void glBindBufferBase(int target, int index, int buffer) {
+        gl30.glBindBufferBase(target, index, buffer);
+    }
+
+    @Override
+    public void glTransformFeedbackVaryings(int program, String[] varyings, int bufferMode) {
+        gl30.glTransformFeedbackVaryings(program, varyings, bufferMode);
+    }
+
+    @Override
+    public void glVertexAttribIPointer(int index, int size, int type, int stride, int offset) {
+        gl30.glVertexAttribIPointer(index, size, type, stride, offset);
+    }
+
+    @Override
+    public void glGetVertexAttribIiv(int index, int pname, IntBuffer params) {
+        gl30.glGetVertexAttribIiv(index, pname, params);
+    }
+
+    @Override
+    public void glGetVertexAttribIuiv(int index, int pname, IntBuffer params) {
+        gl30.glGetVertexAttribIuiv(index, pname, params);
+    }
+
+    @Override
+    public void glVertexAttribI4i(int index, int x, int y, int z, int w) {
+        gl30.glVertexAttribI4i(index, x, y, z, w);
+    }
+
+    @Override
+    public void glVertexAttribI4ui(int index, int x, int y, int z, int w) {
+        gl30.glVertexAttribI4ui(index, x, y, z, w);
+    }
+
+    @Override
+    public void glGetUniformuiv(int program, int location, IntBuffer params) {
+        gl30.glGetUniformuiv(program, location, params);
+    }
+
+    @Override
+    public int glGetFragDataLocation(int program, String name) {
+        return gl30.glGetFragDataLocation(program, name);
+    }
+
+    @Override
+    public void glUniform1uiv(int location, int count, IntBuffer value) {
+        gl30.glUniform1uiv(location, count, value);
+    }
+
+    @Override
+    public void glUniform3uiv(int location, int count, IntBuffer value) {
+        gl30.glUniform3uiv(location, count, value);
+    }
+
+    @Override
+    public void glUniform4uiv(int location, int count, IntBuffer value) {
+        gl30.glUniform4uiv(location, count, value);
+    }
+
+    @Override
+    public void glClearBufferiv(int buffer, int drawbuffer, IntBuffer value) {
+        gl30.glClearBufferiv(buffer, drawbuffer, value);
+    }
+
+    @Override
+    public void glClearBufferuiv(int buffer, int drawbuffer, IntBuffer value) {
+        gl30.glClearBufferuiv(buffer, drawbuffer, value);
+    }
+
+    @Override
+    public void glClearBufferfv(int buffer, int drawbuffer, FloatBuffer value) {
+        gl30.glClearBufferfv(buffer, drawbuffer, value);
+    }
+
+    @Override
+    public void glClearBufferfi(int buffer, int drawbuffer, float depth, int stencil) {
+        gl30.glClearBufferfi(buffer, drawbuffer, depth, stencil);
+    }
+
+    @Override
+    public String glGetStringi(int name, int index) {
+        return gl30.glGetStringi(name, index);
+    }
+
+    @Override
+    public void glCopyBufferSubData(int readTarget, int writeTarget, int readOffset, int writeOffset, int size) {
+        gl30.glCopyBufferSubData(readTarget, writeTarget, readOffset, writeOffset, size);
+    }
+
+    @Override
+    public void glGetUniformIndices(int program, String[] uniformNames, IntBuffer uniformIndices) {
+        gl30.glGetUniformIndices(program, uniformNames, uniformIndices);
+    }
+
+    @Override
+    public void glGetActiveUniformsiv(int program, int uniformCount, IntBuffer uniformIndices, int pname, IntBuffer params) {
+        gl30.glGetActiveUniformsiv(program, uniformCount, uniformIndices, pname, params);
+    }
+
+    @Override
+    public int glGetUniformBlockIndex(int program, String uniformBlockName) {
+        return gl30.glGetUniformBlockIndex(program, uniformBlockName);
+    }
+
+    @Override
+    public void glGetActiveUniformBlockiv(int program, int uniformBlockIndex, int pname, IntBuffer params) {
+        gl30.glGetActiveUniformBlockiv(program, uniformBlockIndex, pname, params);
+    }
+
+    @Override
+    public void glGetActiveUniformBlockName(int program, int uniformBlockIndex, Buffer length, Buffer uniformBlockName) {
+        gl30.glGetActiveUniformBlockName(program, uniformBlockIndex, length, uniformBlockName);
+    }
+
+    @Override
+    public String glGetActiveUniformBlockName(int program, int uniformBlockIndex) {
+        return gl30.glGetActiveUniformBlockName(program, uniformBlockIndex);
+    }
+
+    @Override
+    public void glUniformBlockBinding(int program, int uniformBlockIndex, int uniformBlockBinding) {
+        gl30.glUniformBlockBinding(program, uniformBlockIndex, uniformBlockBinding);
+    }
+
+    @Override
+    public void glDrawArraysInstanced(int mode, int first, int count, int instanceCount) {
+        gl30.glDrawArraysInstanced(mode, first, count, instanceCount);
+    }
+
+    @Override
+    public void glDrawElementsInstanced(int mode, int count, int type, int indicesOffset, int instanceCount) {
+        gl30.glDrawElementsInstanced(mode, count, type, indicesOffset, instanceCount);
+    }
+
+    @Override
+    public void glGetInteger64v(int pname, LongBuffer params) {
+        gl30.glGetInteger64v(pname, params);
+    }
+
+    @Override
+    public void glGetBufferParameteri64v(int target, int pname, LongBuffer params) {
+        gl30.glGetBufferParameteri64v(target, pname, params);
+    }
+
+    @Override
+    public void glGenSamplers(int count, int[] samplers, int offset) {
+        gl30.glGenSamplers(count, samplers, offset);
+    }
+
+    @Override
+    public void glGenSamplers(int count, IntBuffer samplers) {
+        gl30.glGenSamplers(count, samplers);
+    }
+
+    @Override
+    public void glDeleteSamplers(int count, int[] samplers, int offset) {
+        gl30.glDeleteSamplers(count, samplers, offset);
+    }
+
+    @Override
+    public void glDeleteSamplers(int count, IntBuffer samplers) {
+        gl30.glDeleteSamplers(count, samplers);
+    }
+
+    @Override
+    public boolean glIsSampler(int sampler) {
+        return gl30.glIsSampler(sampler);
+    }
+
+    @Override
+    public void glBindSampler(int unit, int sampler) {
+        gl30.glBindSampler(unit, sampler);
+    }
+
+    @Override
+    public void glSamplerParameteri(int sampler, int pname, int param) {
+        gl30.glSamplerParameteri(sampler, pname, param);
+    }
+
+    @Override
+    public void glSamplerParameteriv(int sampler, int pname, IntBuffer param) {
+        gl30.glSamplerParameteriv(sampler, pname, param);
+    }
+
+    @Override
+    public void glSamplerParameterf(int sampler, int pname, float param) {
+        gl30.glSamplerParameterf(sampler, pname, param);
+    }
+
+    @Override
+    public void glSamplerParameterfv(int sampler, int pname, FloatBuffer param) {
+        gl30.glSamplerParameterfv(sampler, pname, param);
+    }
+
+    @Override
+    public void glGetSamplerParameteriv(int sampler, int pname, IntBuffer params) {
+        gl30.glGetSamplerParameteriv(sampler, pname, params);
+    }
+
+    @Override
+    public void glGetSamplerParameterfv(int sampler, int pname, FloatBuffer params) {
+        gl30.glGetSamplerParameterfv(sampler, pname, params);
+    }
+
+    @Override
+    public void glVertexAttribDivisor(int index, int divisor) {
+        gl30.glVertexAttribDivisor(index, divisor);
+    }
+
+    @Override
+    public void glBindTransformFeedback(int target, int id) {
+        gl30.glBindTransformFeedback(target, id);
+    }
+
+    @Override
+    public void glDeleteTransformFeedbacks(int n, int[] ids, int offset) {
+        gl30.glDeleteTransformFeedbacks(n, ids, offset);
+    }
+
+    @Override
+    public void glDeleteTransformFeedbacks(int n, IntBuffer ids) {
+        gl30.glDeleteTransformFeedbacks(n, ids);
+    }
+
+    @Override
+    public void glGenTransformFeedbacks(int n, int[] ids, int offset) {
+        gl30.glGenTransformFeedbacks(n, ids, offset);
+    }
+
+    @Override
+    public void glGenTransformFeedbacks(int n, IntBuffer ids) {
+        gl30.glGenTransformFeedbacks(n, ids);
+    }
+
+    @Override
+    public boolean glIsTransformFeedback(int id) {
+        return gl30.glIsTransformFeedback(id);
+    }
+
+    @Override
+    public void glPauseTransformFeedback() {
+        gl30.glPauseTransformFeedback();
+    }
+
+    @Override
+    public void glResumeTransformFeedback() {
+        gl30.glResumeTransformFeedback();
+    }
+
+    @Override
+    public void glProgramParameteri(int program, int pname, int value) {
+        gl30.glProgramParameteri(program, pname, value);
+    }
+
+    @Override
+    public void glInvalidateFramebuffer(int target, int numAttachments, IntBuffer attachments) {
+        gl30.glInvalidateFramebuffer(target, numAttachments, attachments);
+    }
+
+    @Override
+    public void glInvalidateSubFramebuffer(int target, int numAttachments, IntBuffer attachments, int x, int y, int width, int height) {
+        gl30.glInvalidateSubFramebuffer(target, numAttachments, attachments, x, y, width, height);
+    }
+    //endregion
+}
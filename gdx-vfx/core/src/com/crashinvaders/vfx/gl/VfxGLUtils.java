@@ -19,7 +19,9 @@ package com.crashinvaders.vfx.gl;
 import com.badlogic.gdx.Application;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.GL30;
 import com.badlogic.gdx.graphics.glutils.ShaderProgram;
 import com.badlogic.gdx.utils.BufferUtils;
 import com.badlogic.gdx.utils.GdxRuntimeException;
@@ -28,12 +30,14 @@ import com.badlogic.gdx.utils.reflect.ReflectionException;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 
 public class VfxGLUtils {
     private static final String TAG = VfxGLUtils.class.getSimpleName();
     private static final IntBuffer tmpIntBuf = ByteBuffer.allocateDirect(16 * Integer.SIZE / 8).order(ByteOrder.nativeOrder()).asIntBuffer();
     private static final ByteBuffer tmpByteBuffer = BufferUtils.newByteBuffer(32);
+    private static final FloatBuffer tmpFloatBuf = BufferUtils.newFloatBuffer(16);
     private static final VfxGlViewport tmpViewport = new VfxGlViewport();
 
     //TODO Remove this after https://github.com/libgdx/libgdx/issues/4688 gets resolved
@@ -67,10 +71,22 @@ public class VfxGLUtils {
         return tmpViewport.set(intBuf.get(0), intBuf.get(1), intBuf.get(2), intBuf.get(3));
     }
 
+    /** Reads the current {@link GL20#GL_COLOR_CLEAR_VALUE} into the provided color. */
+    public static Color getClearColor(Color out) {
+        FloatBuffer floatBuf = tmpFloatBuf;
+        Gdx.gl.glGetFloatv(GL20.GL_COLOR_CLEAR_VALUE, floatBuf);
+        return out.set(floatBuf.get(0), floatBuf.get(1), floatBuf.get(2), floatBuf.get(3));
+    }
+
     public static ShaderProgram compileShader(FileHandle vertexFile, FileHandle fragmentFile) {
         return compileShader(vertexFile, fragmentFile, "");
     }
 
+    /**
+     * Obtains a compiled program from the {@link VfxShaderCache}.
+     * The programs are shared between the consumers, so the result must be returned with {@link #releaseShader(ShaderProgram)}
+     * rather than disposed directly.
+     */
     public static ShaderProgram compileShader(FileHandle vertexFile, FileHandle fragmentFile, String defines) {
         if (fragmentFile == null) {
             throw new IllegalArgumentException("Vertex shader file cannot be null.");
@@ -81,25 +97,68 @@ public class VfxGLUtils {
         if (defines == null) {
             throw new IllegalArgumentException("Defines cannot be null.");
         }
+        return VfxShaderCache.obtain(vertexFile, fragmentFile, defines);
+    }
 
-        StringBuilder sb = new StringBuilder();
-        sb.append("Compiling \"").append(vertexFile.name()).append('/').append(fragmentFile.name()).append('\"');
-        if (defines.length() > 0) {
-            sb.append(" w/ (").append(defines.replace("\n", ", ")).append(")");
-        }
-        sb.append("...");
-        Gdx.app.log(TAG, sb.toString());
+    /** Releases the program obtained with {@link #compileShader(FileHandle, FileHandle, String)}. */
+    public static void releaseShader(ShaderProgram program) {
+        VfxShaderCache.release(program);
+    }
+
+    //region GL state cache
+
+    private static CachingGL20 glStateCache = null;
+
+    public static boolean isGlStateCacheEnabled() {
+        return glStateCache != null;
+    }
 
-        String vpSrc = vertexFile.readString();
-        String fpSrc = fragmentFile.readString();
+    /**
+     * Installs (or uninstalls) {@link CachingGL20} wrapper over the application's {@link GL20}/{@link GL30} instance,
+     * the same way {@link com.badlogic.gdx.graphics.profiling.GLProfiler} does.
+     * The wrapper drops redundant program, texture and capability state changes.
+     * <p>
+     * If you use {@link com.badlogic.gdx.graphics.profiling.GLProfiler} as well,
+     * enable and disable the two in the reverse order.
+     */
+    public static void setGlStateCacheEnabled(boolean enabled) {
+        if (isGlStateCacheEnabled() == enabled) return;
+
+        if (enabled) {
+            GL30 gl30 = Gdx.graphics.getGL30();
+            if (gl30 != null) {
+                CachingGL30 cachingGl30 = new CachingGL30(gl30);
+                Gdx.graphics.setGL30(cachingGl30);
+                glStateCache = cachingGl30;
+            } else {
+                glStateCache = new CachingGL20(Gdx.graphics.getGL20());
+                Gdx.graphics.setGL20(glStateCache);
+            }
+            Gdx.app.log(TAG, "GL state cache enabled.");
+        } else {
+            glStateCache.flush();
+            if (glStateCache instanceof CachingGL30) {
+                Gdx.graphics.setGL30(((CachingGL30) glStateCache).gl30);
+            } else {
+                Gdx.graphics.setGL20(glStateCache.gl20);
+            }
+            glStateCache = null;
+            Gdx.app.log(TAG, "GL state cache disabled.");
+        }
+    }
 
-        ShaderProgram shader = new ShaderProgram(defines + "\n" + vpSrc, defines + "\n" + fpSrc);
+    /** @return the installed GL state cache or null if it's not enabled. */
+    public static CachingGL20 getGlStateCache() {
+        return glStateCache;
+    }
 
-        if (!shader.isCompiled()) {
-            throw new GdxRuntimeException("Shader compile error: " + vertexFile.name() + "/" + fragmentFile.name() + "\n" + shader.getLog());
+    /** Resets the state of the installed GL cache, if any. Should be called on OpenGL context loss. */
+    public static void invalidateGlStateCache() {
+        if (glStateCache != null) {
+            glStateCache.invalidate();
         }
-        return shader;
     }
+    //endregion
 
     //region GL state queries
 
@@ -111,8 +170,14 @@ public class VfxGLUtils {
      * Note: state queries are costly and stall the pipeline, especially on mobile devices!
      * <br/>
      * Queries switched off by default. Update {@link #enableGLQueryStates} flag to enable them.
+     * <br/>
+     * When the GL state cache is enabled ({@link #setGlStateCacheEnabled(boolean)}),
+     * the tracked capabilities are resolved from the cache regardless of the flag.
      */
     public static boolean isGLEnabled(int pName) {
+        if (glStateCache != null && pName == GL20.GL_BLEND) {
+            return glStateCache.glIsEnabled(pName);
+        }
         if (!enableGLQueryStates) return false;
 
         boolean result;
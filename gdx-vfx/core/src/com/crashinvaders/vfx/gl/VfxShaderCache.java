@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx.gl;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Process-wide reference counted cache of the compiled shader programs.
+ * <p>
+ * The programs are keyed by the vertex source, fragment source and defines, so all the consumers of the same shader
+ * (e.g. horizontal and vertical passes of a convolution filter or multiple instances of the same effect) share a single program.
+ * The shader source text is cached as well, so the files are read only once.
+ * <p>
+ * The programs that are no longer referenced are not disposed right away,
+ * but kept in a small LRU list ({@link #setMaxUnusedPrograms(int)}), so toggling effects on and off doesn't cause recompilation.
+ * <p>
+ * Since a program may be shared, its uniform values are not owned by any single consumer.
+ * Use {@link #claimOwnership(ShaderProgram, Object)} to find out when the uniforms have to be reuploaded.
+ * <p>
+ * The programs belong to the GL context of the {@link Application} that created them.
+ * Once {@link Gdx#app} changes (e.g. an Android activity gets recreated), all the cached programs are dropped
+ * without being disposed, as their handles are no longer valid.
+ * <p>
+ * There is no persistent (program binary) cache.
+ * libGDX doesn't expose {@code glGetProgramBinary}/{@code glProgramBinary} and {@link ShaderProgram}
+ * can only be created from the source code, so a restored binary could never be wrapped into a program.
+ * Most of the desktop and mobile drivers keep their own on-disk cache keyed by the shader source,
+ * that's why the generated sources are kept byte-to-byte stable between the launches.
+ * Use {@link #getCompileCount()} and {@link #getCompileTimeMillis()} to measure the startup compilation cost.
+ */
+public class VfxShaderCache {
+    private static final String TAG = VfxShaderCache.class.getSimpleName();
+
+    private static final ObjectMap<String, Entry> entriesByKey = new ObjectMap<>();
+    private static final ObjectMap<ShaderProgram, Entry> entriesByProgram = new ObjectMap<>();
+    /** Programs with no references, the least recently used go first. */
+    private static final Array<Entry> unusedEntries = new Array<>();
+    private static final ObjectMap<String, String> sources = new ObjectMap<>();
+    /** Programs of the previous application, they are silently forgotten on release. */
+    private static final ObjectSet<ShaderProgram> stalePrograms = new ObjectSet<>();
+    /** The application the cached programs belong to. */
+    private static Application application = null;
+
+    private static int maxUnusedPrograms = 16;
+    private static int compileCount = 0;
+    private static long compileTimeNanos = 0L;
+
+    private VfxShaderCache() { }
+
+    /**
+     * Returns a shared program for the specified shader files, compiling it if there is no such program yet.
+     * Every obtained program must be returned with {@link #release(ShaderProgram)} instead of being disposed.
+     */
+    public static ShaderProgram obtain(FileHandle vertexFile, FileHandle fragmentFile, String defines) {
+        validateApplication();
+
+        String vpSrc = defines + "\n" + getSource(vertexFile);
+        String fpSrc = defines + "\n" + getSource(fragmentFile);
+        String key = vpSrc + '\0' + fpSrc;
+
+        Entry entry = entriesByKey.get(key);
+        if (entry == null) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Compiling \"").append(vertexFile.name()).append('/').append(fragmentFile.name()).append('\"');
+            if (defines.length() > 0) {
+                sb.append(" w/ (").append(defines.replace("\n", ", ")).append(")");
+            }
+            sb.append("...");
+            Gdx.app.log(TAG, sb.toString());
+
+            long startTime = TimeUtils.nanoTime();
+            ShaderProgram program = new ShaderProgram(vpSrc, fpSrc);
+            compileTimeNanos += TimeUtils.timeSinceNanos(startTime);
+            compileCount++;
+            if (!program.isCompiled()) {
+                String log = program.getLog();
+                program.dispose();
+                throw new GdxRuntimeException("Shader compile error: " + vertexFile.name() + "/" + fragmentFile.name() + "\n" + log);
+            }
+
+            entry = new Entry(key, program);
+            entriesByKey.put(key, entry);
+            entriesByProgram.put(program, entry);
+        } else if (entry.refCount == 0) {
+            unusedEntries.removeValue(entry, true);
+        }
+        entry.refCount++;
+        return entry.program;
+    }
+
+    /**
+     * Releases the program obtained with {@link #obtain(FileHandle, FileHandle, String)}.
+     * Programs that don't belong to the cache are simply disposed.
+     */
+    public static void release(ShaderProgram program) {
+        validateApplication();
+        if (stalePrograms.remove(program)) {
+            // Belongs to the dead context, its handle may already be taken by another object.
+            return;
+        }
+        Entry entry = entriesByProgram.get(program);
+        if (entry == null) {
+            program.dispose();
+            return;
+        }
+        if (entry.refCount <= 0) {
+            throw new IllegalStateException("The program is already released.");
+        }
+        entry.refCount--;
+        if (entry.refCount == 0) {
+            entry.owner = null;
+            unusedEntries.add(entry);
+            evict(maxUnusedPrograms);
+        }
+    }
+
+    /**
+     * Marks the object as the current user of the program's uniform state.
+     * @return true if the program was used by a different object since the last claim,
+     * meaning the uniform values the object uploaded earlier might have been overridden.
+     * Always false for the programs that don't belong to the cache.
+     */
+    public static boolean claimOwnership(ShaderProgram program, Object owner) {
+        Entry entry = entriesByProgram.get(program);
+        if (entry == null || entry.owner == owner) return false;
+
+        entry.owner = owner;
+        return true;
+    }
+
+    /** @return the shader file content. The text is read once and then served from the cache. */
+    public static String getSource(FileHandle file) {
+        String key = file.type().name() + ':' + file.path();
+        String source = sources.get(key);
+        if (source == null) {
+            source = file.readString();
+            sources.put(key, source);
+        }
+        return source;
+    }
+
+    public static int getMaxUnusedPrograms() {
+        return maxUnusedPrograms;
+    }
+
+    /** @param maxUnusedPrograms how many unreferenced programs are kept compiled for a later reuse. */
+    public static void setMaxUnusedPrograms(int maxUnusedPrograms) {
+        if (maxUnusedPrograms < 0) throw new IllegalArgumentException("Value cannot be negative: " + maxUnusedPrograms);
+        VfxShaderCache.maxUnusedPrograms = maxUnusedPrograms;
+        evict(maxUnusedPrograms);
+    }
+
+    /** Disposes all the unreferenced programs and drops the cached source text. */
+    public static void trim() {
+        evict(0);
+        sources.clear();
+    }
+
+    /** @return the number of the cached programs, both referenced and not. */
+    public static int getProgramCount() {
+        return entriesByKey.size;
+    }
+
+    public static int getUnusedProgramCount() {
+        return unusedEntries.size;
+    }
+
+    /** @return the number of programs compiled so far (cache misses). */
+    public static int getCompileCount() {
+        return compileCount;
+    }
+
+    /** @return the total time spent on compiling and linking the programs so far. */
+    public static long getCompileTimeMillis() {
+        return compileTimeNanos / 1000000L;
+    }
+
+    /** Drops all the programs created for a different application (and thus a different GL context). */
+    private static void validateApplication() {
+        if (application == Gdx.app) return;
+
+        if (application != null) {
+            Gdx.app.log(TAG, "The application has changed, dropping " + entriesByKey.size + " cached programs.");
+            for (Entry entry : entriesByKey.values()) {
+                if (entry.refCount > 0) {
+                    stalePrograms.add(entry.program);
+                }
+            }
+            entriesByKey.clear();
+            entriesByProgram.clear();
+            unusedEntries.clear();
+        }
+        application = Gdx.app;
+    }
+
+    private static void evict(int limit) {
+        validateApplication();
+        while (unusedEntries.size > limit) {
+            Entry entry = unusedEntries.removeIndex(0);
+            entriesByKey.remove(entry.key);
+            entriesByProgram.remove(entry.program);
+            entry.program.dispose();
+        }
+    }
+
+    private static class Entry {
+        final String key;
+        final ShaderProgram program;
+        int refCount = 0;
+        Object owner = null;
+
+        Entry(String key, ShaderProgram program) {
+            this.key = key;
+            this.program = program;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx.graph;
+
+import com.crashinvaders.vfx.VfxEffect;
+
+/**
+ * An optional interface for {@link VfxEffect}s that are able to express their rendering as a set of {@link VfxRenderGraph} passes.
+ * <p>
+ * The intermediate buffers should be declared as graph resources rather than being owned by the effect,
+ * this way they can share the memory with the other effects' buffers.
+ */
+public interface VfxGraphEffect {
+
+    /**
+     * Declares the effect's passes and intermediate resources.
+     * The passes must read the input resource and the final pass must write the output resource.
+     * <p>
+     * The method is called every time the graph gets rebuilt, the effect should only keep the latest declared resources.
+     */
+    void declarePasses(VfxRenderGraph graph, VfxRenderGraph.Resource input, VfxRenderGraph.Resource output);
+
+    /**
+     * @return a number that changes every time the effect would declare a different set of passes or resources
+     * (e.g. when it switches the rendering mode). The graph owner rebuilds the graph once the value differs
+     * from the one it was built with.
+     */
+    int getGraphStructureVersion();
+}
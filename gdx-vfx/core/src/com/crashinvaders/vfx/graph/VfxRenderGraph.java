@@ -0,0 +1,703 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx.graph;
+
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+import com.crashinvaders.vfx.VfxEffect;
+import com.crashinvaders.vfx.framebuffer.PingPongBuffer;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBuffer;
+import com.crashinvaders.vfx.profiling.VfxGpuProfiler;
+import com.crashinvaders.vfx.utils.ScreenQuadMesh;
+
+/**
+ * A frame graph of render passes.
+ * <p>
+ * Instead of a straight chain over a single {@link PingPongBuffer}, the passes declare the resources they read and write.
+ * Upon {@link #compile()} the graph:
+ * <ul>
+ *     <li>culls the passes whose results are never consumed
+ *     (a pass is alive if it writes to an imported resource, is marked with {@link Pass#setSideEffects(boolean)}
+ *     or produces a resource an alive pass reads);</li>
+ *     <li>orders the alive passes by their dependencies (declaration order is kept where possible);</li>
+ *     <li>assigns physical frame buffers to the transient resources,
+ *     so the resources whose lifetimes don't overlap share the same buffer.</li>
+ * </ul>
+ * The physical buffers are owned by the graph and are kept between the compilations, so a graph could be rebuilt
+ * (e.g. after the effect set has changed) without reallocating the buffers of the same size.
+ * <p>
+ * Any structural change invalidates the compiled state; {@link #execute(ScreenQuadMesh)} recompiles the graph if needed.
+ * <p>
+ * Every resource may be written only once (by a single pass).
+ */
+public class VfxRenderGraph implements Disposable {
+
+    private final Format defaultFormat;
+
+    private final Array<Pass> passes = new Array<>();
+    private final Array<Resource> resources = new Array<>();
+    private final Array<Pass> passOrder = new Array<>();
+    private final Array<Slot> slots = new Array<>();
+
+    private int width, height;
+    private boolean compiled = false;
+    private boolean executing = false;
+
+    private VfxGpuProfiler gpuProfiler = null;
+
+    public VfxRenderGraph(Format defaultFormat, int width, int height) {
+        this.defaultFormat = defaultFormat;
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public void dispose() {
+        clear();
+        for (int i = 0; i < slots.size; i++) {
+            slots.get(i).dispose();
+        }
+        slots.clear();
+    }
+
+    /** Sets the reference size, the transient resources are sized relatively to. */
+    public void resize(int width, int height) {
+        if (this.width == width && this.height == height) return;
+
+        this.width = width;
+        this.height = height;
+        invalidate();
+    }
+
+    /** Restores the OpenGL parameters of the owned buffers. Could be useful in case of OpenGL context loss. */
+    public void rebind() {
+        for (int i = 0; i < slots.size; i++) {
+            Slot slot = slots.get(i);
+            if (slot.pingPongBuffer != null) {
+                slot.pingPongBuffer.rebind();
+            }
+        }
+    }
+
+    public VfxGpuProfiler getGpuProfiler() {
+        return gpuProfiler;
+    }
+
+    /** @param gpuProfiler the profiler to time every executed pass with, or null to disable the timing. */
+    public void setGpuProfiler(VfxGpuProfiler gpuProfiler) {
+        checkNotExecuting();
+        this.gpuProfiler = gpuProfiler;
+    }
+
+    /** Removes all the passes and resources. The owned physical buffers are kept for the later compilations. */
+    public void clear() {
+        checkNotExecuting();
+        passes.clear();
+        resources.clear();
+        passOrder.clear();
+        invalidate();
+    }
+
+    public Format getDefaultFormat() {
+        return defaultFormat;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    //region Declaration
+    /**
+     * Registers an external buffer as a graph resource.
+     * The buffer's content is considered to exist before the graph execution and, if the resource is written by a pass,
+     * to be consumed after the execution.
+     * @param aliasable if true, the buffer's content outside of the resource's lifetime is not needed
+     *                  and the buffer may back the transient resources of the same format and size.
+     */
+    public Resource importBuffer(String name, VfxFrameBuffer buffer, boolean aliasable) {
+        checkNotExecuting();
+        if (buffer == null) throw new IllegalArgumentException("Buffer cannot be null.");
+
+        Resource resource = new Resource(this, name, ResourceType.BUFFER, buffer.getPixelFormat(), 1f);
+        resource.importedBuffer = buffer;
+        resource.aliasable = aliasable;
+        resources.add(resource);
+        invalidate();
+        return resource;
+    }
+
+    /** Declares a transient full-size buffer of the default format. */
+    public Resource createBuffer(String name) {
+        return createBuffer(name, defaultFormat, 1f);
+    }
+
+    /** Declares a transient buffer of the default format, sized relatively to the graph's size. */
+    public Resource createBuffer(String name, float scale) {
+        return createBuffer(name, defaultFormat, scale);
+    }
+
+    /** Declares a transient buffer, sized relatively to the graph's size. */
+    public Resource createBuffer(String name, Format format, float scale) {
+        return createResource(name, ResourceType.BUFFER, format, scale);
+    }
+
+    /**
+     * Declares a transient {@link PingPongBuffer}.
+     * The pass that writes the resource is free to swap the buffers as many times as it needs,
+     * the readers will get the latest destination buffer.
+     */
+    public Resource createPingPong(String name) {
+        return createPingPong(name, defaultFormat, 1f);
+    }
+
+    /** @see #createPingPong(String) */
+    public Resource createPingPong(String name, Format format, float scale) {
+        return createResource(name, ResourceType.PING_PONG, format, scale);
+    }
+
+    public Pass addPass(String name, PassExecutor executor) {
+        checkNotExecuting();
+        if (executor == null) throw new IllegalArgumentException("Executor cannot be null.");
+
+        Pass pass = new Pass(this, name, executor, passes.size);
+        passes.add(pass);
+        invalidate();
+        return pass;
+    }
+
+    /**
+     * Adds the effect's passes to the graph.
+     * A {@link VfxGraphEffect} declares its own passes, any other effect is represented as a single pass.
+     */
+    public void addEffect(VfxEffect effect, Resource input, Resource output) {
+        if (input.type != ResourceType.BUFFER || output.type != ResourceType.BUFFER) {
+            throw new IllegalArgumentException("Effect input and output must be plain buffer resources.");
+        }
+        if (effect instanceof VfxGraphEffect) {
+            ((VfxGraphEffect) effect).declarePasses(this, input, output);
+        } else {
+            addPass(effect.getClass().getSimpleName(), new EffectPassExecutor(effect, input, output))
+                    .read(input)
+                    .write(output);
+        }
+    }
+
+    private Resource createResource(String name, ResourceType type, Format format, float scale) {
+        checkNotExecuting();
+        if (scale <= 0f) throw new IllegalArgumentException("Scale must be positive: " + scale);
+
+        Resource resource = new Resource(this, name, type, format, scale);
+        resources.add(resource);
+        invalidate();
+        return resource;
+    }
+    //endregion
+
+    //region Compilation
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    /**
+     * Culls, orders the passes and assigns the physical buffers to the resources.
+     * @throws IllegalStateException if the graph is malformed (cyclic dependencies, or a transient resource is read but never written).
+     */
+    public void compile() {
+        checkNotExecuting();
+
+        // Cull.
+        for (int i = 0; i < passes.size; i++) {
+            Pass pass = passes.get(i);
+            pass.alive = false;
+            pass.orderIndex = -1;
+        }
+        for (int i = 0; i < passes.size; i++) {
+            Pass pass = passes.get(i);
+            if (pass.sideEffects || pass.writesImported()) {
+                markAlive(pass);
+            }
+        }
+
+        // Order (Kahn's algorithm, the earliest declared ready pass goes first).
+        passOrder.clear();
+        int aliveCount = 0;
+        for (int i = 0; i < passes.size; i++) {
+            if (passes.get(i).alive) aliveCount++;
+        }
+        while (passOrder.size < aliveCount) {
+            Pass next = null;
+            for (int i = 0; i < passes.size; i++) {
+                Pass pass = passes.get(i);
+                if (pass.alive && pass.orderIndex < 0 && pass.isReady()) {
+                    next = pass;
+                    break;
+                }
+            }
+            if (next == null) {
+                throw new IllegalStateException("Render graph has cyclic pass dependencies.");
+            }
+            next.orderIndex = passOrder.size;
+            passOrder.add(next);
+        }
+
+        // Compute resource lifetimes.
+        for (int i = 0; i < resources.size; i++) {
+            Resource resource = resources.get(i);
+            resource.slot = null;
+            resource.resolveSize(width, height);
+            if (resource.isImported()) {
+                // Imported content exists prior to the execution and is consumed after (when written).
+                resource.firstUse = resource.writer != null && resource.writer.alive ? resource.writer.orderIndex : -1;
+                resource.lastUse = resource.writer != null && resource.writer.alive ? Integer.MAX_VALUE : -1;
+            } else {
+                resource.firstUse = Integer.MAX_VALUE;
+                resource.lastUse = -1;
+            }
+        }
+        for (int i = 0; i < passOrder.size; i++) {
+            Pass pass = passOrder.get(i);
+            for (int j = 0; j < pass.reads.size; j++) {
+                pass.reads.get(j).markUsage(i);
+            }
+            for (int j = 0; j < pass.writes.size; j++) {
+                pass.writes.get(j).markUsage(i);
+            }
+        }
+
+        // Assign physical buffers.
+        for (int i = slots.size - 1; i >= 0; i--) {
+            Slot slot = slots.get(i);
+            if (slot.importedResource != null) {
+                slots.removeIndex(i);
+            } else {
+                slot.intervals.clear();
+            }
+        }
+        for (int i = 0; i < resources.size; i++) {
+            Resource resource = resources.get(i);
+            if (!resource.isImported()) continue;
+
+            Slot slot = new Slot(resource);
+            if (resource.lastUse >= resource.firstUse) {
+                slot.intervals.add(resource.firstUse, resource.lastUse);
+            }
+            // Imported slots are preferred when aliasing.
+            slots.insert(0, slot);
+            resource.slot = slot;
+        }
+        for (int order = 0; order < passOrder.size; order++) {
+            Array<Resource> writes = passOrder.get(order).writes;
+            for (int i = 0; i < writes.size; i++) {
+                Resource resource = writes.get(i);
+                if (resource.isImported()) continue;
+                resource.slot = findSlot(resource);
+                resource.slot.intervals.add(resource.firstUse, resource.lastUse);
+            }
+        }
+
+        // Release the owned buffers that are no longer needed.
+        for (int i = slots.size - 1; i >= 0; i--) {
+            Slot slot = slots.get(i);
+            if (slot.importedResource == null && slot.intervals.size == 0) {
+                slot.dispose();
+                slots.removeIndex(i);
+            }
+        }
+
+        compiled = true;
+    }
+
+    private void markAlive(Pass pass) {
+        if (pass.alive) return;
+        pass.alive = true;
+        for (int i = 0; i < pass.reads.size; i++) {
+            Resource resource = pass.reads.get(i);
+            if (resource.writer != null) {
+                markAlive(resource.writer);
+            } else if (!resource.isImported()) {
+                throw new IllegalStateException("Resource \"" + resource.name + "\" is read by pass \"" + pass.name + "\", but is never written.");
+            }
+        }
+    }
+
+    private Slot findSlot(Resource resource) {
+        for (int i = 0; i < slots.size; i++) {
+            Slot slot = slots.get(i);
+            if (slot.importedResource != null && !slot.importedResource.aliasable) continue;
+            if (!slot.matches(resource)) continue;
+            if (slot.overlaps(resource.firstUse, resource.lastUse)) continue;
+            return slot;
+        }
+        Slot slot = new Slot(resource.type, resource.format, resource.width, resource.height);
+        slots.add(slot);
+        return slot;
+    }
+
+    private void invalidate() {
+        compiled = false;
+    }
+
+    private void checkNotExecuting() {
+        if (executing) throw new IllegalStateException("Render graph cannot be modified during the execution.");
+    }
+    //endregion
+
+    //region Execution
+    /** Executes the alive passes in the dependency order. Compiles the graph first, if required. */
+    public void execute(ScreenQuadMesh mesh) {
+        if (!compiled) {
+            compile();
+        }
+        executing = true;
+        try {
+            for (int i = 0; i < passOrder.size; i++) {
+                Pass pass = passOrder.get(i);
+                if (gpuProfiler != null) {
+                    gpuProfiler.begin(pass, pass.name);
+                    pass.executor.execute(this, mesh);
+                    gpuProfiler.end();
+                } else {
+                    pass.executor.execute(this, mesh);
+                }
+            }
+        } finally {
+            executing = false;
+        }
+    }
+
+    /** @return the physical buffer of the resource. Valid only for the compiled graph. */
+    public VfxFrameBuffer getBuffer(Resource resource) {
+        if (resource.type != ResourceType.BUFFER) {
+            throw new IllegalArgumentException("Resource \"" + resource.name + "\" is not a plain buffer.");
+        }
+        return resolveSlot(resource).getBuffer();
+    }
+
+    /** @return the physical ping-pong buffer of the resource. Valid only for the compiled graph. */
+    public PingPongBuffer getPingPong(Resource resource) {
+        if (resource.type != ResourceType.PING_PONG) {
+            throw new IllegalArgumentException("Resource \"" + resource.name + "\" is not a ping-pong buffer.");
+        }
+        return resolveSlot(resource).pingPongBuffer;
+    }
+
+    /** @return the resource's texture (the latest destination texture for a ping-pong resource). */
+    public Texture getTexture(Resource resource) {
+        if (resource.type == ResourceType.PING_PONG) {
+            return getPingPong(resource).getDstTexture();
+        }
+        return getBuffer(resource).getFbo().getColorBufferTexture();
+    }
+
+    private Slot resolveSlot(Resource resource) {
+        if (resource.graph != this) throw new IllegalArgumentException("Resource \"" + resource.name + "\" belongs to another graph.");
+        if (!compiled) throw new IllegalStateException("Render graph is not compiled.");
+        if (resource.slot == null) throw new IllegalStateException("Resource \"" + resource.name + "\" is culled.");
+        return resource.slot;
+    }
+    //endregion
+
+    //region Statistics
+    /** @return the number of declared passes. */
+    public int getPassCount() {
+        return passes.size;
+    }
+
+    /** @return the number of passes that will be executed. Valid only for the compiled graph. */
+    public int getAlivePassCount() {
+        return passOrder.size;
+    }
+
+    /** @return the number of frame buffers owned by the graph (a ping-pong buffer counts as two). */
+    public int getOwnedBufferCount() {
+        int count = 0;
+        for (int i = 0; i < slots.size; i++) {
+            Slot slot = slots.get(i);
+            if (slot.importedResource != null) continue;
+            count += slot.type == ResourceType.PING_PONG ? 2 : 1;
+        }
+        return count;
+    }
+    //endregion
+
+    public enum ResourceType {
+        BUFFER,
+        PING_PONG,
+    }
+
+    public interface PassExecutor {
+        /** Performs the pass rendering. Use {@link VfxRenderGraph#getBuffer(Resource)} and the like to get the physical buffers. */
+        void execute(VfxRenderGraph graph, ScreenQuadMesh mesh);
+    }
+
+    public static class Resource {
+        private final VfxRenderGraph graph;
+        private final String name;
+        private final ResourceType type;
+        private final Format format;
+        private final float scale;
+
+        private VfxFrameBuffer importedBuffer;
+        private boolean aliasable;
+
+        private Pass writer;
+        private int width, height;
+        private int firstUse, lastUse;
+        private Slot slot;
+
+        Resource(VfxRenderGraph graph, String name, ResourceType type, Format format, float scale) {
+            this.graph = graph;
+            this.name = name;
+            this.type = type;
+            this.format = format;
+            this.scale = scale;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ResourceType getType() {
+            return type;
+        }
+
+        public Format getFormat() {
+            return format;
+        }
+
+        public boolean isImported() {
+            return importedBuffer != null;
+        }
+
+        /**
+         * Replaces the buffer of the imported resource.
+         * The graph will be recompiled only if the new buffer has a different format or size.
+         */
+        public void setImportedBuffer(VfxFrameBuffer buffer) {
+            if (!isImported()) throw new IllegalStateException("Resource \"" + name + "\" is not imported.");
+            if (buffer == null) throw new IllegalArgumentException("Buffer cannot be null.");
+            graph.checkNotExecuting();
+
+            VfxFrameBuffer prevBuffer = this.importedBuffer;
+            this.importedBuffer = buffer;
+            if (prevBuffer.getPixelFormat() != buffer.getPixelFormat() ||
+                    prevBuffer.getFbo().getWidth() != buffer.getFbo().getWidth() ||
+                    prevBuffer.getFbo().getHeight() != buffer.getFbo().getHeight()) {
+                graph.invalidate();
+            }
+        }
+
+        void resolveSize(int graphWidth, int graphHeight) {
+            if (isImported()) {
+                width = importedBuffer.getFbo().getWidth();
+                height = importedBuffer.getFbo().getHeight();
+            } else {
+                width = Math.max(1, Math.round(graphWidth * scale));
+                height = Math.max(1, Math.round(graphHeight * scale));
+            }
+        }
+
+        void markUsage(int orderIndex) {
+            if (firstUse > orderIndex) firstUse = orderIndex;
+            if (lastUse < orderIndex) lastUse = orderIndex;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    public static class Pass {
+        private final VfxRenderGraph graph;
+        private final String name;
+        private final PassExecutor executor;
+        private final int declarationIndex;
+        private final Array<Resource> reads = new Array<>(4);
+        private final Array<Resource> writes = new Array<>(2);
+
+        private boolean sideEffects = false;
+        private boolean alive;
+        private int orderIndex;
+
+        Pass(VfxRenderGraph graph, String name, PassExecutor executor, int declarationIndex) {
+            this.graph = graph;
+            this.name = name;
+            this.executor = executor;
+            this.declarationIndex = declarationIndex;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Pass read(Resource resource) {
+            checkResource(resource);
+            if (writes.contains(resource, true)) {
+                throw new IllegalArgumentException("Pass \"" + name + "\" cannot read and write the same resource \"" + resource.name + "\".");
+            }
+            if (!reads.contains(resource, true)) {
+                reads.add(resource);
+            }
+            graph.invalidate();
+            return this;
+        }
+
+        public Pass write(Resource resource) {
+            checkResource(resource);
+            if (reads.contains(resource, true)) {
+                throw new IllegalArgumentException("Pass \"" + name + "\" cannot read and write the same resource \"" + resource.name + "\".");
+            }
+            if (resource.writer != null && resource.writer != this) {
+                throw new IllegalStateException("Resource \"" + resource.name + "\" is already written by pass \"" + resource.writer.name + "\".");
+            }
+            if (resource.writer == null) {
+                resource.writer = this;
+                writes.add(resource);
+            }
+            graph.invalidate();
+            return this;
+        }
+
+        /** A pass with side effects (e.g. renders to the screen) will never be culled. */
+        public Pass setSideEffects(boolean sideEffects) {
+            this.sideEffects = sideEffects;
+            graph.invalidate();
+            return this;
+        }
+
+        private void checkResource(Resource resource) {
+            graph.checkNotExecuting();
+            if (resource == null) throw new IllegalArgumentException("Resource cannot be null.");
+            if (resource.graph != graph) throw new IllegalArgumentException("Resource \"" + resource.name + "\" belongs to another graph.");
+        }
+
+        boolean writesImported() {
+            for (int i = 0; i < writes.size; i++) {
+                if (writes.get(i).isImported()) return true;
+            }
+            return false;
+        }
+
+        /** @return true if all the passes this one depends on are already ordered. */
+        boolean isReady() {
+            for (int i = 0; i < reads.size; i++) {
+                Pass writer = reads.get(i).writer;
+                if (writer != null && writer.orderIndex < 0) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return name + "#" + declarationIndex;
+        }
+    }
+
+    /** A physical buffer with the list of lifetime intervals of the resources it backs. */
+    private static class Slot {
+        final ResourceType type;
+        final Format format;
+        final int width, height;
+        /** Inclusive pass order index pairs. */
+        final IntArray intervals = new IntArray();
+        final Resource importedResource;
+
+        VfxFrameBuffer buffer;
+        PingPongBuffer pingPongBuffer;
+
+        Slot(Resource importedResource) {
+            this.importedResource = importedResource;
+            this.type = importedResource.type;
+            this.format = importedResource.format;
+            this.width = importedResource.width;
+            this.height = importedResource.height;
+        }
+
+        Slot(ResourceType type, Format format, int width, int height) {
+            this.importedResource = null;
+            this.type = type;
+            this.format = format;
+            this.width = width;
+            this.height = height;
+
+            switch (type) {
+                case BUFFER:
+                    buffer = new VfxFrameBuffer(format);
+                    buffer.initialize(width, height);
+                    break;
+                case PING_PONG:
+                    pingPongBuffer = new PingPongBuffer(format, width, height);
+                    break;
+            }
+        }
+
+        VfxFrameBuffer getBuffer() {
+            // Imported buffer may be replaced between the executions.
+            return importedResource != null ? importedResource.importedBuffer : buffer;
+        }
+
+        boolean matches(Resource resource) {
+            return type == resource.type &&
+                    format == resource.format &&
+                    width == resource.width &&
+                    height == resource.height;
+        }
+
+        boolean overlaps(int first, int last) {
+            for (int i = 0; i < intervals.size; i += 2) {
+                if (first <= intervals.get(i + 1) && intervals.get(i) <= last) return true;
+            }
+            return false;
+        }
+
+        void dispose() {
+            if (buffer != null) {
+                buffer.dispose();
+                buffer = null;
+            }
+            if (pingPongBuffer != null) {
+                pingPongBuffer.dispose();
+                pingPongBuffer = null;
+            }
+        }
+    }
+
+    private static class EffectPassExecutor implements PassExecutor {
+        private final VfxEffect effect;
+        private final Resource input;
+        private final Resource output;
+
+        EffectPassExecutor(VfxEffect effect, Resource input, Resource output) {
+            this.effect = effect;
+            this.input = input;
+            this.output = output;
+        }
+
+        @Override
+        public void execute(VfxRenderGraph graph, ScreenQuadMesh mesh) {
+            effect.render(mesh, graph.getBuffer(input), graph.getBuffer(output));
+        }
+    }
+}
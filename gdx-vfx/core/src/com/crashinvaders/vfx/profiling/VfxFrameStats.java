@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx.profiling;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * The rendering work numbers of a single frame, collected from {@link VfxRenderCounters}.
+ * <p>
+ * The numbers are captured between {@link #begin()} and {@link #end()} calls
+ * and are also broken down by the sections (usually effects) marked with {@link #beginSection(Object)}/{@link #endSection()}.
+ * The instance is reused from frame to frame and is allocation free (once all the sections were met).
+ * <p>
+ * The pixel numbers are estimations: every full-screen pass is considered to write all the target buffer's pixels
+ * and to sample each of its program's textures once per pixel.
+ */
+public class VfxFrameStats {
+
+    private final Counters total = new Counters(null);
+    private final ObjectMap<Object, Counters> sectionMap = new ObjectMap<>();
+    /** Sections in the order they were met within the last frame. */
+    private final Array<Counters> sections = new Array<>();
+
+    private Counters activeSection = null;
+    private boolean collecting = false;
+
+    /** Starts the frame. Drops all the numbers of the previous frame. */
+    public void begin() {
+        if (collecting) throw new IllegalStateException("Already collecting.");
+        collecting = true;
+        for (int i = 0; i < sections.size; i++) {
+            sections.get(i).reset();
+        }
+        sections.clear();
+        total.reset();
+        total.begin();
+    }
+
+    public void end() {
+        if (!collecting) throw new IllegalStateException("Is not collecting.");
+        if (activeSection != null) throw new IllegalStateException("Section \"" + activeSection.name + "\" is not ended.");
+        collecting = false;
+        total.end();
+    }
+
+    /**
+     * Starts the section identified by the key. The sections cannot be nested.
+     * A section with the same key may appear multiple times per frame, the numbers are summed up.
+     */
+    public void beginSection(Object key) {
+        if (!collecting) throw new IllegalStateException("Is not collecting.");
+        if (activeSection != null) throw new IllegalStateException("Section \"" + activeSection.name + "\" is not ended.");
+
+        Counters section = sectionMap.get(key);
+        if (section == null) {
+            section = new Counters(key.getClass().getSimpleName());
+            sectionMap.put(key, section);
+        }
+        if (!sections.contains(section, true)) {
+            sections.add(section);
+        }
+        section.begin();
+        activeSection = section;
+    }
+
+    public void endSection() {
+        if (activeSection == null) throw new IllegalStateException("There is no active section.");
+        activeSection.end();
+        activeSection = null;
+    }
+
+    /** Forgets the section (e.g. the effect that was removed). */
+    public void removeSection(Object key) {
+        Counters section = sectionMap.remove(key);
+        if (section != null) {
+            sections.removeValue(section, true);
+        }
+    }
+
+    /** Forgets all the sections. */
+    public void clearSections() {
+        sectionMap.clear();
+        sections.clear();
+    }
+
+    /** @return the whole frame numbers. */
+    public Counters getTotal() {
+        return total;
+    }
+
+    /** @return the numbers of the section, or null if the section was not met within the last frame. */
+    public Counters getSection(Object key) {
+        Counters section = sectionMap.get(key);
+        return section != null && sections.contains(section, true) ? section : null;
+    }
+
+    /** @return the sections of the last frame, in the order they were rendered. */
+    public Array<Counters> getSections() {
+        return sections;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(total);
+        for (int i = 0; i < sections.size; i++) {
+            sb.append('\n').append("  ").append(sections.get(i));
+        }
+        return sb.toString();
+    }
+
+    public static class Counters {
+        private final String name;
+
+        private long passes;
+        private long framebufferBinds;
+        private long programSwitches;
+        private long samplerInputs;
+        private long uniformUploads;
+        private long pixelsWritten;
+        private long pixelsSampled;
+
+        Counters(String name) {
+            this.name = name;
+        }
+
+        void reset() {
+            passes = 0L;
+            framebufferBinds = 0L;
+            programSwitches = 0L;
+            samplerInputs = 0L;
+            uniformUploads = 0L;
+            pixelsWritten = 0L;
+            pixelsSampled = 0L;
+        }
+
+        /** Subtracts the current totals, so {@link #end()} adds up only the difference. */
+        void begin() {
+            passes -= VfxRenderCounters.getPasses();
+            framebufferBinds -= VfxRenderCounters.getFramebufferBinds();
+            programSwitches -= VfxRenderCounters.getProgramSwitches();
+            samplerInputs -= VfxRenderCounters.getSamplerInputs();
+            uniformUploads -= VfxRenderCounters.getUniformUploads();
+            pixelsWritten -= VfxRenderCounters.getPixelsWritten();
+            pixelsSampled -= VfxRenderCounters.getPixelsSampled();
+        }
+
+        void end() {
+            passes += VfxRenderCounters.getPasses();
+            framebufferBinds += VfxRenderCounters.getFramebufferBinds();
+            programSwitches += VfxRenderCounters.getProgramSwitches();
+            samplerInputs += VfxRenderCounters.getSamplerInputs();
+            uniformUploads += VfxRenderCounters.getUniformUploads();
+            pixelsWritten += VfxRenderCounters.getPixelsWritten();
+            pixelsSampled += VfxRenderCounters.getPixelsSampled();
+        }
+
+        /** @return the section name (the key's class name) or null for the frame total. */
+        public String getName() {
+            return name;
+        }
+
+        /** @return the number of full-screen passes. */
+        public long getPasses() {
+            return passes;
+        }
+
+        public long getFramebufferBinds() {
+            return framebufferBinds;
+        }
+
+        public long getProgramSwitches() {
+            return programSwitches;
+        }
+
+        /** @return the number of the textures sampled by the passes, see {@link VfxRenderCounters#getSamplerInputs()}. */
+        public long getSamplerInputs() {
+            return samplerInputs;
+        }
+
+        public long getUniformUploads() {
+            return uniformUploads;
+        }
+
+        public float getMegapixelsWritten() {
+            return pixelsWritten / 1000000f;
+        }
+
+        public float getMegapixelsSampled() {
+            return pixelsSampled / 1000000f;
+        }
+
+        @Override
+        public String toString() {
+            return (name != null ? name : "Total") +
+                    ": passes " + passes +
+                    ", fbo binds " + framebufferBinds +
+                    ", program switches " + programSwitches +
+                    ", sampler inputs " + samplerInputs +
+                    ", uniform uploads " + uniformUploads +
+                    ", MP written " + getMegapixelsWritten() +
+                    ", MP sampled " + getMegapixelsSampled();
+        }
+    }
+}
@@ -0,0 +1,350 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx.profiling;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL30;
+import com.badlogic.gdx.graphics.glutils.GLVersion;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectMap;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Measures the GPU time of the rendering sections with {@code GL_TIME_ELAPSED} queries
+ * (GL 3.3/{@code ARB_timer_query} or GLES 3.0 with {@code EXT_disjoint_timer_query}).
+ * <p>
+ * The query results are collected asynchronously, once they are available (usually a few frames later),
+ * so the measurements never stall the pipeline.
+ * The timed sections cannot be nested, the GL allows only one active time elapsed query.
+ * <p>
+ * The sections are identified by an arbitrary key object (e.g. the effect instance) and get a {@link TimerStats} each,
+ * with a rolling average and percentiles over the last {@link #getWindowSize()} samples.
+ * <p>
+ * The sections timed between two {@link #collect()} calls are considered a frame,
+ * their total time is available through {@link #getFrameStats()}.
+ */
+public class VfxGpuProfiler implements Disposable {
+    /** Is not a part of {@link GL30} interface. The value is the same for the EXT version. */
+    public static final int GL_TIME_ELAPSED = 0x88BF;
+    public static final int GL_GPU_DISJOINT_EXT = 0x8FBB;
+
+    private static final IntBuffer tmpIntBuf = BufferUtils.newIntBuffer(16);
+
+    /** @return true if the current GL context supports the time elapsed queries. */
+    public static boolean isSupported() {
+        return Gdx.gl30 != null && (
+                Gdx.graphics.supportsExtension("GL_ARB_timer_query") ||
+                Gdx.graphics.supportsExtension("GL_EXT_disjoint_timer_query") ||
+                (Gdx.graphics.getGLVersion().getType() == GLVersion.Type.OpenGL &&
+                        Gdx.graphics.getGLVersion().isVersionEqualToOrHigher(3, 3)));
+    }
+
+    private final int windowSize;
+    private final boolean checkDisjoint;
+
+    private final ObjectMap<Object, TimerStats> statsMap = new ObjectMap<>();
+    private final Array<TimerStats> statsList = new Array<>();
+
+    /** Query objects ready for reuse. */
+    private final IntArray freeQueries = new IntArray();
+    /** Issued queries in the issue order, along with the stats they belong to. */
+    private final IntArray pendingQueries = new IntArray();
+    private final Array<TimerStats> pendingStats = new Array<>();
+    /** The frame indices of the issued queries. */
+    private final IntArray pendingFrames = new IntArray();
+
+    private TimerStats activeStats = null;
+
+    private final TimerStats frameStats;
+    private int frameIndex = 0;
+    /** The frame whose query results are being summed up, or -1. */
+    private int accumFrame = -1;
+    private float accumTime = 0f;
+    private boolean accumValid = false;
+
+    /** @param windowSize the number of the latest samples the stats are computed over. */
+    public VfxGpuProfiler(int windowSize) {
+        if (windowSize <= 0) throw new IllegalArgumentException("Window size must be positive: " + windowSize);
+        if (Gdx.gl30 == null) throw new IllegalStateException("GPU profiling requires GL30 context.");
+        this.windowSize = windowSize;
+        this.checkDisjoint = Gdx.graphics.supportsExtension("GL_EXT_disjoint_timer_query");
+        this.frameStats = new TimerStats("Frame", windowSize);
+    }
+
+    public VfxGpuProfiler() {
+        this(120);
+    }
+
+    @Override
+    public void dispose() {
+        if (activeStats != null) {
+            end();
+        }
+        for (int i = 0; i < freeQueries.size; i++) {
+            deleteQuery(freeQueries.get(i));
+        }
+        for (int i = 0; i < pendingQueries.size; i++) {
+            deleteQuery(pendingQueries.get(i));
+        }
+        freeQueries.clear();
+        pendingQueries.clear();
+        pendingStats.clear();
+        pendingFrames.clear();
+        accumFrame = -1;
+    }
+
+    /** Should be called on OpenGL context loss. The query objects are gone along with the context. */
+    public void rebind() {
+        activeStats = null;
+        freeQueries.clear();
+        pendingQueries.clear();
+        pendingStats.clear();
+        pendingFrames.clear();
+        accumFrame = -1;
+    }
+
+    /**
+     * Starts timing the section identified by the key.
+     * The section is named after the key's class.
+     * @param key the section identity. Should be a long living object (e.g. the effect instance), it's used as a map key.
+     */
+    public void begin(Object key) {
+        begin(key, null);
+    }
+
+    /**
+     * Starts timing the section identified by the key.
+     * @param key the section identity. Should be a long living object (e.g. the effect instance), it's used as a map key.
+     * @param name the section name, only used when the key is met for the first time.
+     *             If null, the section is named after the key's class.
+     */
+    public void begin(Object key, String name) {
+        if (activeStats != null) {
+            throw new IllegalStateException("Timed section \"" + activeStats.name + "\" is still active. The sections cannot be nested.");
+        }
+        TimerStats stats = statsMap.get(key);
+        if (stats == null) {
+            stats = new TimerStats(name != null ? name : key.getClass().getSimpleName(), windowSize);
+            statsMap.put(key, stats);
+            statsList.add(stats);
+        }
+
+        int query = freeQueries.size > 0 ? freeQueries.pop() : genQuery();
+        Gdx.gl30.glBeginQuery(GL_TIME_ELAPSED, query);
+        pendingQueries.add(query);
+        pendingStats.add(stats);
+        pendingFrames.add(frameIndex);
+        activeStats = stats;
+    }
+
+    /** Ends the current section. */
+    public void end() {
+        if (activeStats == null) {
+            throw new IllegalStateException("There is no active timed section.");
+        }
+        Gdx.gl30.glEndQuery(GL_TIME_ELAPSED);
+        activeStats = null;
+    }
+
+    /**
+     * Collects the results of the completed queries and starts a new frame.
+     * Should be called once per frame, outside of a timed section.
+     */
+    public void collect() {
+        if (activeStats != null) {
+            throw new IllegalStateException("Cannot collect the results within a timed section.");
+        }
+
+        // The results of a disjoint period (e.g. GPU frequency change) are meaningless.
+        boolean disjoint = false;
+        if (checkDisjoint) {
+            Gdx.gl.glGetIntegerv(GL_GPU_DISJOINT_EXT, tmpIntBuf);
+            disjoint = tmpIntBuf.get(0) != 0;
+        }
+
+        // The queries complete in order, so stop at the first unavailable one.
+        int completed = 0;
+        while (completed < pendingQueries.size) {
+            int query = pendingQueries.get(completed);
+            Gdx.gl30.glGetQueryObjectuiv(query, GL30.GL_QUERY_RESULT_AVAILABLE, tmpIntBuf);
+            if (tmpIntBuf.get(0) == 0) break;
+
+            int frame = pendingFrames.get(completed);
+            if (frame != accumFrame) {
+                submitFrame();
+                accumFrame = frame;
+                accumTime = 0f;
+                accumValid = true;
+            }
+
+            Gdx.gl30.glGetQueryObjectuiv(query, GL30.GL_QUERY_RESULT, tmpIntBuf);
+            if (!disjoint) {
+                // The value is unsigned.
+                float millis = (tmpIntBuf.get(0) & 0xffffffffL) / 1000000f;
+                pendingStats.get(completed).addSample(millis);
+                accumTime += millis;
+            } else {
+                accumValid = false;
+            }
+            freeQueries.add(query);
+            completed++;
+        }
+        if (completed > 0) {
+            pendingQueries.removeRange(0, completed - 1);
+            pendingStats.removeRange(0, completed - 1);
+            pendingFrames.removeRange(0, completed - 1);
+        }
+        // The frame is complete once the queries of the next frame start or there are no more queries of it.
+        if (accumFrame != -1 && (pendingFrames.size > 0 ? pendingFrames.first() != accumFrame : accumFrame < frameIndex)) {
+            submitFrame();
+        }
+        frameIndex++;
+    }
+
+    /**
+     * @return the total time of all the sections timed within a frame (between two {@link #collect()} calls).
+     * Only the frames with at least one timed section produce a sample.
+     */
+    public TimerStats getFrameStats() {
+        return frameStats;
+    }
+
+    /** @return the stats for the section key, or null if the section was never timed. */
+    public TimerStats getStats(Object key) {
+        return statsMap.get(key);
+    }
+
+    /** @return the stats of all the ever timed sections, in the order they were first met. */
+    public Array<TimerStats> getAllStats() {
+        return statsList;
+    }
+
+    /** Drops all the collected samples. */
+    public void resetStats() {
+        for (int i = 0; i < statsList.size; i++) {
+            statsList.get(i).reset();
+        }
+        frameStats.reset();
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    private void submitFrame() {
+        if (accumFrame != -1 && accumValid) {
+            frameStats.addSample(accumTime);
+        }
+        accumFrame = -1;
+    }
+
+    private static int genQuery() {
+        tmpIntBuf.clear();
+        Gdx.gl30.glGenQueries(1, tmpIntBuf);
+        return tmpIntBuf.get(0);
+    }
+
+    private static void deleteQuery(int query) {
+        tmpIntBuf.clear();
+        tmpIntBuf.put(0, query);
+        Gdx.gl30.glDeleteQueries(1, tmpIntBuf);
+    }
+
+    /** Rolling GPU time statistics of a single timed section. All the values are in milliseconds. */
+    public static class TimerStats {
+        private final String name;
+        private final float[] samples;
+        private final float[] sortedSamples;
+        private int sampleCount = 0;
+        private int nextIndex = 0;
+        private long totalSamples = 0L;
+        private boolean sortedDirty = true;
+
+        TimerStats(String name, int windowSize) {
+            this.name = name;
+            this.samples = new float[windowSize];
+            this.sortedSamples = new float[windowSize];
+        }
+
+        void addSample(float millis) {
+            samples[nextIndex] = millis;
+            nextIndex = (nextIndex + 1) % samples.length;
+            sampleCount = Math.min(sampleCount + 1, samples.length);
+            totalSamples++;
+            sortedDirty = true;
+        }
+
+        void reset() {
+            sampleCount = 0;
+            nextIndex = 0;
+            totalSamples = 0L;
+            sortedDirty = true;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** @return the number of samples within the window. */
+        public int getSampleCount() {
+            return sampleCount;
+        }
+
+        /** @return the number of samples collected since the start (or the last reset). */
+        public long getTotalSampleCount() {
+            return totalSamples;
+        }
+
+        /** @return the latest sample or zero if there are none. */
+        public float getLatest() {
+            if (sampleCount == 0) return 0f;
+            return samples[(nextIndex - 1 + samples.length) % samples.length];
+        }
+
+        public float getAverage() {
+            if (sampleCount == 0) return 0f;
+            float sum = 0f;
+            for (int i = 0; i < sampleCount; i++) {
+                sum += samples[i];
+            }
+            return sum / sampleCount;
+        }
+
+        /** @param percentile in the [0..1] range (e.g. 0.95 for the 95th percentile). */
+        public float getPercentile(float percentile) {
+            if (percentile < 0f || percentile > 1f) throw new IllegalArgumentException("Percentile must be in the [0..1] range: " + percentile);
+            if (sampleCount == 0) return 0f;
+            if (sortedDirty) {
+                System.arraycopy(samples, 0, sortedSamples, 0, sampleCount);
+                Arrays.sort(sortedSamples, 0, sampleCount);
+                sortedDirty = false;
+            }
+            int index = Math.min(sampleCount - 1, (int) (percentile * sampleCount));
+            return sortedSamples[index];
+        }
+
+        @Override
+        public String toString() {
+            return name + ": avg " + getAverage() + "ms, p95 " + getPercentile(0.95f) + "ms";
+        }
+    }
+}
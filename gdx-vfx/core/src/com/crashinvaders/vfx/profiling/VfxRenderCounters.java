@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx.profiling;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBuffer;
+
+/**
+ * Process-wide running totals of the library's rendering work.
+ * The counters only grow, take the difference between two snapshots to get the numbers for a period
+ * (that's what {@link VfxFrameStats} does).
+ * <p>
+ * The counters are updated by the library internals and are allocation free.
+ */
+public class VfxRenderCounters {
+
+    private static long passes = 0L;
+    private static long framebufferBinds = 0L;
+    private static long programSwitches = 0L;
+    private static long samplerInputs = 0L;
+    private static long uniformUploads = 0L;
+    private static long pixelsWritten = 0L;
+    private static long pixelsSampled = 0L;
+
+    private static ShaderProgram lastProgram = null;
+    /** The size of the viewport the passes into the screen (no buffer bound) are rendered with. */
+    private static int screenWidth = -1;
+    private static int screenHeight = -1;
+    /** The number of the sampler uniforms per program. */
+    private static final ObjectIntMap<ShaderProgram> samplerCounts = new ObjectIntMap<>();
+
+    private VfxRenderCounters() { }
+
+    /**
+     * Registers a full-screen pass rendered with the program into the currently bound buffer.
+     * Every sampler of the program is assumed to be sampled once per written pixel.
+     * The passes into the screen write the viewport set with {@link #onScreenViewport(int, int)},
+     * or the whole back buffer if it's not set.
+     */
+    public static void onPass(ShaderProgram program) {
+        passes++;
+
+        if (program != lastProgram) {
+            programSwitches++;
+            lastProgram = program;
+        }
+
+        long pixels;
+        VfxFrameBuffer buffer = VfxFrameBuffer.getCurrentBuffer();
+        if (buffer != null) {
+            FrameBuffer fbo = buffer.getFbo();
+            pixels = (long) fbo.getWidth() * fbo.getHeight();
+        } else if (screenWidth >= 0) {
+            pixels = (long) screenWidth * screenHeight;
+        } else {
+            pixels = (long) Gdx.graphics.getBackBufferWidth() * Gdx.graphics.getBackBufferHeight();
+        }
+        int samplers = getSamplerCount(program);
+        pixelsWritten += pixels;
+        pixelsSampled += pixels * samplers;
+        samplerInputs += samplers;
+    }
+
+    /** Should be called when the library sets the viewport for the rendering into the screen. */
+    public static void onScreenViewport(int width, int height) {
+        screenWidth = width;
+        screenHeight = height;
+    }
+
+    public static void onFramebufferBind() {
+        framebufferBinds++;
+    }
+
+    public static void onUniformUpload() {
+        uniformUploads++;
+    }
+
+    /** Should be called on OpenGL context loss. */
+    public static void rebind() {
+        lastProgram = null;
+        samplerCounts.clear();
+    }
+
+    public static long getPasses() {
+        return passes;
+    }
+
+    public static long getFramebufferBinds() {
+        return framebufferBinds;
+    }
+
+    public static long getProgramSwitches() {
+        return programSwitches;
+    }
+
+    /**
+     * @return the number of the textures sampled by the passes, that is the sum of the programs' sampler counts.
+     * It's not the number of the actual texture binds, as a texture might already be bound to its unit.
+     */
+    public static long getSamplerInputs() {
+        return samplerInputs;
+    }
+
+    public static long getUniformUploads() {
+        return uniformUploads;
+    }
+
+    public static long getPixelsWritten() {
+        return pixelsWritten;
+    }
+
+    public static long getPixelsSampled() {
+        return pixelsSampled;
+    }
+
+    private static int getSamplerCount(ShaderProgram program) {
+        int count = samplerCounts.get(program, -1);
+        if (count < 0) {
+            count = 0;
+            String[] uniforms = program.getUniforms();
+            for (int i = 0; i < uniforms.length; i++) {
+                if (program.getUniformType(uniforms[i]) == GL20.GL_SAMPLER_2D) {
+                    count++;
+                }
+            }
+            // The programs are not tracked for disposal, just keep the map reasonably small.
+            if (samplerCounts.size >= 256) {
+                samplerCounts.clear();
+            }
+            samplerCounts.put(program, count);
+        }
+        return count;
+    }
+}
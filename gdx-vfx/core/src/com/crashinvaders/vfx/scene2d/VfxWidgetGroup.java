@@ -27,6 +27,7 @@ import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.WidgetGroup;
 import com.badlogic.gdx.utils.viewport.Viewport;
+import com.crashinvaders.vfx.VfxContext;
 import com.crashinvaders.vfx.VfxManager;
 import com.crashinvaders.vfx.framebuffer.VfxFrameBuffer;
 
@@ -39,9 +40,23 @@ public class VfxWidgetGroup extends WidgetGroup {
     private boolean matchWidgetSize = false;
 
     public VfxWidgetGroup(Pixmap.Format pixelFormat) {
-        vfxManager = new VfxManager(pixelFormat);
+        this(new VfxManager(pixelFormat));
+    }
+
+    /**
+     * Creates a widget group which internal {@link VfxManager} uses the shared resources of the context.
+     * Prefer it over {@link #VfxWidgetGroup(Pixmap.Format)} when there are many widget groups.
+     */
+    public VfxWidgetGroup(VfxContext context, Pixmap.Format pixelFormat) {
+        this(new VfxManager(context, pixelFormat));
+    }
+
+    private VfxWidgetGroup(VfxManager vfxManager) {
+        this.vfxManager = vfxManager;
         rendererAdapter = new CustomRendererAdapter();
         super.setTransform(false);
+        // No need to capture the children when there are no enabled effects.
+        vfxManager.setPassthroughEnabled(true);
     }
 
     public VfxManager getVfxManager() {
@@ -86,8 +101,28 @@ public class VfxWidgetGroup extends WidgetGroup {
 
         performPendingResize();
 
+        Color color = getColor();
+
+        // The children set their own batch color, so the RGB tint cannot be applied to them directly.
+        // A tinted group goes through the capture even when there are no effects.
+        boolean tinted = color.r != 1f || color.g != 1f || color.b != 1f;
+
+        if (!tinted && vfxManager.isPassthrough()) {
+            batch.begin();
+            validate();
+            // Same as for the captured result, the group alpha gets applied on top of the children's.
+            drawChildren(batch, color.a * parentAlpha * parentAlpha);
+            return;
+        }
+
         vfxManager.cleanUpBuffers();
 
+        // The passthrough would skip the capture, while the tint is applied to the captured result.
+        boolean passthroughEnabled = vfxManager.isPassthroughEnabled();
+        if (tinted) {
+            vfxManager.setPassthroughEnabled(false);
+        }
+
         vfxManager.getPingPongBuffer().addRenderer(rendererAdapter);
         vfxManager.beginCapture();
 
@@ -100,6 +135,7 @@ public class VfxWidgetGroup extends WidgetGroup {
 
         vfxManager.endCapture();
         vfxManager.getPingPongBuffer().removeRenderer(rendererAdapter);
+        vfxManager.setPassthroughEnabled(passthroughEnabled);
 
         vfxManager.applyEffects();
 
@@ -107,7 +143,6 @@ public class VfxWidgetGroup extends WidgetGroup {
 
         // If something was captured, render result to the screen.
         if (vfxManager.hasResult()) {
-            Color color = getColor();
             batch.setColor(color.r, color.g, color.b, color.a * parentAlpha);
             batch.draw(vfxManager.getResultBuffer().getFbo().getColorBufferTexture(),
                     getX(), getY(), getWidth(), getHeight(),
@@ -17,21 +17,32 @@
 
 package com.crashinvaders.vfx.utils;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.Mesh;
 import com.badlogic.gdx.graphics.Mesh.VertexDataType;
 import com.badlogic.gdx.graphics.VertexAttribute;
 import com.badlogic.gdx.graphics.VertexAttributes.Usage;
 import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.crashinvaders.vfx.profiling.VfxRenderCounters;
 
 /**
- * Encapsulates a fullscreen quad mesh. Geometry is aligned to the screen corners.
+ * Encapsulates a fullscreen mesh.
+ * <p>
+ * The geometry is a single oversized triangle that covers the whole viewport
+ * (the part outside of the viewport gets clipped), so there is no diagonal seam
+ * that would make the GPU shade the pixels along it twice.
+ * The texture coordinates are in the [0..1] range across the viewport, the same as for a screen aligned quad.
+ * <p>
+ * The vertices are uploaded once to a static VBO (backed by a VAO on GL30), so drawing the mesh costs next to nothing on the CPU side.
  * 
  * @author bmanuel
  * @author metaphore
  */
 public class ScreenQuadMesh {
 
+	private static final int VERTEX_COUNT = 3;
+
 	private final Mesh mesh;
 
 	public ScreenQuadMesh() {
@@ -40,7 +51,10 @@ public class ScreenQuadMesh {
 	}
 
 	public ScreenQuadMesh(VertexAttribute... vertexAttributes) {
-		mesh = new Mesh(VertexDataType.VertexArray, true, 4, 0, vertexAttributes);
+		VertexDataType dataType = Gdx.gl30 != null ?
+				VertexDataType.VertexBufferObjectWithVAO :
+				VertexDataType.VertexBufferObject;
+		mesh = new Mesh(dataType, true, VERTEX_COUNT, 0, vertexAttributes);
 		mesh.setVertices(verts);
 	}
 
@@ -49,61 +63,21 @@ public class ScreenQuadMesh {
 	}
 
 	/**
-	 * Renders the quad with the specified shader program.
+	 * Renders the mesh with the specified shader program.
 	 */
 	public void render (ShaderProgram program) {
-		mesh.render(program, GL20.GL_TRIANGLE_FAN, 0, 4);
+		VfxRenderCounters.onPass(program);
+		mesh.render(program, GL20.GL_TRIANGLES, 0, VERTEX_COUNT);
 	}
 
 	public Mesh getMesh() {
 		return mesh;
 	}
 
-	private static final int VERT_SIZE = 16;
-	private static final int X1 = 0;
-	private static final int Y1 = 1;
-	private static final int U1 = 2;
-	private static final int V1 = 3;
-	private static final int X2 = 4;
-	private static final int Y2 = 5;
-	private static final int U2 = 6;
-	private static final int V2 = 7;
-	private static final int X3 = 8;
-	private static final int Y3 = 9;
-	private static final int U3 = 10;
-	private static final int V3 = 11;
-	private static final int X4 = 12;
-	private static final int Y4 = 13;
-	private static final int U4 = 14;
-	private static final int V4 = 15;
-	private static final float[] verts;
-	static {
-		verts = new float[VERT_SIZE];
-
-		// Vertex coords
-		verts[X1] = -1;
-		verts[Y1] = -1;
-
-		verts[X2] = 1;
-		verts[Y2] = -1;
-
-		verts[X3] = 1;
-		verts[Y3] = 1;
-
-		verts[X4] = -1;
-		verts[Y4] = 1;
-
-		// Tex coords
-		verts[U1] = 0f;
-		verts[V1] = 0f;
-
-		verts[U2] = 1f;
-		verts[V2] = 0f;
-
-		verts[U3] = 1f;
-		verts[V3] = 1f;
-
-		verts[U4] = 0f;
-		verts[V4] = 1f;
-	}
+	private static final float[] verts = {
+			// Position, tex coords.
+			-1f, -1f, 0f, 0f,
+			3f, -1f, 2f, 0f,
+			-1f, 3f, 0f, 2f,
+	};
 }
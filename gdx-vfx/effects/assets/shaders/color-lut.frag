@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+// Color grading through a 3D lookup table stored as a 2D strip.
+// The strip is LUT_SIZE^2 texels wide and LUT_SIZE texels high, every LUT_SIZE wide square is a single blue slice
+// with the red channel going along X and the green along Y.
+// The red and green are interpolated by the linear filtering, the blue is interpolated between the two nearest slices.
+
+#ifdef GL_ES
+	#define PRECISION mediump
+	precision PRECISION float;
+#else
+	#define PRECISION
+#endif
+
+varying vec2 v_texCoords;
+
+uniform PRECISION sampler2D u_texture0;
+// The lookup table strip.
+uniform PRECISION sampler2D u_texture1;
+// The number of the table entries per channel.
+uniform float u_lutSize;
+uniform float u_intensity;
+
+void main() {
+	vec4 color = texture2D(u_texture0, v_texCoords);
+	vec3 c = clamp(color.rgb, 0.0, 1.0);
+
+	float maxIndex = u_lutSize - 1.0;
+	float slice = c.b * maxIndex;
+	float slice0 = floor(slice);
+	float slice1 = min(slice0 + 1.0, maxIndex);
+
+	// Texel centers within a slice.
+	vec2 rg = (c.rg * maxIndex + 0.5) / vec2(u_lutSize * u_lutSize, u_lutSize);
+	vec3 graded0 = texture2D(u_texture1, vec2(rg.x + slice0 / u_lutSize, rg.y)).rgb;
+	vec3 graded1 = texture2D(u_texture1, vec2(rg.x + slice1 / u_lutSize, rg.y)).rgb;
+	vec3 graded = mix(graded0, graded1, slice - slice0);
+
+	gl_FragColor = vec4(mix(color.rgb, graded, u_intensity), color.a);
+}
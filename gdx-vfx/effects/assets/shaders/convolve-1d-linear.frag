@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+// Separable gaussian convolution pass with the bilinear taps.
+// Every side tap is placed between two adjacent texels, so a single texture fetch accounts for both of them.
+// The tap count is a uniform, so the kernel size could be changed without recompiling the shader.
+
+#ifdef GL_ES
+	#define PRECISION mediump
+	precision PRECISION float;
+#else
+	#define PRECISION
+#endif
+
+#ifndef MAX_TAPS
+#error Please define MAX_TAPS
+#endif
+
+varying vec2 v_texCoords;
+uniform PRECISION sampler2D u_texture0;
+// The texel step in the convolution direction.
+uniform PRECISION vec2 u_direction;
+uniform int u_tapCount;
+// The center tap comes first, the rest are mirrored to both sides.
+uniform PRECISION float u_weights[MAX_TAPS];
+uniform PRECISION float u_offsets[MAX_TAPS];
+
+void main() {
+	vec4 c = texture2D(u_texture0, v_texCoords) * u_weights[0];
+	for (int i = 1; i < MAX_TAPS; i++) {
+		if (i >= u_tapCount) break;
+		vec2 offset = u_direction * u_offsets[i];
+		c += (texture2D(u_texture0, v_texCoords + offset) + texture2D(u_texture0, v_texCoords - offset)) * u_weights[i];
+	}
+	gl_FragColor = c;
+}
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+// Downsampling pass of the dual filter blur.
+// Based on "Bandwidth-Efficient Rendering" by Marius Bjorge (SIGGRAPH 2015).
+
+#ifdef GL_ES
+	#define PRECISION mediump
+	precision PRECISION float;
+#else
+	#define PRECISION
+#endif
+
+varying vec2 v_texCoords;
+
+uniform sampler2D u_texture0;
+// Half of the source texel size.
+uniform vec2 u_halfTexel;
+uniform float u_offset;
+
+void main() {
+	vec2 uv = v_texCoords;
+	vec2 o = u_halfTexel * u_offset;
+
+	vec4 sum = texture2D(u_texture0, uv) * 4.0;
+	sum += texture2D(u_texture0, uv - o);
+	sum += texture2D(u_texture0, uv + o);
+	sum += texture2D(u_texture0, uv + vec2(o.x, -o.y));
+	sum += texture2D(u_texture0, uv - vec2(o.x, -o.y));
+
+	gl_FragColor = sum * 0.125;
+}
@@ -30,11 +30,30 @@ uniform sampler2D u_texture0;
 uniform float u_exposure;
 uniform float u_gamma;
 
+#ifdef AUTO_EXPOSURE
+// 1x1 adapted scene luminance, the packed normalized log-luminance (see luminance-reduce.frag).
+uniform sampler2D u_texture1;
+// The target middle gray value.
+uniform float u_keyValue;
+
+#define LOG_LUM_MIN -10.0
+#define LOG_LUM_MAX 6.0
+#endif
+
 void main() {
     vec3 hdrColor = texture2D(u_texture0, v_texCoords).rgb;
 
+#ifdef AUTO_EXPOSURE
+    // The exposure works as a compensation on top of the one that maps the average luminance to the key value.
+    vec4 packedLuminance = texture2D(u_texture1, vec2(0.5));
+    float logLuminance = mix(LOG_LUM_MIN, LOG_LUM_MAX, packedLuminance.r + packedLuminance.g / 255.0);
+    float exposure = u_exposure * u_keyValue / exp2(logLuminance);
+#else
+    float exposure = u_exposure;
+#endif
+
      // Exposure tone mapping
-    vec3 mapped = vec3(1.0) - exp(-hdrColor * u_exposure);
+    vec3 mapped = vec3(1.0) - exp(-hdrColor * exposure);
     // Gamma correction
     mapped = pow(mapped, vec3(1.0 / u_gamma));
 
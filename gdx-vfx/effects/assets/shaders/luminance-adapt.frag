@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+// Temporal adaptation of the average scene luminance.
+// Both textures are 1x1 and hold the packed normalized log-luminance (see luminance-reduce.frag).
+// The adaptation happens in the log domain, which matches the perceived brightness steps.
+
+#ifdef GL_ES
+	// The packing needs more than the mediump precision, when available.
+	#ifdef GL_FRAGMENT_PRECISION_HIGH
+		#define PRECISION highp
+	#else
+		#define PRECISION mediump
+	#endif
+	precision PRECISION float;
+#else
+	#define PRECISION
+#endif
+
+varying vec2 v_texCoords;
+
+// The current frame's luminance.
+uniform sampler2D u_texture0;
+// The previously adapted luminance.
+uniform sampler2D u_texture1;
+// The share of the current frame in the result, 1.0 to skip the adaptation.
+uniform float u_alpha;
+
+vec2 encode(float value) {
+	float scaled = clamp(value, 0.0, 1.0) * 255.0;
+	return vec2(floor(scaled) / 255.0, fract(scaled));
+}
+
+float decode(vec4 tex) {
+	return tex.r + tex.g / 255.0;
+}
+
+void main() {
+	float current = decode(texture2D(u_texture0, vec2(0.5)));
+	float previous = decode(texture2D(u_texture1, vec2(0.5)));
+	gl_FragColor = vec4(encode(mix(previous, current, u_alpha)), 0.0, 1.0);
+}
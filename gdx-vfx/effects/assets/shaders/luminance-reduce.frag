@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+// Reduction step of the average scene luminance.
+// Every output texel averages a 2x2 block of the source texels, so the chain ends up with a single texel.
+// With LUMINANCE defined, the source is the scene color and the log-luminance is computed from it,
+// otherwise the source is the previous reduction step.
+// The log-luminance is normalized to the [LOG_LUM_MIN..LOG_LUM_MAX] range and packed into two 8-bit channels,
+// so the chain works over the regular RGBA8888 buffers.
+
+#ifdef GL_ES
+	// The packing needs more than the mediump precision, when available.
+	#ifdef GL_FRAGMENT_PRECISION_HIGH
+		#define PRECISION highp
+	#else
+		#define PRECISION mediump
+	#endif
+	precision PRECISION float;
+#else
+	#define PRECISION
+#endif
+
+#define LOG_LUM_MIN -10.0
+#define LOG_LUM_MAX 6.0
+
+varying vec2 v_texCoords;
+
+uniform sampler2D u_texture0;
+// Half of the source texel size.
+uniform vec2 u_halfTexel;
+
+vec2 encode(float value) {
+	float scaled = clamp(value, 0.0, 1.0) * 255.0;
+	return vec2(floor(scaled) / 255.0, fract(scaled));
+}
+
+float sampleValue(vec2 uv) {
+	vec4 tex = texture2D(u_texture0, uv);
+#ifdef LUMINANCE
+	float luminance = dot(tex.rgb, vec3(0.2126, 0.7152, 0.0722));
+	return (log2(max(luminance, 0.0001)) - LOG_LUM_MIN) / (LOG_LUM_MAX - LOG_LUM_MIN);
+#else
+	return tex.r + tex.g / 255.0;
+#endif
+}
+
+void main() {
+	vec2 uv = v_texCoords;
+	vec2 h = u_halfTexel;
+
+	float sum = sampleValue(uv + vec2(-h.x, -h.y));
+	sum += sampleValue(uv + vec2(h.x, -h.y));
+	sum += sampleValue(uv + vec2(-h.x, h.y));
+	sum += sampleValue(uv + vec2(h.x, h.y));
+
+	gl_FragColor = vec4(encode(sum * 0.25), 0.0, 1.0);
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+// Downsampling pass of the mip chain bloom.
+// The 13-tap filter from "Next Generation Post Processing in Call of Duty: Advanced Warfare" by Jorge Jimenez (SIGGRAPH 2014),
+// made of five overlapping 4-texel boxes that are read with the bilinear taps.
+// With THRESHOLD defined, the bright-pass is applied to the result (used for the first, full resolution step).
+
+#ifdef GL_ES
+	#define PRECISION mediump
+	precision PRECISION float;
+#else
+	#define PRECISION
+#endif
+
+varying vec2 v_texCoords;
+
+uniform sampler2D u_texture0;
+// The source texel size.
+uniform vec2 u_texel;
+#ifdef THRESHOLD
+uniform float u_threshold;
+uniform float u_thresholdInv;
+#endif
+
+void main() {
+	vec2 uv = v_texCoords;
+	vec2 t = u_texel;
+
+	vec4 a = texture2D(u_texture0, uv + t * vec2(-2.0, 2.0));
+	vec4 b = texture2D(u_texture0, uv + t * vec2(0.0, 2.0));
+	vec4 c = texture2D(u_texture0, uv + t * vec2(2.0, 2.0));
+	vec4 d = texture2D(u_texture0, uv + t * vec2(-2.0, 0.0));
+	vec4 e = texture2D(u_texture0, uv);
+	vec4 f = texture2D(u_texture0, uv + t * vec2(2.0, 0.0));
+	vec4 g = texture2D(u_texture0, uv + t * vec2(-2.0, -2.0));
+	vec4 h = texture2D(u_texture0, uv + t * vec2(0.0, -2.0));
+	vec4 i = texture2D(u_texture0, uv + t * vec2(2.0, -2.0));
+	vec4 j = texture2D(u_texture0, uv + t * vec2(-1.0, 1.0));
+	vec4 k = texture2D(u_texture0, uv + t * vec2(1.0, 1.0));
+	vec4 l = texture2D(u_texture0, uv + t * vec2(-1.0, -1.0));
+	vec4 m = texture2D(u_texture0, uv + t * vec2(1.0, -1.0));
+
+	vec4 sum = e * 0.125;
+	sum += (a + c + g + i) * 0.03125;
+	sum += (b + d + f + h) * 0.0625;
+	sum += (j + k + l + m) * 0.125;
+
+#ifdef THRESHOLD
+	// Same response as the threshold filter, but never negative for the float buffers.
+	sum = max((sum - u_threshold) * u_thresholdInv, 0.0);
+#endif
+	gl_FragColor = sum;
+}
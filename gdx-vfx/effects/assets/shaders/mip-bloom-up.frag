@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+// Upsampling pass of the mip chain bloom.
+// The lower level is upsampled with a 3x3 tent filter and mixed with the same resolution level of the downsampling chain.
+
+#ifdef GL_ES
+	#define PRECISION mediump
+	precision PRECISION float;
+#else
+	#define PRECISION
+#endif
+
+varying vec2 v_texCoords;
+
+// The lower (upsampled) level.
+uniform sampler2D u_texture0;
+// The same resolution level of the downsampling chain.
+uniform sampler2D u_texture1;
+// The lower level texel size, scaled by the filter radius.
+uniform vec2 u_texel;
+// The share of the upsampled level in the result.
+uniform float u_mix;
+
+void main() {
+	vec2 uv = v_texCoords;
+	vec2 t = u_texel;
+
+	vec4 sum = texture2D(u_texture0, uv) * 4.0;
+	sum += (texture2D(u_texture0, uv + vec2(0.0, t.y))
+			+ texture2D(u_texture0, uv - vec2(0.0, t.y))
+			+ texture2D(u_texture0, uv + vec2(t.x, 0.0))
+			+ texture2D(u_texture0, uv - vec2(t.x, 0.0))) * 2.0;
+	sum += texture2D(u_texture0, uv + t)
+			+ texture2D(u_texture0, uv - t)
+			+ texture2D(u_texture0, uv + vec2(t.x, -t.y))
+			+ texture2D(u_texture0, uv - vec2(t.x, -t.y));
+
+	gl_FragColor = mix(texture2D(u_texture1, uv), sum * 0.0625, u_mix);
+}
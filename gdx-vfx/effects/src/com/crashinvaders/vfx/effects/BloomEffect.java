@@ -21,23 +21,56 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
 import com.crashinvaders.vfx.utils.ScreenQuadMesh;
 import com.crashinvaders.vfx.framebuffer.VfxFrameBuffer;
 import com.crashinvaders.vfx.framebuffer.PingPongBuffer;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBufferPool;
 import com.crashinvaders.vfx.VfxEffect;
 import com.crashinvaders.vfx.gl.VfxGLUtils;
 import com.crashinvaders.vfx.filters.GaussianBlurFilter;
 import com.crashinvaders.vfx.filters.GaussianBlurFilter.BlurType;
 import com.crashinvaders.vfx.filters.CombineFilter;
+import com.crashinvaders.vfx.filters.MipChainBloomFilter;
 import com.crashinvaders.vfx.filters.ThresholdFilter;
+import com.crashinvaders.vfx.graph.VfxGraphEffect;
+import com.crashinvaders.vfx.graph.VfxRenderGraph;
+
+public final class BloomEffect extends VfxEffect implements VfxGraphEffect {
+
+    public enum Mode {
+        /** The threshold and blur passes run over a full resolution buffer. */
+        Classic,
+        /**
+         * The threshold and blur are done over a half resolution pyramid ({@link MipChainBloomFilter}),
+         * the cost doesn't grow with the bloom radius. The blur passes are the pyramid levels
+         * and the blur amount is the upsampling filter radius (non-positive values mean the reference radius of 1),
+         * the blur type is ignored.
+         */
+        MipChain,
+    }
 
-public final class BloomEffect extends VfxEffect {
-
-    private final PingPongBuffer pingPongBuffer;
+    private final Pixmap.Format bufferFormat;
+    /**
+     * Lazily created, only used when the effect is rendered on its own.
+     * Otherwise the buffers are borrowed from the manager's pool, or are managed by the {@link VfxRenderGraph}.
+     */
+    private PingPongBuffer pingPongBuffer;
+    /** Wraps the buffers borrowed from {@link VfxFrameBufferPool}. */
+    private PingPongBuffer pooledPingPongBuffer;
+    /** Lazily created half resolution buffer for {@link Mode#MipChain}, only used when the effect is rendered on its own. */
+    private VfxFrameBuffer mipChainBuffer;
+    private int width, height;
 
     private final GaussianBlurFilter blur;
     private final ThresholdFilter threshold;
     private final CombineFilter combine;
+    /** Only exists for {@link Mode#MipChain}. */
+    private MipChainBloomFilter mipChain;
+
+    private Mode mode = Mode.Classic;
+    /** Changes with the mode, as the graph passes are declared per mode. */
+    private int graphStructureVersion = 0;
 
     private Settings settings;
 
@@ -49,7 +82,9 @@ public final class BloomEffect extends VfxEffect {
     }
 
     public BloomEffect(Pixmap.Format bufferFormat, Settings settings) {
-        pingPongBuffer = new PingPongBuffer(bufferFormat);
+        this.bufferFormat = bufferFormat;
+        this.width = Gdx.graphics.getBackBufferWidth();
+        this.height = Gdx.graphics.getBackBufferHeight();
 
         blur = new GaussianBlurFilter();
         threshold = new ThresholdFilter();
@@ -60,7 +95,15 @@ public final class BloomEffect extends VfxEffect {
 
     @Override
     public void resize(int width, int height) {
-        pingPongBuffer.resize(width, height);
+        this.width = width;
+        this.height = height;
+
+        if (pingPongBuffer != null) {
+            pingPongBuffer.resize(width, height);
+        }
+        if (mipChainBuffer != null) {
+            mipChainBuffer.initialize(getMipChainWidth(), getMipChainHeight());
+        }
 
         blur.resize(width, height);
         threshold.resize(width, height);
@@ -72,44 +115,82 @@ public final class BloomEffect extends VfxEffect {
         combine.dispose();
         threshold.dispose();
         blur.dispose();
-        pingPongBuffer.dispose();
+        if (pingPongBuffer != null) {
+            pingPongBuffer.dispose();
+        }
+        disposeMipChain();
     }
 
     public void setBaseIntensity(float intensity) {
+        markParamsChanged();
         combine.setSource1Intensity(intensity);
     }
 
     public void setBaseSaturation(float saturation) {
+        markParamsChanged();
         combine.setSource1Saturation(saturation);
     }
 
     public void setBloomIntensity(float intensity) {
+        markParamsChanged();
         combine.setSource2Intensity(intensity);
     }
 
     public void setBloomSaturation(float saturation) {
+        markParamsChanged();
         combine.setSource2Saturation(saturation);
     }
 
     public void setThreshold(float gamma) {
+        markParamsChanged();
         threshold.setTreshold(gamma);
+        if (mipChain != null) {
+            mipChain.setThreshold(gamma);
+        }
     }
 
     public void enableBlending(int sfactor, int dfactor) {
+        markParamsChanged();
         this.blending = true;
         this.sfactor = sfactor;
         this.dfactor = dfactor;
     }
 
     public void disableBlending() {
+        markParamsChanged();
         this.blending = false;
     }
 
+    /** Switching the mode makes the {@link VfxRenderGraph} the effect is part of redeclare its passes. */
+    public void setMode(Mode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("Mode cannot be null.");
+        }
+        if (this.mode == mode) return;
+        markParamsChanged();
+        this.mode = mode;
+        graphStructureVersion++;
+
+        disposeMipChain();
+        if (mode == Mode.MipChain) {
+            mipChain = new MipChainBloomFilter();
+            mipChain.setThreshold(threshold.getThreshold());
+            mipChain.setLevels(Math.max(1, blur.getPasses()));
+            mipChain.setRadius(toMipChainRadius(blur.getAmount()));
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
     public void setBlurType(BlurType type) {
+        markParamsChanged();
         blur.setType(type);
     }
 
     public void setSettings(Settings settings) {
+        markParamsChanged();
         this.settings = settings;
 
         // Setup threshold filter
@@ -128,11 +209,19 @@ public final class BloomEffect extends VfxEffect {
     }
 
     public void setBlurPasses(int passes) {
+        markParamsChanged();
         blur.setPasses(passes);
+        if (mipChain != null) {
+            mipChain.setLevels(Math.max(1, passes));
+        }
     }
 
     public void setBlurAmount(float amount) {
+        markParamsChanged();
         blur.setAmount(amount);
+        if (mipChain != null) {
+            mipChain.setRadius(toMipChainRadius(amount));
+        }
     }
 
     public float getThreshold() {
@@ -185,46 +274,228 @@ public final class BloomEffect extends VfxEffect {
 
     @Override
     public void render(ScreenQuadMesh mesh, final VfxFrameBuffer src, final VfxFrameBuffer dst) {
+        if (mode == Mode.MipChain) {
+            renderMipChain(mesh, src, dst);
+            return;
+        }
+
+        VfxFrameBufferPool pool = getBufferPool();
+        PingPongBuffer buffer;
+        VfxFrameBuffer pooled1 = null, pooled2 = null;
+        if (pool != null) {
+            pooled1 = pool.obtain(bufferFormat, width, height);
+            pooled2 = pool.obtain(bufferFormat, width, height);
+            if (pooledPingPongBuffer == null) {
+                pooledPingPongBuffer = new PingPongBuffer(pooled1, pooled2);
+            } else {
+                pooledPingPongBuffer.setBuffers(pooled1, pooled2);
+            }
+            buffer = pooledPingPongBuffer;
+        } else {
+            if (pingPongBuffer == null) {
+                pingPongBuffer = new PingPongBuffer(bufferFormat, width, height);
+            }
+            buffer = pingPongBuffer;
+        }
+
         Texture texSrc = src.getFbo().getColorBufferTexture();
 
         boolean blendingWasEnabled = VfxGLUtils.isGLEnabled(GL20.GL_BLEND);
         Gdx.gl.glDisable(GL20.GL_BLEND);
 
-        pingPongBuffer.begin();
+        renderBlur(mesh, texSrc, buffer);
+
+        if (blending || blendingWasEnabled) {
+            Gdx.gl.glEnable(GL20.GL_BLEND);
+        }
+
+        renderCombine(mesh, texSrc, buffer.getDstTexture(), dst);
+
+        if (pool != null) {
+            pool.free(pooled1);
+            pool.free(pooled2);
+        }
+    }
+
+    @Override
+    public void rebind() {
+        blur.rebind();
+        threshold.rebind();
+        combine.rebind();
+        if (pingPongBuffer != null) {
+            pingPongBuffer.rebind();
+        }
+        if (mipChain != null) {
+            mipChain.rebind();
+        }
+    }
+
+    @Override
+    public int getGraphStructureVersion() {
+        return graphStructureVersion;
+    }
+
+    @Override
+    public void declarePasses(VfxRenderGraph graph, final VfxRenderGraph.Resource input, final VfxRenderGraph.Resource output) {
+        if (mode == Mode.MipChain) {
+            declareMipChainPasses(graph, input, output);
+            return;
+        }
+
+        final VfxRenderGraph.Resource bloom = graph.createPingPong("bloom-blur", bufferFormat, 1f);
+
+        graph.addPass("bloom-blur", new VfxRenderGraph.PassExecutor() {
+            @Override
+            public void execute(VfxRenderGraph graph, ScreenQuadMesh mesh) {
+                boolean blendingWasEnabled = VfxGLUtils.isGLEnabled(GL20.GL_BLEND);
+                Gdx.gl.glDisable(GL20.GL_BLEND);
+
+                renderBlur(mesh, graph.getTexture(input), graph.getPingPong(bloom));
+
+                if (blendingWasEnabled) {
+                    Gdx.gl.glEnable(GL20.GL_BLEND);
+                }
+            }
+        }).read(input).write(bloom);
+
+        graph.addPass("bloom-combine", new VfxRenderGraph.PassExecutor() {
+            @Override
+            public void execute(VfxRenderGraph graph, ScreenQuadMesh mesh) {
+                if (blending) {
+                    Gdx.gl.glEnable(GL20.GL_BLEND);
+                }
+                renderCombine(mesh, graph.getTexture(input), graph.getTexture(bloom), graph.getBuffer(output));
+            }
+        }).read(input).read(bloom).write(output);
+    }
+
+    private void renderBlur(ScreenQuadMesh mesh, Texture texSrc, PingPongBuffer buffer) {
+        // The dual filter blur borrows its intermediate buffers as well.
+        blur.setBufferPool(getBufferPool());
+
+        buffer.begin();
         {
             // Threshold / high-pass filter
             // Only areas with pixels >= threshold are blit to smaller FBO
-            threshold.setInput(texSrc).setOutput(pingPongBuffer.getDstBuffer()).render(mesh);
-            pingPongBuffer.swap();
+            threshold.setInput(texSrc).setOutput(buffer.getDstBuffer()).render(mesh);
+            buffer.swap();
 
             // Blur pass
-            blur.render(mesh, pingPongBuffer);
+            blur.render(mesh, buffer);
         }
-        pingPongBuffer.end();
+        buffer.end();
+    }
+
+    private void renderMipChain(ScreenQuadMesh mesh, VfxFrameBuffer src, VfxFrameBuffer dst) {
+        VfxFrameBufferPool pool = getBufferPool();
+        VfxFrameBuffer bloomBuffer;
+        if (pool != null) {
+            bloomBuffer = pool.obtain(bufferFormat, getMipChainWidth(), getMipChainHeight());
+        } else {
+            if (mipChainBuffer == null) {
+                mipChainBuffer = new VfxFrameBuffer(bufferFormat);
+                mipChainBuffer.initialize(getMipChainWidth(), getMipChainHeight());
+            }
+            bloomBuffer = mipChainBuffer;
+        }
+
+        Texture texSrc = src.getFbo().getColorBufferTexture();
+
+        boolean blendingWasEnabled = VfxGLUtils.isGLEnabled(GL20.GL_BLEND);
+        Gdx.gl.glDisable(GL20.GL_BLEND);
+
+        renderMipChainBlur(mesh, texSrc, bloomBuffer);
 
         if (blending || blendingWasEnabled) {
             Gdx.gl.glEnable(GL20.GL_BLEND);
         }
 
+        renderMipChainCombine(mesh, texSrc, bloomBuffer.getFbo().getColorBufferTexture(), dst);
+
+        if (pool != null) {
+            pool.free(bloomBuffer);
+        }
+    }
+
+    private void declareMipChainPasses(VfxRenderGraph graph, final VfxRenderGraph.Resource input, final VfxRenderGraph.Resource output) {
+        final VfxRenderGraph.Resource bloom = graph.createBuffer("bloom-mip-chain", bufferFormat, 0.5f);
+
+        graph.addPass("bloom-mip-chain", new VfxRenderGraph.PassExecutor() {
+            @Override
+            public void execute(VfxRenderGraph graph, ScreenQuadMesh mesh) {
+                boolean blendingWasEnabled = VfxGLUtils.isGLEnabled(GL20.GL_BLEND);
+                Gdx.gl.glDisable(GL20.GL_BLEND);
+
+                renderMipChainBlur(mesh, graph.getTexture(input), graph.getBuffer(bloom));
+
+                if (blendingWasEnabled) {
+                    Gdx.gl.glEnable(GL20.GL_BLEND);
+                }
+            }
+        }).read(input).write(bloom);
+
+        graph.addPass("bloom-combine", new VfxRenderGraph.PassExecutor() {
+            @Override
+            public void execute(VfxRenderGraph graph, ScreenQuadMesh mesh) {
+                if (blending) {
+                    Gdx.gl.glEnable(GL20.GL_BLEND);
+                }
+                renderMipChainCombine(mesh, graph.getTexture(input), graph.getTexture(bloom), graph.getBuffer(output));
+            }
+        }).read(input).read(bloom).write(output);
+    }
+
+    private void renderMipChainBlur(ScreenQuadMesh mesh, Texture texSrc, VfxFrameBuffer bloomBuffer) {
+        mipChain.setBufferPool(getBufferPool());
+        mipChain.render(mesh, texSrc, bloomBuffer);
+    }
+
+    private void renderMipChainCombine(ScreenQuadMesh mesh, Texture texSrc, Texture texBloom, VfxFrameBuffer dst) {
+        // The half resolution bloom gets upscaled by the combine pass.
+        TextureFilter minFilter = texBloom.getMinFilter();
+        TextureFilter magFilter = texBloom.getMagFilter();
+        texBloom.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+
+        renderCombine(mesh, texSrc, texBloom, dst);
+
+        texBloom.setFilter(minFilter, magFilter);
+    }
+
+    private int getMipChainWidth() {
+        return Math.max(1, width / 2);
+    }
+
+    private int getMipChainHeight() {
+        return Math.max(1, height / 2);
+    }
+
+    private void disposeMipChain() {
+        if (mipChain != null) {
+            mipChain.dispose();
+            mipChain = null;
+        }
+        if (mipChainBuffer != null) {
+            mipChainBuffer.dispose();
+            mipChainBuffer = null;
+        }
+    }
+
+    private static float toMipChainRadius(float blurAmount) {
+        return blurAmount > 0f ? blurAmount : 1f;
+    }
+
+    private void renderCombine(ScreenQuadMesh mesh, Texture texSrc, Texture texBloom, VfxFrameBuffer dst) {
         if (blending) {
             // TODO support for Gdx.gl.glBlendFuncSeparate(sfactor, dfactor, GL20.GL_ONE, GL20.GL_ONE );
             Gdx.gl.glBlendFunc(sfactor, dfactor);
         }
 
         // Mix original scene and blurred threshold, modulate via set(Base|BloomEffect)(Saturation|Intensity)
-        combine.setInput(texSrc, pingPongBuffer.getDstTexture())
+        combine.setInput(texSrc, texBloom)
                 .setOutput(dst)
                 .render(mesh);
     }
 
-    @Override
-    public void rebind() {
-        blur.rebind();
-        threshold.rebind();
-        combine.rebind();
-        pingPongBuffer.rebind();
-    }
-
     public static class Settings {
         public final String name;
 
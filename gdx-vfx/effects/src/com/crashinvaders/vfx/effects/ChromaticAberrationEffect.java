@@ -20,8 +20,10 @@ import com.crashinvaders.vfx.utils.ScreenQuadMesh;
 import com.crashinvaders.vfx.framebuffer.VfxFrameBuffer;
 import com.crashinvaders.vfx.VfxEffect;
 import com.crashinvaders.vfx.filters.ChromaticAberrationFilter;
+import com.crashinvaders.vfx.fusion.FusableVfxEffect;
+import com.crashinvaders.vfx.fusion.FusedVfxProgram;
 
-public class ChromaticAberrationEffect extends VfxEffect {
+public class ChromaticAberrationEffect extends VfxEffect implements FusableVfxEffect {
 
     private final ChromaticAberrationFilter caFilter;
 
@@ -53,11 +55,85 @@ public class ChromaticAberrationEffect extends VfxEffect {
         caFilter.dispose();
     }
 
+    /** With no distortion, all the samples fall onto the same texel. */
+    @Override
+    public boolean isIdentity() {
+        return caFilter.getMaxDistortion() == 0f;
+    }
+
     public float getMaxDistortion() {
         return caFilter.getMaxDistortion();
     }
 
     public void setMaxDistortion(float maxDistortion) {
+        markParamsChanged();
         caFilter.setMaxDistortion(maxDistortion);
     }
+
+    //region FusableVfxEffect implementation
+    private static final String FUSION_DECLARATIONS =
+            "uniform float $maxDistortion;\n" +
+            "vec2 $barrelDistortion(vec2 coord, float amt) {\n" +
+            "    vec2 cc = coord - 0.5;\n" +
+            "    float dist = dot(cc, cc);\n" +
+            "    return coord + cc * dist * amt;\n" +
+            "}\n" +
+            "vec4 $spectrumOffset(float t) {\n" +
+            "    float lo = step(t, 0.5);\n" +
+            "    float hi = 1.0 - lo;\n" +
+            "    float w = clamp(1.0 - abs(2.0 * clamp((t - 1.0 / 6.0) / (4.0 / 6.0), 0.0, 1.0) - 1.0), 0.0, 1.0);\n" +
+            "    vec4 ret = vec4(lo, 1.0, hi, 1.0) * vec4(1.0 - w, w, 1.0 - w, 1.0);\n" +
+            "    return pow(ret, vec4(1.0 / $maxDistortion));\n" +
+            "}";
+
+    private String fusionKey;
+    private String fusionBody;
+
+    @Override
+    public boolean isFusable() {
+        return true;
+    }
+
+    /** The effect samples the neighbour texels, so it may only lead a fused group. */
+    @Override
+    public boolean isSamplingInput() {
+        return true;
+    }
+
+    @Override
+    public String getFusionKey() {
+        if (fusionKey == null) {
+            fusionKey = "chromatic_aberration_" + caFilter.getPasses();
+        }
+        return fusionKey;
+    }
+
+    @Override
+    public String getFusionDeclarations() {
+        return FUSION_DECLARATIONS;
+    }
+
+    @Override
+    public String getFusionBody() {
+        if (fusionBody == null) {
+            int passes = caFilter.getPasses();
+            fusionBody =
+                    "vec4 sumcol = vec4(0.0);\n" +
+                    "vec4 sumw = vec4(0.0);\n" +
+                    "for (int i = 0; i < " + passes + "; ++i) {\n" +
+                    "    float t = float(i) * " + (1f / passes) + ";\n" +
+                    "    vec4 w = $spectrumOffset(t);\n" +
+                    "    sumw += w;\n" +
+                    "    sumcol += w * texture2D(u_texture0, $barrelDistortion(uv, 0.6 * $maxDistortion * t));\n" +
+                    "}\n" +
+                    "color = sumcol / sumw;";
+        }
+        return fusionBody;
+    }
+
+    @Override
+    public void applyFusionUniforms(FusedVfxProgram.Uniforms uniforms) {
+        uniforms.set("maxDistortion", caFilter.getMaxDistortion());
+    }
+    //endregion
 }
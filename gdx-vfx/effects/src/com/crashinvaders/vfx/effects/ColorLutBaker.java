@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx.effects;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Bakes a stack of {@link ColorOperation}s into a lookup table strip for {@link ColorLutEffect}.
+ * <p>
+ * The table entries are evaluated in parallel with fork/join, every task takes a range of the blue slices.
+ * The baking doesn't touch OpenGL, so it could be done off the render thread.
+ * <p>
+ * Not available on GWT (the class is excluded from the module).
+ */
+public final class ColorLutBaker implements Disposable {
+
+    public static final int MIN_SIZE = 2;
+    /** The strip of size 64 is 4096 texels wide, that is a common max texture size on the mobile GPUs. */
+    public static final int MAX_SIZE = 64;
+
+    /** The number of the blue slices a single task evaluates without splitting. */
+    private static final int SLICES_PER_TASK = 2;
+
+    private final Array<ColorOperation> operations = new Array<>();
+    private final boolean ownsPool;
+    private ForkJoinPool pool;
+    private boolean disposed = false;
+
+    /** Creates the baker with its own fork/join pool, that gets shut down on {@link #dispose()}. */
+    public ColorLutBaker() {
+        this.pool = null;
+        this.ownsPool = true;
+    }
+
+    /** @param pool the fork/join pool to run the baking on. It is not shut down by the baker. */
+    public ColorLutBaker(ForkJoinPool pool) {
+        if (pool == null) throw new IllegalArgumentException("Pool cannot be null.");
+        this.pool = pool;
+        this.ownsPool = false;
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+        if (ownsPool && pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /** Adds the operation on top of the stack, the operations are applied in the order they were added. */
+    public ColorLutBaker addOperation(ColorOperation operation) {
+        if (operation == null) throw new IllegalArgumentException("Operation cannot be null.");
+        operations.add(operation);
+        return this;
+    }
+
+    public void removeOperation(ColorOperation operation) {
+        operations.removeValue(operation, true);
+    }
+
+    public void clearOperations() {
+        operations.clear();
+    }
+
+    public Array<ColorOperation> getOperations() {
+        return operations;
+    }
+
+    /**
+     * Evaluates the operation stack for every table entry. Blocks until done.
+     * @param size the number of the table entries per channel (usually 32 or 64).
+     * @return a new {@link Pixmap.Format#RGBA8888} strip of size<sup>2</sup> x size pixels. The caller owns it.
+     */
+    public Pixmap bake(int size) {
+        if (disposed) throw new IllegalStateException("The baker is disposed.");
+        if (size < MIN_SIZE || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Size should be in the [" + MIN_SIZE + ".." + MAX_SIZE + "] range: " + size);
+        }
+        if (pool == null) {
+            pool = new ForkJoinPool();
+        }
+
+        ColorOperation[] stack = operations.toArray(ColorOperation.class);
+        byte[] data = new byte[size * size * size * 4];
+        pool.invoke(new BakeTask(stack, size, data, 0, size));
+
+        Pixmap pixmap = new Pixmap(size * size, size, Pixmap.Format.RGBA8888);
+        ByteBuffer pixels = pixmap.getPixels();
+        pixels.position(0);
+        pixels.put(data);
+        pixels.position(0);
+        return pixmap;
+    }
+
+    private static final class BakeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ColorOperation[] operations;
+        private final int size;
+        private final byte[] data;
+        private final int sliceFrom;
+        private final int sliceTo;
+
+        BakeTask(ColorOperation[] operations, int size, byte[] data, int sliceFrom, int sliceTo) {
+            this.operations = operations;
+            this.size = size;
+            this.data = data;
+            this.sliceFrom = sliceFrom;
+            this.sliceTo = sliceTo;
+        }
+
+        @Override
+        protected void compute() {
+            if (sliceTo - sliceFrom > SLICES_PER_TASK) {
+                int middle = (sliceFrom + sliceTo) >>> 1;
+                invokeAll(new BakeTask(operations, size, data, sliceFrom, middle),
+                        new BakeTask(operations, size, data, middle, sliceTo));
+                return;
+            }
+
+            Color color = new Color();
+            float maxIndex = size - 1;
+            int rowStride = size * size * 4;
+            for (int b = sliceFrom; b < sliceTo; b++) {
+                for (int g = 0; g < size; g++) {
+                    for (int r = 0; r < size; r++) {
+                        color.set(r / maxIndex, g / maxIndex, b / maxIndex, 1f);
+                        for (int i = 0; i < operations.length; i++) {
+                            operations[i].apply(color);
+                        }
+
+                        // The slice's red goes along X and green along Y.
+                        int offset = g * rowStride + (b * size + r) * 4;
+                        data[offset] = toByte(color.r);
+                        data[offset + 1] = toByte(color.g);
+                        data[offset + 2] = toByte(color.b);
+                        data[offset + 3] = (byte) 255;
+                    }
+                }
+            }
+        }
+
+        private static byte toByte(float value) {
+            return (byte) MathUtils.round(MathUtils.clamp(value, 0f, 1f) * 255f);
+        }
+    }
+}
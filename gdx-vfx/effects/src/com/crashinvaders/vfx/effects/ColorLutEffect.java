@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx.effects;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.glutils.PixmapTextureData;
+import com.crashinvaders.vfx.VfxEffect;
+import com.crashinvaders.vfx.filters.ColorLutFilter;
+import com.crashinvaders.vfx.filters.CopyFilter;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBuffer;
+import com.crashinvaders.vfx.utils.ScreenQuadMesh;
+
+/**
+ * Color grading through a 3D lookup table stored as a 2D strip (see {@link ColorLutFilter} for the layout).
+ * <p>
+ * Any stack of the per-pixel color transforms (levels, tone mapping, saturation, gradient mapping)
+ * could be baked into a single table with {@link ColorLutBaker} and applied at the cost of a single pass.
+ * The effect does nothing until the table is set.
+ */
+public final class ColorLutEffect extends VfxEffect {
+
+    private final ColorLutFilter filter;
+    private final CopyFilter copy;
+    /** The texture created from a pixmap, owned by the effect. */
+    private Texture ownLut = null;
+
+    public ColorLutEffect() {
+        filter = new ColorLutFilter();
+        copy = new CopyFilter();
+    }
+
+    @Override
+    public void dispose() {
+        filter.dispose();
+        copy.dispose();
+        disposeOwnLut();
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        filter.resize(width, height);
+        copy.resize(width, height);
+    }
+
+    @Override
+    public void rebind() {
+        filter.rebind();
+        copy.rebind();
+    }
+
+    @Override
+    public void render(ScreenQuadMesh mesh, VfxFrameBuffer src, VfxFrameBuffer dst) {
+        if (filter.getLut() == null) {
+            // The manager skips the effect as an identity one, but it could be rendered on its own.
+            copy.setInput(src).setOutput(dst).render(mesh);
+            return;
+        }
+        filter.setInput(src).setOutput(dst).render(mesh);
+    }
+
+    @Override
+    public boolean isIdentity() {
+        return filter.getLut() == null || filter.getIntensity() == 0f;
+    }
+
+    public Texture getLut() {
+        return filter.getLut();
+    }
+
+    /**
+     * @param lut the lookup table strip, its height defines the table size. The effect doesn't own the texture.
+     *            Null disables the grading.
+     */
+    public ColorLutEffect setLut(Texture lut) {
+        markParamsChanged();
+        filter.setLut(lut);
+        disposeOwnLut();
+        return this;
+    }
+
+    /**
+     * Uploads the lookup table strip (e.g. the one from {@link ColorLutBaker#bake(int)}) into a texture owned by the effect.
+     * The texture is managed and gets reloaded from the pixmap on the context loss,
+     * so the pixmap should not be disposed while it's in use.
+     */
+    public ColorLutEffect setLut(Pixmap lut) {
+        Texture texture = new Texture(new PixmapTextureData(lut, null, false, false, true));
+        setLut(texture);
+        ownLut = texture;
+        return this;
+    }
+
+    public int getLutSize() {
+        return filter.getLutSize();
+    }
+
+    public float getIntensity() {
+        return filter.getIntensity();
+    }
+
+    /** @param intensity the share of the graded color in the result, 0 leaves the image unchanged. */
+    public ColorLutEffect setIntensity(float intensity) {
+        markParamsChanged();
+        filter.setIntensity(intensity);
+        return this;
+    }
+
+    private void disposeOwnLut() {
+        if (ownLut != null) {
+            ownLut.dispose();
+            ownLut = null;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx.effects;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.math.MathUtils;
+
+/**
+ * A per-pixel color transform that could be baked into a lookup table for {@link ColorLutEffect}.
+ * <p>
+ * The implementations mirror the math of the matching shaders, so a whole stack of them
+ * costs a single lookup per pixel once baked.
+ * The operations are evaluated from multiple threads by the baker, so {@link #apply(Color)} should not modify any shared state.
+ */
+public interface ColorOperation {
+
+    /** Transforms the color in place. Only the RGB components are meaningful. */
+    void apply(Color color);
+
+    /** Same as the levels shader (see {@link LevelsEffect}). */
+    class Levels implements ColorOperation {
+        private final float brightness;
+        private final float contrast;
+        private final float saturation;
+        private final float hue;
+        private final float gamma;
+
+        public Levels(float brightness, float contrast, float saturation, float hue, float gamma) {
+            this.brightness = brightness;
+            this.contrast = contrast;
+            this.saturation = saturation;
+            this.hue = hue;
+            this.gamma = gamma;
+        }
+
+        @Override
+        public void apply(Color color) {
+            float c = Math.max(contrast, 0f);
+            float r = (color.r - 0.5f) * c + 0.5f;
+            float g = (color.g - 0.5f) * c + 0.5f;
+            float b = (color.b - 0.5f) * c + 0.5f;
+
+            // RGB to HSV.
+            float max = Math.max(r, Math.max(g, b));
+            float min = Math.min(r, Math.min(g, b));
+            float delta = max - min;
+            float h;
+            if (delta == 0f) {
+                h = 0f;
+            } else if (max == r) {
+                h = (g - b) / delta / 6f;
+                if (h < 0f) h += 1f;
+            } else if (max == g) {
+                h = ((b - r) / delta + 2f) / 6f;
+            } else {
+                h = ((r - g) / delta + 4f) / 6f;
+            }
+            float s = max == 0f ? 0f : delta / max;
+            float v = max;
+
+            s *= saturation;
+            h *= hue;
+
+            // HSV to RGB.
+            h -= MathUtils.floor(h);
+            color.r = v * MathUtils.lerp(1f, MathUtils.clamp(Math.abs(h * 6f - 3f) - 1f, 0f, 1f), s);
+            color.g = v * MathUtils.lerp(1f, MathUtils.clamp(2f - Math.abs(h * 6f - 2f), 0f, 1f), s);
+            color.b = v * MathUtils.lerp(1f, MathUtils.clamp(2f - Math.abs(h * 6f - 4f), 0f, 1f), s);
+
+            float invGamma = 1f / gamma;
+            color.r = (float) Math.pow(Math.max(color.r + brightness, 0f), invGamma);
+            color.g = (float) Math.pow(Math.max(color.g + brightness, 0f), invGamma);
+            color.b = (float) Math.pow(Math.max(color.b + brightness, 0f), invGamma);
+        }
+    }
+
+    /** Same as the exposure tone mapping and gamma correction of the HDR shader (see {@link HdrEffect}). */
+    class ToneMapping implements ColorOperation {
+        private final float exposure;
+        private final float gamma;
+
+        public ToneMapping(float exposure, float gamma) {
+            this.exposure = exposure;
+            this.gamma = gamma;
+        }
+
+        @Override
+        public void apply(Color color) {
+            float invGamma = 1f / gamma;
+            color.r = (float) Math.pow(1f - Math.exp(-color.r * exposure), invGamma);
+            color.g = (float) Math.pow(1f - Math.exp(-color.g * exposure), invGamma);
+            color.b = (float) Math.pow(1f - Math.exp(-color.b * exposure), invGamma);
+        }
+    }
+
+    /** Same as the saturation and intensity adjustment of the combine shader (see {@link BloomEffect}). */
+    class Saturation implements ColorOperation {
+        private final float saturation;
+        private final float intensity;
+
+        public Saturation(float saturation, float intensity) {
+            this.saturation = saturation;
+            this.intensity = intensity;
+        }
+
+        @Override
+        public void apply(Color color) {
+            float grey = (color.r * 0.3f + color.g * 0.59f + color.b * 0.11f) * intensity;
+            color.r = MathUtils.lerp(grey, color.r * intensity, saturation);
+            color.g = MathUtils.lerp(grey, color.g * intensity, saturation);
+            color.b = MathUtils.lerp(grey, color.b * intensity, saturation);
+        }
+    }
+
+    /**
+     * Per channel curves from a gradient row, same as the gradient mapping of the vignette shader (see {@link VignetteEffect}).
+     * The gradient pixels are copied on construction, so the pixmap could be disposed right after.
+     */
+    class GradientMap implements ColorOperation {
+        private final float[] curveR;
+        private final float[] curveG;
+        private final float[] curveB;
+        private final float intensity;
+
+        /**
+         * @param gradient the pixmap to read the curves from, its width is the curve resolution.
+         * @param row the pixmap row of the curves.
+         * @param intensity the share of the mapped color in the result.
+         */
+        public GradientMap(Pixmap gradient, int row, float intensity) {
+            int width = gradient.getWidth();
+            this.curveR = new float[width];
+            this.curveG = new float[width];
+            this.curveB = new float[width];
+            this.intensity = intensity;
+
+            Color tmp = new Color();
+            for (int i = 0; i < width; i++) {
+                Color.rgba8888ToColor(tmp, gradient.getPixel(i, row));
+                curveR[i] = tmp.r;
+                curveG[i] = tmp.g;
+                curveB[i] = tmp.b;
+            }
+        }
+
+        @Override
+        public void apply(Color color) {
+            color.r = MathUtils.lerp(color.r, sample(curveR, color.r), intensity);
+            color.g = MathUtils.lerp(color.g, sample(curveG, color.g), intensity);
+            color.b = MathUtils.lerp(color.b, sample(curveB, color.b), intensity);
+        }
+
+        /** Linearly interpolated lookup, just like a filtered texture fetch. */
+        private static float sample(float[] curve, float value) {
+            float position = MathUtils.clamp(value, 0f, 1f) * (curve.length - 1);
+            int index = (int) position;
+            if (index >= curve.length - 1) return curve[curve.length - 1];
+            return MathUtils.lerp(curve[index], curve[index + 1], position - index);
+        }
+    }
+}
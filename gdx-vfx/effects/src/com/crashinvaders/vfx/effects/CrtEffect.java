@@ -20,8 +20,10 @@ import com.crashinvaders.vfx.utils.ScreenQuadMesh;
 import com.crashinvaders.vfx.framebuffer.VfxFrameBuffer;
 import com.crashinvaders.vfx.VfxEffect;
 import com.crashinvaders.vfx.filters.CrtFilter;
+import com.crashinvaders.vfx.fusion.FusableVfxEffect;
+import com.crashinvaders.vfx.fusion.FusedVfxProgram;
 
-public class CrtEffect extends VfxEffect {
+public class CrtEffect extends VfxEffect implements FusableVfxEffect {
 
     private final CrtFilter crtFilter;
 
@@ -58,7 +60,82 @@ public class CrtEffect extends VfxEffect {
     }
 
     public CrtEffect setSizeSource(CrtFilter.SizeSource sizeSource) {
+        markParamsChanged();
         crtFilter.setSizeSource(sizeSource);
         return this;
     }
+
+    //region FusableVfxEffect implementation
+    private static final String FUSION_DECLARATIONS =
+            "uniform vec2 $resolution;\n" +
+            "uniform float $brightnessMin;\n" +
+            "uniform float $brightnessMax;";
+
+    private String fusionKey;
+    private String fusionBody;
+
+    @Override
+    public boolean isFusable() {
+        return true;
+    }
+
+    @Override
+    public boolean isSamplingInput() {
+        return false;
+    }
+
+    @Override
+    public String getFusionKey() {
+        if (fusionKey == null) {
+            fusionKey = "crt_" + crtFilter.getLineStyle().name().toLowerCase();
+        }
+        return fusionKey;
+    }
+
+    @Override
+    public String getFusionDeclarations() {
+        return FUSION_DECLARATIONS;
+    }
+
+    @Override
+    public String getFusionBody() {
+        if (fusionBody == null) {
+            fusionBody = createFusionBody(crtFilter.getLineStyle());
+        }
+        return fusionBody;
+    }
+
+    @Override
+    public void applyFusionUniforms(FusedVfxProgram.Uniforms uniforms) {
+        uniforms.set("resolution", crtFilter.getResolution());
+        uniforms.set("brightnessMin", crtFilter.getBrightnessMin());
+        uniforms.set("brightnessMax", crtFilter.getBrightnessMax());
+    }
+
+    /** Mirrors the line patterns from "crt.frag". */
+    private static String createFusionBody(CrtFilter.LineStyle lineStyle) {
+        switch (lineStyle) {
+            case CROSSLINE_HARD:
+                return  "vec2 pos = $resolution * uv;\n" +
+                        "float componentX = $brightnessMin + ($brightnessMax - $brightnessMin) * step(1.0, mod(pos.x, 2.0));\n" +
+                        "float componentY = $brightnessMin + ($brightnessMax - $brightnessMin) * step(1.0, mod(pos.y, 2.0));\n" +
+                        "float component = (componentX + componentY) * (componentX * componentY) * 1.2;\n" +
+                        "color = color * vec4(component, component, component, 1.0);";
+            case VERTICAL_HARD:
+                return  "float component = $brightnessMin + ($brightnessMax - $brightnessMin) * step(1.0, mod($resolution.x * uv.x, 2.0));\n" +
+                        "color = color * vec4(component, component, component, 1.0);";
+            case HORIZONTAL_HARD:
+                return  "float component = $brightnessMin + ($brightnessMax - $brightnessMin) * step(1.0, mod($resolution.y * uv.y, 2.0));\n" +
+                        "color = color * vec4(component, component, component, 1.0);";
+            case VERTICAL_SMOOTH:
+                return  "float component = mix($brightnessMax, $brightnessMin, abs(mod($resolution.x * uv.x, 2.0) - 1.0));\n" +
+                        "color = color * vec4(component, component, component, 1.0);";
+            case HORIZONTAL_SMOOTH:
+                return  "float component = mix($brightnessMax, $brightnessMin, abs(mod($resolution.y * uv.y, 2.0) - 1.0));\n" +
+                        "color = color * vec4(component, component, component, 1.0);";
+            default:
+                throw new IllegalArgumentException("Unexpected line style: " + lineStyle);
+        }
+    }
+    //endregion
 }
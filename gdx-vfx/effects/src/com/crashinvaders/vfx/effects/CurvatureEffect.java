@@ -55,6 +55,7 @@ public final class CurvatureEffect extends VfxEffect {
     }
 
     public void setDistortion(float distortion) {
+        markParamsChanged();
         distort.setDistortion(distortion);
     }
 
@@ -63,6 +64,7 @@ public final class CurvatureEffect extends VfxEffect {
     }
 
     public void setZoom(float zoom) {
+        markParamsChanged();
         distort.setZoom(zoom);
     }
 }
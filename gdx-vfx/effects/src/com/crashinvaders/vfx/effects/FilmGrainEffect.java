@@ -22,8 +22,10 @@ import com.crashinvaders.vfx.utils.ScreenQuadMesh;
 import com.crashinvaders.vfx.framebuffer.VfxFrameBuffer;
 import com.crashinvaders.vfx.VfxEffect;
 import com.crashinvaders.vfx.filters.FilmGrainFilter;
+import com.crashinvaders.vfx.fusion.FusableVfxEffect;
+import com.crashinvaders.vfx.fusion.FusedVfxProgram;
 
-public class FilmGrainEffect extends VfxEffect implements UpdateableEffect {
+public class FilmGrainEffect extends VfxEffect implements UpdateableEffect, FusableVfxEffect {
 
     private final FilmGrainFilter filmGrainFilter;
 
@@ -53,9 +55,54 @@ public class FilmGrainEffect extends VfxEffect implements UpdateableEffect {
         filmGrainFilter.dispose();
     }
 
+    @Override
+    public boolean isTimeDependent() {
+        return true;
+    }
+
     @Override
     public void update(float delta) {
         this.time = (this.time + delta) % 1f;
         filmGrainFilter.setSeed(this.time);
     }
+
+    //region FusableVfxEffect implementation
+    private static final String FUSION_KEY = "film_grain";
+    private static final String FUSION_DECLARATIONS =
+            "const float $NOISE_AMOUNT = 0.18;\n" +
+            "uniform float $seed;";
+    private static final String FUSION_BODY =
+            "float n = fract(sin(dot(uv, vec2($seed + 12.9898, 78.233))) * 43758.5453);\n" +
+            "color *= (1.0 - $NOISE_AMOUNT + n * $NOISE_AMOUNT) * 1.1;";
+
+    @Override
+    public boolean isFusable() {
+        return true;
+    }
+
+    @Override
+    public boolean isSamplingInput() {
+        return false;
+    }
+
+    @Override
+    public String getFusionKey() {
+        return FUSION_KEY;
+    }
+
+    @Override
+    public String getFusionDeclarations() {
+        return FUSION_DECLARATIONS;
+    }
+
+    @Override
+    public String getFusionBody() {
+        return FUSION_BODY;
+    }
+
+    @Override
+    public void applyFusionUniforms(FusedVfxProgram.Uniforms uniforms) {
+        uniforms.set("seed", filmGrainFilter.getSeed());
+    }
+    //endregion
 }
@@ -58,14 +58,17 @@ public final class FxaaEffect extends VfxEffect {
     /** Sets the span max parameter. The default value is 8.
      * @param value */
     public void setSpanMax(float value) {
+        markParamsChanged();
         fxaaFilter.setSpanMax(value);
     }
 
     public void setReduceMin(float value) {
+        markParamsChanged();
         fxaaFilter.setReduceMin(value);
     }
 
     public void setReduceMul(float value) {
+        markParamsChanged();
         fxaaFilter.setReduceMul(value);
     }
 }
@@ -23,28 +23,35 @@ import com.crashinvaders.vfx.VfxEffect;
 import com.crashinvaders.vfx.utils.ScreenQuadMesh;
 import com.crashinvaders.vfx.framebuffer.VfxFrameBuffer;
 import com.crashinvaders.vfx.framebuffer.PingPongBuffer;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBufferPool;
 import com.crashinvaders.vfx.gl.VfxGLUtils;
 import com.crashinvaders.vfx.filters.CopyFilter;
 import com.crashinvaders.vfx.filters.GaussianBlurFilter;
 
 public class GaussianBlurEffect extends VfxEffect {
 
-    private final PingPongBuffer pingPongBuffer;
+    /**
+     * Lazily created, only used when the effect is rendered on its own.
+     * Otherwise the buffers are borrowed from the manager's pool.
+     */
+    private PingPongBuffer pingPongBuffer;
+    /** Wraps the buffers borrowed from {@link VfxFrameBufferPool}. */
+    private PingPongBuffer pooledPingPongBuffer;
     private final CopyFilter copy;
     private final GaussianBlurFilter blur;
 
     private boolean blending = false;
     private int sfactor, dfactor;
 
-    // To keep track of the first render call.
-    private boolean firstRender = true;
+    private int width, height;
 
     public GaussianBlurEffect() {
         this(8, GaussianBlurFilter.BlurType.Gaussian5x5);
     }
 
     public GaussianBlurEffect(int blurPasses, GaussianBlurFilter.BlurType blurType) {
-        pingPongBuffer = new PingPongBuffer(Pixmap.Format.RGBA8888);
+        width = Gdx.graphics.getBackBufferWidth();
+        height = Gdx.graphics.getBackBufferHeight();
 
         copy = new CopyFilter();
 
@@ -55,21 +62,29 @@ public class GaussianBlurEffect extends VfxEffect {
 
     @Override
     public void dispose() {
-        pingPongBuffer.dispose();
+        if (pingPongBuffer != null) {
+            pingPongBuffer.dispose();
+        }
         blur.dispose();
         copy.dispose();
     }
 
     @Override
     public void resize(int width, int height) {
-        pingPongBuffer.resize(width, height);
+        this.width = width;
+        this.height = height;
+        if (pingPongBuffer != null) {
+            pingPongBuffer.resize(width, height);
+        }
         blur.resize(width, height);
         copy.resize(width, height);
     }
 
     @Override
     public void rebind() {
-        pingPongBuffer.rebind();
+        if (pingPongBuffer != null) {
+            pingPongBuffer.rebind();
+        }
         blur.rebind();
         copy.rebind();
     }
@@ -82,21 +97,37 @@ public class GaussianBlurEffect extends VfxEffect {
             return;
         }
 
+        VfxFrameBufferPool pool = getBufferPool();
+        PingPongBuffer buffer;
+        VfxFrameBuffer pooled1 = null, pooled2 = null;
+        if (pool != null) {
+            pooled1 = pool.obtain(Pixmap.Format.RGBA8888, width, height);
+            pooled2 = pool.obtain(Pixmap.Format.RGBA8888, width, height);
+            if (pooledPingPongBuffer == null) {
+                pooledPingPongBuffer = new PingPongBuffer(pooled1, pooled2);
+            } else {
+                pooledPingPongBuffer.setBuffers(pooled1, pooled2);
+            }
+            buffer = pooledPingPongBuffer;
+        } else {
+            if (pingPongBuffer == null) {
+                pingPongBuffer = new PingPongBuffer(Pixmap.Format.RGBA8888, width, height);
+            }
+            buffer = pingPongBuffer;
+        }
+
         boolean blendingWasEnabled = VfxGLUtils.isGLEnabled(GL20.GL_BLEND);
         Gdx.gl.glDisable(GL20.GL_BLEND);
 
-        pingPongBuffer.begin();
-        copy.setInput(src).setOutput(pingPongBuffer.getDstBuffer()).render(mesh);
-        pingPongBuffer.swap();
-        // Blur filter performs multiple passes of mixing ping-pong buffers and expects src and dst to have valid data.
-        // So for the first run we just make both src and dst buffers identical.
-        if (firstRender) {
-            firstRender = false;
-            copy.setInput(src).setOutput(pingPongBuffer.getDstBuffer()).render(mesh);
-            pingPongBuffer.swap();
-        }
-        blur.render(mesh, pingPongBuffer);
-        pingPongBuffer.end();
+        // The dual filter blur borrows its intermediate buffers as well.
+        blur.setBufferPool(pool);
+
+        buffer.begin();
+        copy.setInput(src).setOutput(buffer.getDstBuffer()).render(mesh);
+        buffer.swap();
+        // The blur filters fully overwrite the dst buffer, so its content (undefined for the borrowed buffers) doesn't matter.
+        blur.render(mesh, buffer);
+        buffer.end();
 
         if (blending || blendingWasEnabled) {
             Gdx.gl.glEnable(GL20.GL_BLEND);
@@ -107,12 +138,24 @@ public class GaussianBlurEffect extends VfxEffect {
             Gdx.gl.glBlendFunc(sfactor, dfactor);
         }
 
-        copy.setInput(pingPongBuffer.getDstTexture())
+        copy.setInput(buffer.getDstTexture())
                 .setOutput(dst)
                 .render(mesh);
+
+        if (pool != null) {
+            pool.free(pooled1);
+            pool.free(pooled2);
+        }
+    }
+
+    /** With no blur passes the effect is a plain copy, unless it blends the result. */
+    @Override
+    public boolean isIdentity() {
+        return blur.getPasses() < 1 && !blending;
     }
 
     public GaussianBlurEffect enableBlending(int sfactor, int dfactor) {
+        markParamsChanged();
         this.blending = true;
         this.sfactor = sfactor;
         this.dfactor = dfactor;
@@ -120,10 +163,12 @@ public class GaussianBlurEffect extends VfxEffect {
     }
 
     public void disableBlending() {
+        markParamsChanged();
         this.blending = false;
     }
 
     public GaussianBlurEffect setBlurPasses(int blurPasses) {
+        markParamsChanged();
         blur.setPasses(blurPasses);
         return this;
     }
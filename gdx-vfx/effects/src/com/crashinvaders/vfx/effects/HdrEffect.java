@@ -19,15 +19,22 @@ package com.crashinvaders.vfx.effects;
 import com.crashinvaders.vfx.utils.ScreenQuadMesh;
 import com.crashinvaders.vfx.framebuffer.VfxFrameBuffer;
 import com.crashinvaders.vfx.VfxEffect;
+import com.crashinvaders.vfx.filters.AutoExposureFilter;
 import com.crashinvaders.vfx.filters.HdrFilter;
+import com.crashinvaders.vfx.fusion.FusableVfxEffect;
+import com.crashinvaders.vfx.fusion.FusedVfxProgram;
 
 /**
  * Light scattering implementation.
  * @author Toni Sagrista
  */
-public final class HdrEffect extends VfxEffect {
+public final class HdrEffect extends VfxEffect implements UpdateableEffect, FusableVfxEffect {
 
-    private final HdrFilter filter;
+    private HdrFilter filter;
+    /** Only exists in the auto exposure mode. */
+    private AutoExposureFilter autoExposure;
+    /** The time passed since the last adaptation step. */
+    private float adaptationDelta = 0f;
 
     /** Creates the effect */
     public HdrEffect() {
@@ -42,11 +49,17 @@ public final class HdrEffect extends VfxEffect {
     @Override
     public void dispose() {
         filter.dispose();
+        if (autoExposure != null) {
+            autoExposure.dispose();
+        }
     }
 
     @Override
     public void rebind() {
         filter.rebind();
+        if (autoExposure != null) {
+            autoExposure.rebind();
+        }
     }
 
     @Override
@@ -56,14 +69,83 @@ public final class HdrEffect extends VfxEffect {
 
     @Override
     public void render(ScreenQuadMesh mesh, VfxFrameBuffer src, VfxFrameBuffer dst) {
+        if (autoExposure != null) {
+            autoExposure.setBufferPool(getBufferPool());
+            autoExposure.update(mesh, src.getFbo().getColorBufferTexture(), adaptationDelta);
+            adaptationDelta = 0f;
+            filter.setLuminanceTexture(autoExposure.getAdaptedLuminance());
+        }
         filter.setInput(src).setOutput(dst).render(mesh);
     }
 
+    @Override
+    public void update(float delta) {
+        if (autoExposure != null) {
+            adaptationDelta += delta;
+        }
+    }
+
+    @Override
+    public boolean isTimeDependent() {
+        return autoExposure != null;
+    }
+
+    /**
+     * Enables the exposure adaptation to the average scene luminance.
+     * The luminance is measured and adapted entirely on the GPU (see {@link AutoExposureFilter}),
+     * the exposure then works as a compensation multiplier (1 is neutral) and the effect can't be fused anymore.
+     * Requires {@link #update(float)} to be called every frame for the adaptation to progress.
+     */
+    public void setAutoExposureEnabled(boolean enabled) {
+        if (isAutoExposureEnabled() == enabled) return;
+        markParamsChanged();
+
+        HdrFilter prevFilter = filter;
+        filter = new HdrFilter(prevFilter.getExposure(), prevFilter.getGamma(), enabled);
+        filter.setKeyValue(prevFilter.getKeyValue());
+        prevFilter.dispose();
+
+        if (enabled) {
+            autoExposure = new AutoExposureFilter();
+            adaptationDelta = 0f;
+        } else {
+            autoExposure.dispose();
+            autoExposure = null;
+        }
+    }
+
+    public boolean isAutoExposureEnabled() {
+        return autoExposure != null;
+    }
+
+    /** @see AutoExposureFilter#setAdaptationSpeed(float) */
+    public void setAdaptationSpeed(float speed) {
+        if (autoExposure == null) {
+            throw new IllegalStateException("Auto exposure is not enabled.");
+        }
+        markParamsChanged();
+        autoExposure.setAdaptationSpeed(speed);
+    }
+
+    /** @see HdrFilter#setKeyValue(float) */
+    public void setKeyValue(float value) {
+        markParamsChanged();
+        filter.setKeyValue(value);
+    }
+
+    /** Makes the next frame take the measured luminance as is, e.g. after a scene cut. */
+    public void resetAdaptation() {
+        if (autoExposure != null) {
+            autoExposure.resetAdaptation();
+        }
+    }
+
     /**
      * Set the exposure
      * @param value The exposure
      */
     public void setExposure(float value) {
+        markParamsChanged();
         filter.setExposure(value);
     }
 
@@ -72,6 +154,49 @@ public final class HdrEffect extends VfxEffect {
      * @param value The gamma
      */
     public void setGamma(float value) {
+        markParamsChanged();
         filter.setGamma(value);
     }
-}
\ No newline at end of file
+
+    //region FusableVfxEffect implementation
+    private static final String FUSION_KEY = "hdr";
+    private static final String FUSION_DECLARATIONS =
+            "uniform float $exposure;\n" +
+            "uniform float $gamma;";
+    private static final String FUSION_BODY =
+            "vec3 mapped = vec3(1.0) - exp(-color.rgb * $exposure);\n" +
+            "color = vec4(pow(mapped, vec3(1.0 / $gamma)), 1.0);";
+
+    @Override
+    public boolean isFusable() {
+        // The adapted luminance is sampled from a separate texture.
+        return autoExposure == null;
+    }
+
+    @Override
+    public boolean isSamplingInput() {
+        return false;
+    }
+
+    @Override
+    public String getFusionKey() {
+        return FUSION_KEY;
+    }
+
+    @Override
+    public String getFusionDeclarations() {
+        return FUSION_DECLARATIONS;
+    }
+
+    @Override
+    public String getFusionBody() {
+        return FUSION_BODY;
+    }
+
+    @Override
+    public void applyFusionUniforms(FusedVfxProgram.Uniforms uniforms) {
+        uniforms.set("exposure", filter.getExposure());
+        uniforms.set("gamma", filter.getGamma());
+    }
+    //endregion
+}
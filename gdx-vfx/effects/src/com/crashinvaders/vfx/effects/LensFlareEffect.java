@@ -53,11 +53,13 @@ public final class LensFlareEffect extends VfxEffect {
     }
 
     public LensFlareEffect setIntensity(float intensity) {
+        markParamsChanged();
         lensFlare.setIntensity(intensity);
         return this;
     }
 
     public LensFlareEffect setColor(float r, float g, float b) {
+        markParamsChanged();
         lensFlare.setColor(r, g, b);
         return this;
     }
@@ -66,6 +68,7 @@ public final class LensFlareEffect extends VfxEffect {
      * @param x Light position x screen coordinate,
      * @param y Light position y screen coordinate. */
     public LensFlareEffect setLightPosition(float x, float y) {
+        markParamsChanged();
         lensFlare.setLightPosition(x, y);
         return this;
     }
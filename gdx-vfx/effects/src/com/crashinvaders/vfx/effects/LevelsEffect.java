@@ -20,10 +20,12 @@ import com.crashinvaders.vfx.utils.ScreenQuadMesh;
 import com.crashinvaders.vfx.framebuffer.VfxFrameBuffer;
 import com.crashinvaders.vfx.VfxEffect;
 import com.crashinvaders.vfx.filters.LevelsFilter;
+import com.crashinvaders.vfx.fusion.FusableVfxEffect;
+import com.crashinvaders.vfx.fusion.FusedVfxProgram;
 
 /** Implements brightness, contrast, hue and saturation levels
  * @author tsagrista */
-public final class LevelsEffect extends VfxEffect {
+public final class LevelsEffect extends VfxEffect implements FusableVfxEffect {
     private final LevelsFilter filter;
 
     /** Creates the effect */
@@ -51,9 +53,19 @@ public final class LevelsEffect extends VfxEffect {
         filter.setInput(src).setOutput(dst).render(mesh);
     }
 
+    @Override
+    public boolean isIdentity() {
+        return filter.getBrightness() == 0f &&
+                filter.getContrast() == 1f &&
+                filter.getSaturation() == 1f &&
+                filter.getHue() == 1f &&
+                filter.getGamma() == 1f;
+    }
+
     /** Set the brightness
      * @param value The brightness value in [-1..1] */
     public LevelsEffect setBrightness(float value) {
+        markParamsChanged();
         filter.setBrightness(value);
         return this;
     }
@@ -61,6 +73,7 @@ public final class LevelsEffect extends VfxEffect {
     /** Set the saturation
      * @param value The saturation value in [0..2] */
     public LevelsEffect setSaturation(float value) {
+        markParamsChanged();
         filter.setSaturation(value);
         return this;
     }
@@ -68,6 +81,7 @@ public final class LevelsEffect extends VfxEffect {
     /** Set the hue
      * @param value The hue value in [0..2] */
     public LevelsEffect setHue(float value) {
+        markParamsChanged();
         filter.setHue(value);
         return this;
     }
@@ -75,6 +89,7 @@ public final class LevelsEffect extends VfxEffect {
     /** Set the contrast
      * @param value The contrast value in [0..2] */
     public LevelsEffect setContrast(float value) {
+        markParamsChanged();
         filter.setContrast(value);
         return this;
     }
@@ -82,6 +97,7 @@ public final class LevelsEffect extends VfxEffect {
     /** Sets the gamma correction value
      * @param value The gamma value in [0..3] */
     public LevelsEffect setGamma(float value) {
+        markParamsChanged();
         filter.setGamma(value);
         return this;
     }
@@ -105,4 +121,71 @@ public final class LevelsEffect extends VfxEffect {
     public float getGamma() {
         return filter.getGamma();
     }
+
+    //region FusableVfxEffect implementation
+    private static final String FUSION_KEY = "levels";
+    private static final String FUSION_DECLARATIONS =
+            "uniform float $brightness;\n" +
+            "uniform float $contrast;\n" +
+            "uniform float $saturation;\n" +
+            "uniform float $hue;\n" +
+            "uniform float $gamma;\n" +
+            "vec3 $rgb2hsv(vec3 c) {\n" +
+            "    vec4 K = vec4(0.0, -1.0 / 3.0, 2.0 / 3.0, -1.0);\n" +
+            "    vec4 p = mix(vec4(c.bg, K.wz), vec4(c.gb, K.xy), step(c.b, c.g));\n" +
+            "    vec4 q = mix(vec4(p.xyw, c.r), vec4(c.r, p.yzx), step(p.x, c.r));\n" +
+            "    float d = q.x - min(q.w, q.y);\n" +
+            "    float e = 1.0e-10;\n" +
+            "    return vec3(abs(q.z + (q.w - q.y) / (6.0 * d + e)), d / (q.x + e), q.x);\n" +
+            "}\n" +
+            "vec3 $hsv2rgb(vec3 c) {\n" +
+            "    vec4 K = vec4(1.0, 2.0 / 3.0, 1.0 / 3.0, 3.0);\n" +
+            "    vec3 p = abs(fract(c.xxx + K.xyz) * 6.0 - K.www);\n" +
+            "    return c.z * mix(K.xxx, clamp(p - K.xxx, 0.0, 1.0), c.y);\n" +
+            "}";
+    private static final String FUSION_BODY =
+            "color.rgb /= color.a;\n" +
+            "color.rgb = ((color.rgb - 0.5) * max($contrast, 0.0)) + 0.5;\n" +
+            "vec3 hsv = $rgb2hsv(color.rgb);\n" +
+            "hsv.y *= $saturation;\n" +
+            "hsv.x *= $hue;\n" +
+            "color.rgb = $hsv2rgb(hsv);\n" +
+            "color.rgb += $brightness;\n" +
+            "color.rgb *= color.a;\n" +
+            "color.rgb = pow(color.rgb, vec3(1.0 / $gamma));";
+
+    @Override
+    public boolean isFusable() {
+        return true;
+    }
+
+    @Override
+    public boolean isSamplingInput() {
+        return false;
+    }
+
+    @Override
+    public String getFusionKey() {
+        return FUSION_KEY;
+    }
+
+    @Override
+    public String getFusionDeclarations() {
+        return FUSION_DECLARATIONS;
+    }
+
+    @Override
+    public String getFusionBody() {
+        return FUSION_BODY;
+    }
+
+    @Override
+    public void applyFusionUniforms(FusedVfxProgram.Uniforms uniforms) {
+        uniforms.set("brightness", filter.getBrightness());
+        uniforms.set("contrast", filter.getContrast());
+        uniforms.set("saturation", filter.getSaturation());
+        uniforms.set("hue", filter.getHue());
+        uniforms.set("gamma", filter.getGamma());
+    }
+    //endregion
 }
@@ -75,6 +75,17 @@ public class MotionBlurEffect extends VfxEffect {
 		localBuffer.rebind();
 	}
 
+	@Override
+	public boolean isTimeDependent() {
+		return true;
+	}
+
+	/** The previous frame buffer would be reallocated (and the trail lost) on every render scale change. */
+	@Override
+	public boolean isRenderScaleSupported() {
+		return false;
+	}
+
 	@Override
 	public void render(ScreenQuadMesh mesh, VfxFrameBuffer src, VfxFrameBuffer dst) {
 		VfxFrameBuffer prevFrame = this.localBuffer.changeToNext();
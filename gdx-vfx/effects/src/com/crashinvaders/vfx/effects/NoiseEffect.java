@@ -20,8 +20,10 @@ import com.crashinvaders.vfx.VfxEffect;
 import com.crashinvaders.vfx.utils.ScreenQuadMesh;
 import com.crashinvaders.vfx.framebuffer.VfxFrameBuffer;
 import com.crashinvaders.vfx.filters.NoiseFilter;
+import com.crashinvaders.vfx.fusion.FusableVfxEffect;
+import com.crashinvaders.vfx.fusion.FusedVfxProgram;
 
-public class NoiseEffect extends VfxEffect implements UpdateableEffect {
+public class NoiseEffect extends VfxEffect implements UpdateableEffect, FusableVfxEffect {
 
     private final NoiseFilter filter;
 
@@ -40,6 +42,7 @@ public class NoiseEffect extends VfxEffect implements UpdateableEffect {
     }
 
     public void setAmount(float amount) {
+        markParamsChanged();
         filter.setAmount(amount);
     }
 
@@ -48,6 +51,7 @@ public class NoiseEffect extends VfxEffect implements UpdateableEffect {
     }
 
     public void setSpeed(float speed) {
+        markParamsChanged();
         filter.setSpeed(speed);
     }
 
@@ -71,9 +75,59 @@ public class NoiseEffect extends VfxEffect implements UpdateableEffect {
         filter.dispose();
     }
 
+    @Override
+    public boolean isTimeDependent() {
+        return true;
+    }
+
     @Override
     public void update(float delta) {
         this.time += delta;
         filter.setTime(time);
     }
+
+    //region FusableVfxEffect implementation
+    private static final String FUSION_KEY = "noise";
+    private static final String FUSION_DECLARATIONS =
+            "uniform float $amount;\n" +
+            "uniform float $speed;\n" +
+            "uniform float $time;\n" +
+            "float $random(vec2 n, float offset) {\n" +
+            "    return 0.5 - fract(sin(dot(n.xy + vec2(offset, 0.0), vec2(12.9898, 78.233))) * 43758.5453);\n" +
+            "}";
+    private static final String FUSION_BODY =
+            "color += vec4(vec3($amount * $random(uv, 0.00001 * $speed * $time)), 1.0);";
+
+    @Override
+    public boolean isFusable() {
+        return true;
+    }
+
+    @Override
+    public boolean isSamplingInput() {
+        return false;
+    }
+
+    @Override
+    public String getFusionKey() {
+        return FUSION_KEY;
+    }
+
+    @Override
+    public String getFusionDeclarations() {
+        return FUSION_DECLARATIONS;
+    }
+
+    @Override
+    public String getFusionBody() {
+        return FUSION_BODY;
+    }
+
+    @Override
+    public void applyFusionUniforms(FusedVfxProgram.Uniforms uniforms) {
+        uniforms.set("amount", filter.getAmount());
+        uniforms.set("speed", filter.getSpeed());
+        uniforms.set("time", filter.getTime());
+    }
+    //endregion
 }
@@ -51,6 +51,11 @@ public class OldTvEffect extends VfxEffect implements UpdateableEffect {
         oldTvFilter.dispose();
     }
 
+    @Override
+    public boolean isTimeDependent() {
+        return true;
+    }
+
     @Override
     public void update(float delta) {
         this.time += delta;
@@ -55,12 +55,14 @@ public final class RadialBlurEffect extends VfxEffect {
 
     /** @see RadialBlurFilter#setOrigin(int)  */
     public RadialBlurEffect setOrigin(int align) {
+        markParamsChanged();
         radialBlur.setOrigin(align);
         return this;
     }
 
     /** @see RadialBlurFilter#setOrigin(float, float)  */
     public RadialBlurEffect setOrigin(float x, float y) {
+        markParamsChanged();
         radialBlur.setOrigin(x, y);
         return this;
     }
@@ -70,6 +72,7 @@ public final class RadialBlurEffect extends VfxEffect {
     }
 
     public RadialBlurEffect setZoom(float zoom) {
+        markParamsChanged();
         radialBlur.setZoom(1f / zoom);
         return this;
     }
@@ -79,6 +82,7 @@ public final class RadialBlurEffect extends VfxEffect {
     }
 
     public RadialBlurEffect setStrength(float strength) {
+        markParamsChanged();
         radialBlur.setStrength(strength);
         return this;
     }
@@ -22,8 +22,10 @@ import com.crashinvaders.vfx.utils.ScreenQuadMesh;
 import com.crashinvaders.vfx.framebuffer.VfxFrameBuffer;
 import com.crashinvaders.vfx.VfxEffect;
 import com.crashinvaders.vfx.filters.VignettingFilter;
+import com.crashinvaders.vfx.fusion.FusableVfxEffect;
+import com.crashinvaders.vfx.fusion.FusedVfxProgram;
 
-public final class VignetteEffect extends VfxEffect {
+public final class VignetteEffect extends VfxEffect implements FusableVfxEffect {
     private VignettingFilter vignetting;
     private boolean controlSaturation;
 
@@ -52,51 +54,74 @@ public final class VignetteEffect extends VfxEffect {
         vignetting.setInput(src).setOutput(dst).render(mesh);
     }
 
+    /**
+     * The effect is considered an identity with zero intensity and no saturation or gradient mapping changes.
+     * <b>NOTE:</b> The effect outputs an opaque image, so it's not an exact identity for a translucent input.
+     */
+    @Override
+    public boolean isIdentity() {
+        if (vignetting.getIntensity() != 0f) return false;
+        if (controlSaturation && (vignetting.getSaturation() != 1f || vignetting.getSaturationMul() != 1f)) return false;
+        if (vignetting.getLut() != null && vignetting.getLutIndex1() > -1 && vignetting.getLutIntensity() != 0f) return false;
+        return true;
+    }
+
     public boolean doesSaturationControl() {
         return controlSaturation;
     }
 
     public void setIntensity(float intensity) {
+        markParamsChanged();
         vignetting.setIntensity(intensity);
     }
 
     public void setCoords(float x, float y) {
+        markParamsChanged();
         vignetting.setCoords(x, y);
     }
 
     public void setSaturation(float saturation) {
+        markParamsChanged();
         vignetting.setSaturation(saturation);
     }
 
     public void setSaturationMul(float saturationMul) {
+        markParamsChanged();
         vignetting.setSaturationMul(saturationMul);
     }
 
     public void setLutTexture(Texture texture) {
+        markParamsChanged();
         vignetting.setLut(texture);
     }
 
     public void setLutIntensity(float value) {
+        markParamsChanged();
         vignetting.setLutIntensity(value);
     }
 
     public void setVignetteX(float x) {
+        markParamsChanged();
         vignetting.setVignetteX(x);
     }
 
     public void setVignetteY(float vignetteY) {
+        markParamsChanged();
         vignetting.setVignetteY(vignetteY);
     }
 
     public void setLut(Texture texture) {
+        markParamsChanged();
         vignetting.setLut(texture);
     }
 
     public void setLutIndex1(int value) {
+        markParamsChanged();
         vignetting.setLutIndex1(value);
     }
 
     public void setLutIndex2(int value) {
+        markParamsChanged();
         vignetting.setLutIndex2(value);
     }
 
@@ -117,6 +142,7 @@ public final class VignetteEffect extends VfxEffect {
     }
 
     public void setLutIndexOffset(float value) {
+        markParamsChanged();
         vignetting.setLutIndexOffset(value);
     }
 
@@ -124,6 +150,7 @@ public final class VignetteEffect extends VfxEffect {
      * Specify the center, in normalized screen coordinates.
      */
     public void setCenter(float x, float y) {
+        markParamsChanged();
         vignetting.setCenter(x, y);
     }
 
@@ -158,4 +185,61 @@ public final class VignetteEffect extends VfxEffect {
     public boolean isGradientMappingEnabled() {
         return vignetting.isGradientMappingEnabled();
     }
+
+    //region FusableVfxEffect implementation
+    private static final String FUSION_KEY = "vignette";
+    private static final String FUSION_KEY_SATURATION = "vignette-saturation";
+    private static final String FUSION_DECLARATIONS =
+            "uniform float $intensity;\n" +
+            "uniform vec2 $coords;\n" +
+            "uniform vec2 $center;\n" +
+            "uniform float $saturation;\n" +
+            "uniform float $saturationMul;";
+    private static final String FUSION_BODY =
+            "float factor = smoothstep($coords.x, $coords.y, distance(uv, $center));\n" +
+            "vec3 rgb = color.rgb * factor + color.rgb * (1.0 - factor) * (1.0 - $intensity);\n" +
+            "color = vec4(rgb, 1.0);";
+    private static final String FUSION_BODY_SATURATION =
+            "float factor = smoothstep($coords.x, $coords.y, distance(uv, $center));\n" +
+            "vec3 rgb = color.rgb * factor + color.rgb * (1.0 - factor) * (1.0 - $intensity);\n" +
+            "rgb = mix(vec3(dot(rgb, vec3(0.3, 0.59, 0.11))), rgb, $saturation) * $saturationMul;\n" +
+            "color = vec4(rgb, 1.0);";
+
+    /** Gradient mapping requires an extra texture, so only the effect without a LUT could be fused. */
+    @Override
+    public boolean isFusable() {
+        return vignetting.getLut() == null;
+    }
+
+    @Override
+    public boolean isSamplingInput() {
+        return false;
+    }
+
+    @Override
+    public String getFusionKey() {
+        return controlSaturation ? FUSION_KEY_SATURATION : FUSION_KEY;
+    }
+
+    @Override
+    public String getFusionDeclarations() {
+        return FUSION_DECLARATIONS;
+    }
+
+    @Override
+    public String getFusionBody() {
+        return controlSaturation ? FUSION_BODY_SATURATION : FUSION_BODY;
+    }
+
+    @Override
+    public void applyFusionUniforms(FusedVfxProgram.Uniforms uniforms) {
+        uniforms.set("intensity", vignetting.getIntensity());
+        uniforms.set("coords", vignetting.getVignetteX(), vignetting.getVignetteY());
+        uniforms.set("center", vignetting.getCenterX(), vignetting.getCenterY());
+        if (controlSaturation) {
+            uniforms.set("saturation", vignetting.getSaturation());
+            uniforms.set("saturationMul", vignetting.getSaturationMul());
+        }
+    }
+    //endregion
 }
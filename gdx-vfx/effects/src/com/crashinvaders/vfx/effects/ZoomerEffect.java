@@ -64,6 +64,11 @@ public final class ZoomerEffect extends VfxEffect {
         zoom.setInput(src).setOutput(dst).render(mesh);
     }
 
+    @Override
+    public boolean isIdentity() {
+        return zoom.getZoom() == 1f;
+    }
+
     public float getOriginX() {
         return zoom.getOriginX();
     }
@@ -74,11 +79,13 @@ public final class ZoomerEffect extends VfxEffect {
 
     /** @see ZoomFilter#setOrigin(int) */
     public void setOrigin(int align) {
+        markParamsChanged();
         zoom.setOrigin(align);
     }
 
     /** @see ZoomFilter#setOrigin(float, float) */
     public void setOrigin(float x, float y) {
+        markParamsChanged();
         zoom.setOrigin(x, y);
     }
 
@@ -87,6 +94,7 @@ public final class ZoomerEffect extends VfxEffect {
     }
 
     public void setZoom(float zoom) {
+        markParamsChanged();
         this.zoom.setZoom(1f / zoom);
     }
 }
@@ -0,0 +1,326 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx.filters;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.crashinvaders.vfx.VfxFilter;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBuffer;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBufferPool;
+import com.crashinvaders.vfx.gl.VfxGLUtils;
+import com.crashinvaders.vfx.utils.ScreenQuadMesh;
+
+/**
+ * Measures the average scene luminance and adapts it over time, entirely on the GPU.
+ * <p>
+ * The scene's log-luminance is reduced down to a single texel through a chain of 2x2 averaging passes
+ * and then blended with the previously adapted value, kept in a ping-ponged 1x1 buffer.
+ * The result is meant to be sampled by the tone mapping shader (see {@link HdrFilter}),
+ * nothing is ever read back to the CPU.
+ * <p>
+ * The values are stored as the normalized log-luminance, packed into two channels of a {@link Pixmap.Format#RGBA8888} buffer.
+ * The reduction buffers are borrowed from the {@link VfxFrameBufferPool} if one is set,
+ * otherwise the filter allocates its own.
+ */
+public final class AutoExposureFilter implements Disposable {
+
+    private static final Pixmap.Format FORMAT = Pixmap.Format.RGBA8888;
+
+    private final ReduceFilter luminance;
+    private final ReduceFilter reduce;
+    private final AdaptFilter adapt;
+
+    private final VfxFrameBuffer[] history = new VfxFrameBuffer[2];
+    private int historyIndex = 0;
+    private boolean historyValid = false;
+
+    /** The adaptation rate, the adapted value covers ~63% of the difference in 1 / speed seconds. */
+    private float adaptationSpeed = 1.5f;
+
+    private VfxFrameBufferPool bufferPool = null;
+    /** Own reduction buffers, only used when there is no pool. */
+    private final Array<VfxFrameBuffer> ownLevels = new Array<>();
+    private final Array<VfxFrameBuffer> levels = new Array<>();
+
+    public AutoExposureFilter() {
+        luminance = new ReduceFilter(true);
+        reduce = new ReduceFilter(false);
+        adapt = new AdaptFilter();
+        for (int i = 0; i < history.length; i++) {
+            history[i] = new VfxFrameBuffer(FORMAT);
+            history[i].initialize(1, 1);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        luminance.dispose();
+        reduce.dispose();
+        adapt.dispose();
+        for (int i = 0; i < history.length; i++) {
+            history[i].dispose();
+        }
+        disposeOwnLevels();
+    }
+
+    public void rebind() {
+        luminance.rebind();
+        reduce.rebind();
+        adapt.rebind();
+        // The history content doesn't survive the context loss.
+        historyValid = false;
+    }
+
+    /**
+     * Measures the input's luminance and adapts the value by the elapsed time.
+     * The result is available through {@link #getAdaptedLuminance()}.
+     * @param delta the time passed since the previous update, in seconds.
+     */
+    public void update(ScreenQuadMesh mesh, Texture input, float delta) {
+        // Down to a single texel.
+        Texture source = input;
+        int w = input.getWidth();
+        int h = input.getHeight();
+        boolean first = true;
+        int levelIndex = 0;
+        while (first || w > 1 || h > 1) {
+            w = Math.max(1, (w + 1) / 2);
+            h = Math.max(1, (h + 1) / 2);
+            VfxFrameBuffer level = obtainLevel(levelIndex++, w, h);
+            ReduceFilter filter = first ? luminance : reduce;
+            filter.setHalfTexel(source);
+            filter.setInput(source).setOutput(level).render(mesh);
+            source = level.getFbo().getColorBufferTexture();
+            first = false;
+        }
+
+        // Blend with the history.
+        VfxFrameBuffer previous = history[historyIndex];
+        historyIndex = (historyIndex + 1) % history.length;
+        VfxFrameBuffer current = history[historyIndex];
+        float alpha = historyValid ? 1f - (float) Math.exp(-delta * adaptationSpeed) : 1f;
+        adapt.setAlpha(alpha);
+        adapt.setInput(source, previous.getFbo().getColorBufferTexture()).setOutput(current).render(mesh);
+        historyValid = true;
+
+        freeLevels();
+    }
+
+    /** @return the 1x1 texture of the adapted luminance. Valid after the first {@link #update(ScreenQuadMesh, Texture, float)}. */
+    public Texture getAdaptedLuminance() {
+        return history[historyIndex].getFbo().getColorBufferTexture();
+    }
+
+    /** Drops the adaptation history, the next update will take the measured luminance as is. */
+    public void resetAdaptation() {
+        historyValid = false;
+    }
+
+    public float getAdaptationSpeed() {
+        return adaptationSpeed;
+    }
+
+    /**
+     * @param adaptationSpeed the adaptation rate. The adapted luminance covers ~63% of the difference in 1 / speed seconds.
+     *                        Zero freezes the current value.
+     */
+    public void setAdaptationSpeed(float adaptationSpeed) {
+        if (adaptationSpeed < 0f) throw new IllegalArgumentException("Adaptation speed cannot be negative: " + adaptationSpeed);
+        this.adaptationSpeed = adaptationSpeed;
+    }
+
+    public VfxFrameBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /** @param bufferPool the pool to borrow the reduction buffers from, or null to use the own buffers. */
+    public void setBufferPool(VfxFrameBufferPool bufferPool) {
+        if (this.bufferPool == bufferPool) return;
+        this.bufferPool = bufferPool;
+        disposeOwnLevels();
+    }
+
+    private VfxFrameBuffer obtainLevel(int index, int width, int height) {
+        VfxFrameBuffer level;
+        if (bufferPool != null) {
+            level = bufferPool.obtain(FORMAT, width, height);
+        } else {
+            level = index < ownLevels.size ? ownLevels.get(index) : null;
+            if (level != null && (level.getFbo().getWidth() != width || level.getFbo().getHeight() != height)) {
+                level.dispose();
+                level = null;
+            }
+            if (level == null) {
+                level = new VfxFrameBuffer(FORMAT);
+                level.initialize(width, height);
+                if (index < ownLevels.size) {
+                    ownLevels.set(index, level);
+                } else {
+                    ownLevels.add(level);
+                }
+            }
+        }
+        levels.add(level);
+        return level;
+    }
+
+    private void freeLevels() {
+        if (bufferPool != null) {
+            for (int i = 0; i < levels.size; i++) {
+                bufferPool.free(levels.get(i));
+            }
+        }
+        levels.clear();
+    }
+
+    private void disposeOwnLevels() {
+        for (int i = 0; i < ownLevels.size; i++) {
+            ownLevels.get(i).dispose();
+        }
+        ownLevels.clear();
+    }
+
+    /** A single 2x2 reduction step, optionally with the luminance computation. */
+    private static final class ReduceFilter extends VfxFilter<ReduceFilter> {
+
+        public enum Param implements Parameter {
+            // @formatter:off
+            Texture("u_texture0", 0),
+            HalfTexel("u_halfTexel", 2);
+            // @formatter:on
+
+            final String mnemonic;
+            final int elementSize;
+
+            Param(String mnemonic, int elementSize) {
+                this.mnemonic = mnemonic;
+                this.elementSize = elementSize;
+            }
+
+            @Override
+            public String mnemonic() {
+                return this.mnemonic;
+            }
+
+            @Override
+            public int arrayElementSize() {
+                return this.elementSize;
+            }
+        }
+
+        private final float[] halfTexel = new float[2];
+
+        ReduceFilter(boolean luminance) {
+            super(VfxGLUtils.compileShader(
+                    Gdx.files.classpath("shaders/screenspace.vert"),
+                    Gdx.files.classpath("shaders/luminance-reduce.frag"),
+                    luminance ? "#define LUMINANCE" : ""));
+            rebind();
+        }
+
+        void setHalfTexel(Texture source) {
+            halfTexel[0] = 0.5f / source.getWidth();
+            halfTexel[1] = 0.5f / source.getHeight();
+            setParamv(Param.HalfTexel, halfTexel, 0, 2);
+        }
+
+        @Override
+        public void resize(int width, int height) {
+            // Do nothing.
+        }
+
+        @Override
+        public void rebind() {
+            setParam(Param.Texture, u_texture0);
+        }
+
+        @Override
+        protected void onBeforeRender() {
+            inputTexture.bind(u_texture0);
+        }
+    }
+
+    /** Blends the measured luminance with the history. */
+    private static final class AdaptFilter extends VfxFilter<AdaptFilter> {
+
+        public enum Param implements Parameter {
+            // @formatter:off
+            Texture0("u_texture0", 0),
+            Texture1("u_texture1", 0),
+            Alpha("u_alpha", 0);
+            // @formatter:on
+
+            final String mnemonic;
+            final int elementSize;
+
+            Param(String mnemonic, int elementSize) {
+                this.mnemonic = mnemonic;
+                this.elementSize = elementSize;
+            }
+
+            @Override
+            public String mnemonic() {
+                return this.mnemonic;
+            }
+
+            @Override
+            public int arrayElementSize() {
+                return this.elementSize;
+            }
+        }
+
+        private Texture inputTexture2 = null;
+
+        AdaptFilter() {
+            super(VfxGLUtils.compileShader(
+                    Gdx.files.classpath("shaders/screenspace.vert"),
+                    Gdx.files.classpath("shaders/luminance-adapt.frag")));
+            rebind();
+        }
+
+        AdaptFilter setInput(Texture current, Texture previous) {
+            this.inputTexture = current;
+            this.inputTexture2 = previous;
+            return this;
+        }
+
+        void setAlpha(float alpha) {
+            setParam(Param.Alpha, alpha);
+        }
+
+        @Override
+        public void resize(int width, int height) {
+            // Do nothing.
+        }
+
+        @Override
+        public void rebind() {
+            setParams(Param.Texture0, u_texture0);
+            setParams(Param.Texture1, u_texture1);
+            endParams();
+        }
+
+        @Override
+        protected void onBeforeRender() {
+            inputTexture.bind(u_texture0);
+            inputTexture2.bind(u_texture1);
+        }
+    }
+}
@@ -46,6 +46,7 @@ public class ChromaticAberrationFilter extends VfxFilter<ChromaticAberrationFilt
         }
     }
 
+    private final int passes;
     private float maxDistortion = 1.2f;
 
     public ChromaticAberrationFilter(int passes) {
@@ -53,9 +54,14 @@ public class ChromaticAberrationFilter extends VfxFilter<ChromaticAberrationFilt
                 Gdx.files.classpath("shaders/screenspace.vert"),
                 Gdx.files.classpath("shaders/chromatic-aberration.frag"),
                 "#define PASSES " + passes));
+        this.passes = passes;
         rebind();
     }
 
+    public int getPasses() {
+        return passes;
+    }
+
     public float getMaxDistortion() {
         return maxDistortion;
     }
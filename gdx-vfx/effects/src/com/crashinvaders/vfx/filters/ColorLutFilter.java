@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx.filters;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.crashinvaders.vfx.VfxFilter;
+import com.crashinvaders.vfx.gl.VfxGLUtils;
+
+/**
+ * Color grading through a 3D lookup table stored as a 2D strip.
+ * <p>
+ * The strip of size N is N<sup>2</sup> texels wide and N texels high, every N wide square is a single blue slice
+ * with the red channel going along X and the green along Y.
+ */
+public final class ColorLutFilter extends VfxFilter<ColorLutFilter> {
+
+    public enum Param implements Parameter {
+        // @formatter:off
+        Texture0("u_texture0", 0),
+        Texture1("u_texture1", 0),
+        LutSize("u_lutSize", 0),
+        Intensity("u_intensity", 0);
+        // @formatter:on
+
+        private final String mnemonic;
+        private final int elementSize;
+
+        Param(String mnemonic, int arrayElementSize) {
+            this.mnemonic = mnemonic;
+            this.elementSize = arrayElementSize;
+        }
+
+        @Override
+        public String mnemonic() {
+            return this.mnemonic;
+        }
+
+        @Override
+        public int arrayElementSize() {
+            return this.elementSize;
+        }
+    }
+
+    private Texture lut = null;
+    private int lutSize = 0;
+    private float intensity = 1f;
+
+    public ColorLutFilter() {
+        super(VfxGLUtils.compileShader(
+                Gdx.files.classpath("shaders/screenspace.vert"),
+                Gdx.files.classpath("shaders/color-lut.frag")));
+        rebind();
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        // Do nothing.
+    }
+
+    @Override
+    public void rebind() {
+        setParams(Param.Texture0, u_texture0);
+        setParams(Param.Texture1, u_texture1);
+        setParams(Param.LutSize, (float) lutSize);
+        setParams(Param.Intensity, intensity);
+        endParams();
+    }
+
+    @Override
+    protected void onBeforeRender() {
+        if (lut == null) {
+            throw new IllegalStateException("The lookup table texture is not set.");
+        }
+        inputTexture.bind(u_texture0);
+        lut.bind(u_texture1);
+    }
+
+    public Texture getLut() {
+        return lut;
+    }
+
+    public int getLutSize() {
+        return lutSize;
+    }
+
+    /**
+     * @param lut the lookup table strip, its height defines the table size.
+     *            The texture gets the linear filtering, as the shader relies on it.
+     */
+    public ColorLutFilter setLut(Texture lut) {
+        if (lut != null) {
+            int size = lut.getHeight();
+            if (lut.getWidth() != size * size) {
+                throw new IllegalArgumentException("The lookup table strip of size " + size +
+                        " should be " + (size * size) + " texels wide, but it's " + lut.getWidth() + ".");
+            }
+            lut.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+            this.lutSize = size;
+            setParam(Param.LutSize, (float) size);
+        }
+        this.lut = lut;
+        return this;
+    }
+
+    public float getIntensity() {
+        return intensity;
+    }
+
+    /** @param intensity the share of the graded color in the result, 0 leaves the image unchanged. */
+    public ColorLutFilter setIntensity(float intensity) {
+        this.intensity = intensity;
+        setParam(Param.Intensity, intensity);
+        return this;
+    }
+}
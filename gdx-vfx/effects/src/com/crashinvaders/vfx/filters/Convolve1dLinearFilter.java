@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx.filters;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Vector2;
+import com.crashinvaders.vfx.VfxFilter;
+import com.crashinvaders.vfx.gl.VfxGLUtils;
+
+/**
+ * A symmetric 1D convolution pass over the bilinear taps.
+ * The kernel is defined by the center tap and the side taps that are mirrored to both directions.
+ * <p>
+ * The shader is compiled for the {@link #MAX_TAPS} and the actual tap count is a uniform,
+ * so the kernel could be changed at any time without any shader recompilation.
+ * The input texture is expected to have the linear filtering.
+ */
+public final class Convolve1dLinearFilter extends VfxFilter<Convolve1dLinearFilter> {
+
+    /** The max number of taps, including the center one. */
+    public static final int MAX_TAPS = 17;
+
+    public enum Param implements Parameter {
+        Texture("u_texture0", 0),
+        Direction("u_direction", 0),
+        TapCount("u_tapCount", 0),
+        Weights("u_weights", 1),
+        Offsets("u_offsets", 1),
+        ;
+
+        private String mnemonic;
+        final int elementSize;
+
+        Param(String mnemonic, int arrayElementSize) {
+            this.mnemonic = mnemonic;
+            this.elementSize = arrayElementSize;
+        }
+
+        @Override
+        public String mnemonic() {
+            return this.mnemonic;
+        }
+
+        @Override
+        public int arrayElementSize() {
+            return this.elementSize;
+        }
+    }
+
+    private final float[] weights = new float[MAX_TAPS];
+    private final float[] offsets = new float[MAX_TAPS];
+    private final Vector2 direction = new Vector2();
+    private int tapCount = 1;
+
+    public Convolve1dLinearFilter() {
+        super(VfxGLUtils.compileShader(
+                Gdx.files.classpath("shaders/screenspace.vert"),
+                Gdx.files.classpath("shaders/convolve-1d-linear.frag"),
+                "#define MAX_TAPS " + MAX_TAPS));
+        weights[0] = 1f;
+        rebind();
+    }
+
+    /**
+     * @param weights the tap weights, the center one first.
+     * @param offsets the tap offsets in texels, the center one (zero) first.
+     * @param tapCount the number of taps to use, up to {@link #MAX_TAPS}.
+     */
+    public void setKernel(float[] weights, float[] offsets, int tapCount) {
+        if (tapCount < 1 || tapCount > MAX_TAPS) {
+            throw new IllegalArgumentException("Tap count should be in the [1.." + MAX_TAPS + "] range: " + tapCount);
+        }
+        System.arraycopy(weights, 0, this.weights, 0, tapCount);
+        System.arraycopy(offsets, 0, this.offsets, 0, tapCount);
+        this.tapCount = tapCount;
+        setParams(Param.TapCount, tapCount);
+        setParamsv(Param.Weights, this.weights, 0, tapCount);
+        setParamsv(Param.Offsets, this.offsets, 0, tapCount);
+        endParams();
+    }
+
+    /**
+     * @param x the horizontal texel step (e.g. 1/width for the horizontal pass).
+     * @param y the vertical texel step (e.g. 1/height for the vertical pass).
+     */
+    public void setDirection(float x, float y) {
+        direction.set(x, y);
+        setParam(Param.Direction, direction);
+    }
+
+    public int getTapCount() {
+        return tapCount;
+    }
+
+    @Override
+    public void resize(int width, int height) {
+
+    }
+
+    @Override
+    public void rebind() {
+        setParams(Param.Texture, u_texture0);
+        setParams(Param.TapCount, tapCount);
+        setParamsv(Param.Weights, weights, 0, tapCount);
+        setParamsv(Param.Offsets, offsets, 0, tapCount);
+        setParams(Param.Direction, direction);
+        endParams();
+    }
+
+    @Override
+    protected void onBeforeRender() {
+        inputTexture.bind(u_texture0);
+    }
+}
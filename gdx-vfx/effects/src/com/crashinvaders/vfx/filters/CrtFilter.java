@@ -65,6 +65,9 @@ public class CrtFilter extends VfxFilter<CrtFilter> {
     }
 
     private final Vector2 viewportSize = new Vector2();
+    private final LineStyle lineStyle;
+    private final float brightnessMin;
+    private final float brightnessMax;
     private SizeSource sizeSource = SizeSource.VIEWPORT;
 
     public CrtFilter() {
@@ -79,9 +82,35 @@ public class CrtFilter extends VfxFilter<CrtFilter> {
                 "#define SL_BRIGHTNESS_MIN " + brightnessMin + "\n" +
                 "#define SL_BRIGHTNESS_MAX " + brightnessMax + "\n" +
                 "#define LINE_TYPE " + lineStyle.ordinal()));
+        this.lineStyle = lineStyle;
+        this.brightnessMin = brightnessMin;
+        this.brightnessMax = brightnessMax;
         rebind();
     }
 
+    public LineStyle getLineStyle() {
+        return lineStyle;
+    }
+
+    public float getBrightnessMin() {
+        return brightnessMin;
+    }
+
+    public float getBrightnessMax() {
+        return brightnessMax;
+    }
+
+    /** @return the actual shader resolution parameter value (depends on {@link #getSizeSource()}). */
+    public Vector2 getResolution() {
+        switch (sizeSource) {
+            case SCREEN:
+                return tmpVec.set(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+            case VIEWPORT:
+            default:
+                return viewportSize;
+        }
+    }
+
     public SizeSource getSizeSource() {
         return sizeSource;
     }
@@ -108,14 +137,7 @@ public class CrtFilter extends VfxFilter<CrtFilter> {
     @Override
     public void rebind () {
         setParams(Param.Texture0, u_texture0);
-        switch (sizeSource) {
-            case VIEWPORT:
-                setParams(Param.Resolution, viewportSize);
-                break;
-            case SCREEN:
-                setParams(Param.Resolution, tmpVec.set(Gdx.graphics.getWidth(), Gdx.graphics.getHeight()));
-                break;
-        }
+        setParams(Param.Resolution, getResolution());
         endParams();
     }
 
@@ -0,0 +1,291 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx.filters;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.utils.Array;
+import com.crashinvaders.vfx.VfxFilter;
+import com.crashinvaders.vfx.framebuffer.PingPongBuffer;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBuffer;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBufferPool;
+import com.crashinvaders.vfx.gl.VfxGLUtils;
+import com.crashinvaders.vfx.utils.ScreenQuadMesh;
+
+/**
+ * Dual filter (Kawase-style) blur.
+ * <p>
+ * The image is downsampled through a chain of progressively halved buffers and then upsampled back,
+ * each step with a small bilinear tap pattern.
+ * Every extra level doubles the blur radius, while the whole chain costs about 1.3 full resolution passes.
+ * <p>
+ * The intermediate buffers are borrowed from the {@link VfxFrameBufferPool} if one is set,
+ * otherwise the filter allocates its own.
+ */
+public final class DualFilterBlurFilter extends MultipassVfxFilter {
+
+    private final PassFilter downsample;
+    private final PassFilter upsample;
+    /** Passes the image through when there is nothing to blur. */
+    private final CopyFilter copy;
+
+    /** The number of the downsampling steps. */
+    private int iterations = 4;
+    private float offset = 1f;
+
+    private int width, height;
+
+    private VfxFrameBufferPool bufferPool = null;
+    /** Own level buffers, only used when there is no pool. */
+    private final Array<VfxFrameBuffer> ownLevels = new Array<>();
+    private final Array<VfxFrameBuffer> levels = new Array<>();
+
+    public DualFilterBlurFilter() {
+        downsample = new PassFilter("shaders/dual-filter-down.frag");
+        upsample = new PassFilter("shaders/dual-filter-up.frag");
+        copy = new CopyFilter();
+    }
+
+    @Override
+    public void dispose() {
+        downsample.dispose();
+        upsample.dispose();
+        copy.dispose();
+        disposeOwnLevels();
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        // The own buffers will be recreated on demand.
+        disposeOwnLevels();
+    }
+
+    @Override
+    public void rebind() {
+        downsample.rebind();
+        upsample.rebind();
+        copy.rebind();
+        for (int i = 0; i < ownLevels.size; i++) {
+            setLinearFilter(ownLevels.get(i).getFbo().getColorBufferTexture());
+        }
+    }
+
+    /**
+     * Blurs the source buffer's content into the destination buffer. The source buffer's content is left intact.
+     * When there is nothing to blur (zero {@link #getIterations()} or a single pixel image), the content is copied as is.
+     */
+    @Override
+    public void render(ScreenQuadMesh mesh, PingPongBuffer buffer) {
+        int levelCount = getLevelCount();
+        if (levelCount == 0) {
+            copy.setInput(buffer.getSrcTexture()).setOutput(buffer.getDstBuffer()).render(mesh);
+            return;
+        }
+
+        Pixmap.Format format = buffer.getDstBuffer().getPixelFormat();
+        obtainLevels(format, levelCount);
+
+        Texture input = buffer.getSrcTexture();
+        TextureFilter inputMinFilter = input.getMinFilter();
+        TextureFilter inputMagFilter = input.getMagFilter();
+        setLinearFilter(input);
+
+        // Down the chain.
+        Texture source = input;
+        for (int i = 0; i < levelCount; i++) {
+            VfxFrameBuffer level = levels.get(i);
+            downsample.setHalfTexel(source).setOffset(offset);
+            downsample.setInput(source).setOutput(level).render(mesh);
+            source = level.getFbo().getColorBufferTexture();
+        }
+        // And back up.
+        for (int i = levelCount - 2; i >= 0; i--) {
+            VfxFrameBuffer level = levels.get(i);
+            upsample.setHalfTexel(source).setOffset(offset);
+            upsample.setInput(source).setOutput(level).render(mesh);
+            source = level.getFbo().getColorBufferTexture();
+        }
+        upsample.setHalfTexel(source).setOffset(offset);
+        upsample.setInput(source).setOutput(buffer.getDstBuffer()).render(mesh);
+
+        input.setFilter(inputMinFilter, inputMagFilter);
+        freeLevels();
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /** @param iterations the number of the halving steps. Every step doubles the blur radius. */
+    public void setIterations(int iterations) {
+        if (iterations < 0) throw new IllegalArgumentException("Iterations cannot be negative: " + iterations);
+        this.iterations = iterations;
+    }
+
+    public float getOffset() {
+        return offset;
+    }
+
+    /** @param offset the tap distance scale, in half texels of the sampled level. 1 is the reference value. */
+    public void setOffset(float offset) {
+        this.offset = offset;
+    }
+
+    public VfxFrameBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /** @param bufferPool the pool to borrow the intermediate buffers from, or null to use the own buffers. */
+    public void setBufferPool(VfxFrameBufferPool bufferPool) {
+        if (this.bufferPool == bufferPool) return;
+        this.bufferPool = bufferPool;
+        disposeOwnLevels();
+    }
+
+    /** @return the number of levels to process. The chain stops once the levels can't get any smaller. */
+    private int getLevelCount() {
+        int count = 0;
+        int w = width;
+        int h = height;
+        while (count < iterations && (w > 1 || h > 1)) {
+            w = Math.max(1, w / 2);
+            h = Math.max(1, h / 2);
+            count++;
+        }
+        return count;
+    }
+
+    private void obtainLevels(Pixmap.Format format, int levelCount) {
+        levels.clear();
+        if (bufferPool == null && (ownLevels.size != levelCount ||
+                ownLevels.first().getPixelFormat() != format)) {
+            disposeOwnLevels();
+        }
+
+        int w = width;
+        int h = height;
+        for (int i = 0; i < levelCount; i++) {
+            w = Math.max(1, w / 2);
+            h = Math.max(1, h / 2);
+            VfxFrameBuffer level;
+            if (bufferPool != null) {
+                level = bufferPool.obtain(format, w, h);
+            } else if (i < ownLevels.size) {
+                level = ownLevels.get(i);
+            } else {
+                level = new VfxFrameBuffer(format);
+                level.initialize(w, h);
+                ownLevels.add(level);
+            }
+            setLinearFilter(level.getFbo().getColorBufferTexture());
+            levels.add(level);
+        }
+    }
+
+    private void freeLevels() {
+        if (bufferPool != null) {
+            for (int i = 0; i < levels.size; i++) {
+                VfxFrameBuffer level = levels.get(i);
+                // Restore the default filtering for the other pool users.
+                level.getFbo().getColorBufferTexture().setFilter(TextureFilter.Nearest, TextureFilter.Nearest);
+                bufferPool.free(level);
+            }
+        }
+        levels.clear();
+    }
+
+    private void disposeOwnLevels() {
+        for (int i = 0; i < ownLevels.size; i++) {
+            ownLevels.get(i).dispose();
+        }
+        ownLevels.clear();
+    }
+
+    private static void setLinearFilter(Texture texture) {
+        texture.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+    }
+
+    /** A single downsampling or upsampling step. */
+    private static final class PassFilter extends VfxFilter<PassFilter> {
+
+        public enum Param implements Parameter {
+            // @formatter:off
+            Texture("u_texture0", 0),
+            HalfTexel("u_halfTexel", 2),
+            Offset("u_offset", 0);
+            // @formatter:on
+
+            final String mnemonic;
+            final int elementSize;
+
+            Param(String mnemonic, int elementSize) {
+                this.mnemonic = mnemonic;
+                this.elementSize = elementSize;
+            }
+
+            @Override
+            public String mnemonic() {
+                return this.mnemonic;
+            }
+
+            @Override
+            public int arrayElementSize() {
+                return this.elementSize;
+            }
+        }
+
+        private final float[] halfTexel = new float[2];
+
+        PassFilter(String fragmentShader) {
+            super(VfxGLUtils.compileShader(
+                    Gdx.files.classpath("shaders/screenspace.vert"),
+                    Gdx.files.classpath(fragmentShader)));
+            rebind();
+        }
+
+        PassFilter setHalfTexel(Texture source) {
+            halfTexel[0] = 0.5f / source.getWidth();
+            halfTexel[1] = 0.5f / source.getHeight();
+            setParamv(Param.HalfTexel, halfTexel, 0, 2);
+            return this;
+        }
+
+        PassFilter setOffset(float offset) {
+            setParam(Param.Offset, offset);
+            return this;
+        }
+
+        @Override
+        public void resize(int width, int height) {
+            // Do nothing.
+        }
+
+        @Override
+        public void rebind() {
+            setParam(Param.Texture, u_texture0);
+        }
+
+        @Override
+        protected void onBeforeRender() {
+            inputTexture.bind(u_texture0);
+        }
+    }
+}
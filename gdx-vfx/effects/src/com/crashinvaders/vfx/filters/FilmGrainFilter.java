@@ -55,9 +55,13 @@ public class FilmGrainFilter extends VfxFilter<FilmGrainFilter> {
         rebind();
     }
 
+    public float getSeed() {
+        return seed;
+    }
+
     public void setSeed(float seed) {
         this.seed = seed;
-        rebind();
+        setParam(Param.Seed, seed);
     }
 
     @Override
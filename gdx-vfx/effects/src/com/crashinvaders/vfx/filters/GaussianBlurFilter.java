@@ -19,6 +19,7 @@ package com.crashinvaders.vfx.filters;
 
 import com.crashinvaders.vfx.utils.ScreenQuadMesh;
 import com.crashinvaders.vfx.framebuffer.PingPongBuffer;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBufferPool;
 
 public final class GaussianBlurFilter extends MultipassVfxFilter {
 
@@ -38,6 +39,16 @@ public final class GaussianBlurFilter extends MultipassVfxFilter {
     public enum BlurType {
         Gaussian3x3(Tap.Tap3x3), Gaussian3x3b(Tap.Tap3x3), // R=5 (11x11, policy "higher-then-discard")
         Gaussian5x5(Tap.Tap5x5), Gaussian5x5b(Tap.Tap5x5), // R=9 (19x19, policy "higher-then-discard")
+        /**
+         * Dual filter blur ({@link DualFilterBlurFilter}), the passes are the downsampling steps (each doubles the radius)
+         * and the amount is the tap offset scale. Large radii cost about 1.3 full resolution passes in total.
+         */
+        DualFilter(null),
+        /**
+         * Separable gaussian of an arbitrary sigma ({@link LinearGaussianBlurFilter}), the amount is the sigma in texels.
+         * Changing the amount only updates the kernel uniforms, the shader doesn't get recompiled.
+         */
+        GaussianLinear(null),
         ;
 
         public final Tap tap;
@@ -52,7 +63,14 @@ public final class GaussianBlurFilter extends MultipassVfxFilter {
     private int passes = 1;
 
     private float invWidth, invHeight;
+    /** Only exists for the convolution blur types. */
     private Convolve2dFilter convolve;
+    /** Only exists for {@link BlurType#DualFilter}. */
+    private DualFilterBlurFilter dualFilter;
+    /** Only exists for {@link BlurType#GaussianLinear}. */
+    private LinearGaussianBlurFilter linear;
+    private VfxFrameBufferPool bufferPool = null;
+    private int width, height;
 
     public GaussianBlurFilter() {
         this(BlurType.Gaussian5x5);
@@ -64,26 +82,60 @@ public final class GaussianBlurFilter extends MultipassVfxFilter {
 
     @Override
     public void dispose() {
-        convolve.dispose();
+        if (convolve != null) {
+            convolve.dispose();
+        }
+        if (dualFilter != null) {
+            dualFilter.dispose();
+        }
+        if (linear != null) {
+            linear.dispose();
+        }
     }
 
     @Override
     public void resize(int width, int height) {
         this.invWidth = 1f / (float) width;
         this.invHeight = 1f / (float) height;
+        this.width = width;
+        this.height = height;
 
-        convolve.resize(width, height);
+        if (convolve != null) {
+            convolve.resize(width, height);
+        }
+        if (dualFilter != null) {
+            dualFilter.resize(width, height);
+        }
+        if (linear != null) {
+            linear.resize(width, height);
+        }
         computeBlurWeightings();
     }
 
     @Override
     public void rebind() {
-        convolve.rebind();
+        if (convolve != null) {
+            convolve.rebind();
+        }
+        if (dualFilter != null) {
+            dualFilter.rebind();
+        }
+        if (linear != null) {
+            linear.rebind();
+        }
         computeBlurWeightings();
     }
 
     @Override
     public void render(ScreenQuadMesh mesh, PingPongBuffer buffer) {
+        if (dualFilter != null) {
+            dualFilter.render(mesh, buffer);
+            return;
+        }
+        if (linear != null) {
+            linear.render(mesh, buffer);
+            return;
+        }
         for (int i = 0; i < this.passes; i++) {
             convolve.render(mesh, buffer);
 
@@ -104,11 +156,33 @@ public final class GaussianBlurFilter extends MultipassVfxFilter {
         if (this.type != type) {
             this.type = type;
 
-            // Instantiate new matching convolve filter instance.
+            // Instantiate new matching filter instance.
             if (convolve != null) {
                 convolve.dispose();
+                convolve = null;
+            }
+            if (dualFilter != null) {
+                dualFilter.dispose();
+                dualFilter = null;
+            }
+            if (linear != null) {
+                linear.dispose();
+                linear = null;
+            }
+            if (type == BlurType.DualFilter) {
+                dualFilter = new DualFilterBlurFilter();
+                dualFilter.setIterations(Math.max(0, passes));
+                dualFilter.setOffset(amount);
+                dualFilter.setBufferPool(bufferPool);
+                dualFilter.resize(width, height);
+            } else if (type == BlurType.GaussianLinear) {
+                linear = new LinearGaussianBlurFilter();
+                linear.setSigma(Math.max(0f, amount));
+                linear.setPasses(passes);
+                linear.resize(width, height);
+            } else {
+                convolve = new Convolve2dFilter(this.type.tap.radius);
             }
-            convolve = new Convolve2dFilter(this.type.tap.radius);
 
             computeBlurWeightings();
         }
@@ -122,6 +196,12 @@ public final class GaussianBlurFilter extends MultipassVfxFilter {
     /** Warning: Not all blur types support custom amounts at this time */
     public void setAmount(float amount) {
         this.amount = amount;
+        if (dualFilter != null) {
+            dualFilter.setOffset(amount);
+        }
+        if (linear != null) {
+            linear.setSigma(Math.max(0f, amount));
+        }
         computeBlurWeightings();
     }
 
@@ -131,9 +211,28 @@ public final class GaussianBlurFilter extends MultipassVfxFilter {
 
     public void setPasses(int passes) {
         this.passes = passes;
+        if (dualFilter != null) {
+            dualFilter.setIterations(Math.max(0, passes));
+        }
+        if (linear != null) {
+            linear.setPasses(passes);
+        }
+    }
+
+    /**
+     * @param bufferPool the pool to borrow the intermediate buffers from (only used by {@link BlurType#DualFilter}),
+     *                   or null to use the own buffers.
+     */
+    public void setBufferPool(VfxFrameBufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+        if (dualFilter != null) {
+            dualFilter.setBufferPool(bufferPool);
+        }
     }
 
     private void computeBlurWeightings() {
+        if (convolve == null) return;
+
         boolean hasData = true;
 
         float[] outWeights = convolve.getWeights();
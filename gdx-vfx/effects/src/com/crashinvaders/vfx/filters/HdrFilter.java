@@ -32,23 +32,32 @@
 package com.crashinvaders.vfx.filters;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Texture;
 import com.crashinvaders.vfx.VfxFilter;
 import com.crashinvaders.vfx.gl.VfxGLUtils;
 
 /**
  * HDR filter.
+ * <p>
+ * In the auto exposure mode the filter samples the adapted scene luminance texture (see {@link AutoExposureFilter})
+ * and the exposure works as a compensation multiplier on top of the one that maps the average luminance to the key value.
  * @author Toni Sagrista
  */
 public final class HdrFilter extends VfxFilter<HdrFilter> {
 
+    private final boolean autoExposure;
     private float exposure;
     private float gamma;
+    private float keyValue = 0.18f;
+    private Texture luminanceTexture = null;
 
     public enum Param implements VfxFilter.Parameter {
         // @formatter:off
         Texture("u_texture0", 0),
         Exposure("u_exposure", 0),
-        Gamma("u_gamma", 0);
+        Gamma("u_gamma", 0),
+        LuminanceTexture("u_texture1", 0),
+        KeyValue("u_keyValue", 0);
         // @formatter:on
 
         private String mnemonic;
@@ -75,11 +84,19 @@ public final class HdrFilter extends VfxFilter<HdrFilter> {
     }
 
     public HdrFilter(float exposure, float gamma) {
+        this(exposure, gamma, false);
+    }
+
+    /** @param autoExposure whether the filter expects the luminance texture, see {@link #setLuminanceTexture(Texture)}. */
+    public HdrFilter(float exposure, float gamma, boolean autoExposure) {
         super(VfxGLUtils.compileShader(
                 Gdx.files.classpath("shaders/screenspace.vert"),
-                Gdx.files.classpath("shaders/hdr.frag")));
-        setExposure(exposure);
-        setGamma(gamma);
+                Gdx.files.classpath("shaders/hdr.frag"),
+                autoExposure ? "#define AUTO_EXPOSURE" : ""));
+        this.autoExposure = autoExposure;
+        this.exposure = exposure;
+        this.gamma = gamma;
+        rebind();
     }
 
     @Override
@@ -88,6 +105,10 @@ public final class HdrFilter extends VfxFilter<HdrFilter> {
         setParams(Param.Texture, u_texture0);
         setParams(Param.Exposure, exposure);
         setParams(Param.Gamma, gamma);
+        if (autoExposure) {
+            setParams(Param.LuminanceTexture, u_texture1);
+            setParams(Param.KeyValue, keyValue);
+        }
         endParams();
     }
 
@@ -98,16 +119,56 @@ public final class HdrFilter extends VfxFilter<HdrFilter> {
 
     @Override
     protected void onBeforeRender() {
+        if (autoExposure) {
+            if (luminanceTexture == null) {
+                throw new IllegalStateException("The luminance texture should be set for the auto exposure mode.");
+            }
+            luminanceTexture.bind(u_texture1);
+        }
         inputTexture.bind(u_texture0);
     }
 
+    public boolean isAutoExposure() {
+        return autoExposure;
+    }
+
+    public float getExposure() {
+        return exposure;
+    }
+
     public void setExposure(float exposure) {
         this.exposure = exposure;
         setParam(Param.Exposure, this.exposure);
     }
 
+    public float getGamma() {
+        return gamma;
+    }
+
     public void setGamma(float gamma) {
         this.gamma = gamma;
         setParam(Param.Gamma, this.gamma);
     }
-}
\ No newline at end of file
+
+    public float getKeyValue() {
+        return keyValue;
+    }
+
+    /** @param keyValue the middle gray value the average scene luminance gets mapped to. Only used in the auto exposure mode. */
+    public void setKeyValue(float keyValue) {
+        this.keyValue = keyValue;
+        if (autoExposure) {
+            setParam(Param.KeyValue, this.keyValue);
+        }
+    }
+
+    public Texture getLuminanceTexture() {
+        return luminanceTexture;
+    }
+
+    /** @param luminanceTexture the 1x1 adapted luminance texture, see {@link AutoExposureFilter#getAdaptedLuminance()}. */
+    public HdrFilter setLuminanceTexture(Texture luminanceTexture) {
+        this.luminanceTexture = luminanceTexture;
+        return this;
+    }
+}
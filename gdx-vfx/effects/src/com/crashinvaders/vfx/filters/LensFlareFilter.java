@@ -92,7 +92,7 @@ public final class LensFlareFilter extends VfxFilter<LensFlareFilter> {
     /** Sets the light position in screen normalized coordinates [0..1]. */
     public void setLightPosition(float x, float y) {
         lightPosition.set(x, y);
-        rebind();
+        setParam(Param.LightPosition, lightPosition);
     }
 
     public float getIntensity() {
@@ -101,7 +101,7 @@ public final class LensFlareFilter extends VfxFilter<LensFlareFilter> {
 
     public void setIntensity(float intensity) {
         this.intensity = intensity;
-        rebind();
+        setParam(Param.Intensity, intensity);
     }
 
     public Vector3 getColor() {
@@ -110,13 +110,13 @@ public final class LensFlareFilter extends VfxFilter<LensFlareFilter> {
 
     public void setColor(float r, float g, float b) {
         color.set(r, g, b);
-        rebind();
+        setParam(Param.Color, color);
     }
 
     @Override
     public void resize(int width, int height) {
         viewport.set(width, height);
-        rebind();
+        setParam(Param.Viewport, viewport);
     }
 
     @Override
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx.filters;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.crashinvaders.vfx.framebuffer.PingPongBuffer;
+import com.crashinvaders.vfx.utils.ScreenQuadMesh;
+
+/**
+ * Separable gaussian blur of an arbitrary sigma.
+ * <p>
+ * The kernel is generated for the sigma on the CPU and the adjacent texel weights are merged into the bilinear taps,
+ * so a kernel of radius R takes about R + 1 texture fetches per pass instead of 2R + 1.
+ * Changing the sigma only updates the uniforms, the shader is never recompiled.
+ * <p>
+ * A single pass supports the kernel radius of up to {@link #MAX_RADIUS} texels (about a sigma of {@code MAX_RADIUS / 3}),
+ * the kernel is truncated for the larger sigma values. Use multiple passes for the wider blurs,
+ * N passes of sigma S are equal to a single pass of sigma {@code S * sqrt(N)}.
+ */
+public final class LinearGaussianBlurFilter extends MultipassVfxFilter {
+
+    /** The max kernel radius in texels a single pass supports. */
+    public static final int MAX_RADIUS = (Convolve1dLinearFilter.MAX_TAPS - 1) * 2;
+
+    private final Convolve1dLinearFilter hor;
+    private final Convolve1dLinearFilter vert;
+
+    private final float[] texelWeights = new float[MAX_RADIUS + 1];
+    private final float[] tapWeights = new float[Convolve1dLinearFilter.MAX_TAPS];
+    private final float[] tapOffsets = new float[Convolve1dLinearFilter.MAX_TAPS];
+
+    private float sigma = 1f;
+    private int passes = 1;
+
+    public LinearGaussianBlurFilter() {
+        hor = new Convolve1dLinearFilter();
+        vert = new Convolve1dLinearFilter();
+        updateKernel();
+    }
+
+    @Override
+    public void dispose() {
+        hor.dispose();
+        vert.dispose();
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        hor.setDirection(1f / width, 0f);
+        vert.setDirection(0f, 1f / height);
+    }
+
+    @Override
+    public void rebind() {
+        hor.rebind();
+        vert.rebind();
+    }
+
+    @Override
+    public void render(ScreenQuadMesh mesh, PingPongBuffer buffer) {
+        // The bilinear taps require the linear filtering.
+        Texture texture1 = buffer.getSrcTexture();
+        Texture texture2 = buffer.getDstTexture();
+        TextureFilter minFilter1 = texture1.getMinFilter(), magFilter1 = texture1.getMagFilter();
+        TextureFilter minFilter2 = texture2.getMinFilter(), magFilter2 = texture2.getMagFilter();
+        texture1.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+        texture2.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+
+        for (int i = 0; i < passes; i++) {
+            hor.setInput(buffer.getSrcTexture())
+                    .setOutput(buffer.getDstBuffer())
+                    .render(mesh);
+            buffer.swap();
+            vert.setInput(buffer.getSrcTexture())
+                    .setOutput(buffer.getDstBuffer())
+                    .render(mesh);
+
+            if (i < passes - 1) {
+                buffer.swap();
+            }
+        }
+
+        texture1.setFilter(minFilter1, magFilter1);
+        texture2.setFilter(minFilter2, magFilter2);
+    }
+
+    public float getSigma() {
+        return sigma;
+    }
+
+    /** @param sigma the gaussian standard deviation in texels. */
+    public void setSigma(float sigma) {
+        if (sigma < 0f) throw new IllegalArgumentException("Sigma cannot be negative: " + sigma);
+        if (this.sigma == sigma) return;
+        this.sigma = sigma;
+        updateKernel();
+    }
+
+    public int getPasses() {
+        return passes;
+    }
+
+    public void setPasses(int passes) {
+        this.passes = passes;
+    }
+
+    /** @return the number of the bilinear taps (including the center one) per pass. */
+    public int getTapCount() {
+        return hor.getTapCount();
+    }
+
+    private void updateKernel() {
+        int radius = Math.min(MAX_RADIUS, (int) Math.ceil(sigma * 3f));
+
+        // Discrete kernel half, normalized over the full width.
+        float total = 0f;
+        if (radius == 0) {
+            texelWeights[0] = 1f;
+            total = 1f;
+        } else {
+            float twoSigmaSquare = 2f * sigma * sigma;
+            for (int i = 0; i <= radius; i++) {
+                texelWeights[i] = (float) Math.exp(-(i * i) / twoSigmaSquare);
+                total += i == 0 ? texelWeights[i] : texelWeights[i] * 2f;
+            }
+            // The outer weights underflow to zero for the tiny sigmas, such texels would make a tap with no weight.
+            while (radius > 0 && texelWeights[radius] == 0f) {
+                radius--;
+            }
+        }
+
+        // Merge every two adjacent texels into a single tap in between them, weighted by their share.
+        tapWeights[0] = texelWeights[0] / total;
+        tapOffsets[0] = 0f;
+        int tapCount = 1;
+        for (int i = 1; i <= radius; i += 2) {
+            float weight1 = texelWeights[i];
+            float weight2 = i + 1 <= radius ? texelWeights[i + 1] : 0f;
+            float weight = weight1 + weight2;
+            tapWeights[tapCount] = weight / total;
+            tapOffsets[tapCount] = (i * weight1 + (i + 1) * weight2) / weight;
+            tapCount++;
+        }
+
+        hor.setKernel(tapWeights, tapOffsets, tapCount);
+        vert.setKernel(tapWeights, tapOffsets, tapCount);
+    }
+}
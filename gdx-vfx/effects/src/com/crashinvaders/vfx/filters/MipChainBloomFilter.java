@@ -0,0 +1,403 @@
+/*******************************************************************************
+ * Copyright 2019 metaphore
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.crashinvaders.vfx.filters;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.crashinvaders.vfx.VfxFilter;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBuffer;
+import com.crashinvaders.vfx.framebuffer.VfxFrameBufferPool;
+import com.crashinvaders.vfx.gl.VfxGLUtils;
+import com.crashinvaders.vfx.utils.ScreenQuadMesh;
+
+/**
+ * Bloom blur over a pyramid of progressively halved levels.
+ * <p>
+ * The bright-pass is fused into the first downsampling step, every downsampling step uses a 13-tap filter
+ * and the chain then goes back up, each level being a tent-filtered upsample of the lower one mixed with its own
+ * downsampled content. The whole pyramid is weighted equally, so the result is stable regardless of the level count,
+ * while the cost stays a small constant multiple of a single full resolution pass.
+ * <p>
+ * The result is written into the output buffer, that is meant to be the top of the pyramid
+ * (usually a half of the input resolution) and should be sampled with the linear filtering.
+ * The intermediate buffers are borrowed from the {@link VfxFrameBufferPool} if one is set,
+ * otherwise the filter allocates its own.
+ */
+public final class MipChainBloomFilter implements Disposable {
+
+    private final DownsampleFilter thresholdDownsample;
+    private final DownsampleFilter downsample;
+    private final UpsampleFilter upsample;
+
+    /** The number of the pyramid levels, including the top one. */
+    private int levels = 6;
+    private float radius = 1f;
+
+    private VfxFrameBufferPool bufferPool = null;
+    /** Own intermediate buffers, only used when there is no pool. */
+    private final Array<VfxFrameBuffer> ownBuffers = new Array<>();
+    private int ownBufferCursor;
+    private final Array<VfxFrameBuffer> downLevels = new Array<>();
+    private final Array<VfxFrameBuffer> upLevels = new Array<>();
+
+    public MipChainBloomFilter() {
+        thresholdDownsample = new DownsampleFilter(true);
+        downsample = new DownsampleFilter(false);
+        upsample = new UpsampleFilter();
+    }
+
+    @Override
+    public void dispose() {
+        thresholdDownsample.dispose();
+        downsample.dispose();
+        upsample.dispose();
+        disposeOwnBuffers();
+    }
+
+    public void rebind() {
+        thresholdDownsample.rebind();
+        downsample.rebind();
+        upsample.rebind();
+    }
+
+    /**
+     * Thresholds and blurs the input texture into the output buffer.
+     * The output buffer may be smaller than the input, it sets the size of the pyramid's top level.
+     */
+    public void render(ScreenQuadMesh mesh, Texture input, VfxFrameBuffer output) {
+        Pixmap.Format format = output.getPixelFormat();
+        Texture outputTexture = output.getFbo().getColorBufferTexture();
+        int width = outputTexture.getWidth();
+        int height = outputTexture.getHeight();
+        int levelCount = getLevelCount(width, height);
+
+        TextureFilter inputMinFilter = input.getMinFilter();
+        TextureFilter inputMagFilter = input.getMagFilter();
+        TextureFilter outputMinFilter = outputTexture.getMinFilter();
+        TextureFilter outputMagFilter = outputTexture.getMagFilter();
+        setLinearFilter(input);
+        setLinearFilter(outputTexture);
+
+        // Single level, the bright-pass alone.
+        if (levelCount == 1) {
+            thresholdDownsample.setTexel(input);
+            thresholdDownsample.setInput(input).setOutput(output).render(mesh);
+            input.setFilter(inputMinFilter, inputMagFilter);
+            outputTexture.setFilter(outputMinFilter, outputMagFilter);
+            return;
+        }
+
+        // Down the chain.
+        ownBufferCursor = 0;
+        int w = width;
+        int h = height;
+        Texture source = input;
+        for (int i = 0; i < levelCount; i++) {
+            VfxFrameBuffer level = obtainBuffer(format, w, h);
+            downLevels.add(level);
+            DownsampleFilter filter = i == 0 ? thresholdDownsample : downsample;
+            filter.setTexel(source);
+            filter.setInput(source).setOutput(level).render(mesh);
+            source = level.getFbo().getColorBufferTexture();
+            w = Math.max(1, w / 2);
+            h = Math.max(1, h / 2);
+        }
+
+        // And back up, every level gets an equal share of the result.
+        for (int i = levelCount - 2; i >= 0; i--) {
+            VfxFrameBuffer target;
+            if (i == 0) {
+                target = output;
+            } else {
+                Texture sameLevel = downLevels.get(i).getFbo().getColorBufferTexture();
+                target = obtainBuffer(format, sameLevel.getWidth(), sameLevel.getHeight());
+                upLevels.add(target);
+            }
+            int lowerLevelCount = levelCount - 1 - i;
+            upsample.setTexel(source, radius).setMix(lowerLevelCount / (lowerLevelCount + 1f));
+            upsample.setInput(source, downLevels.get(i).getFbo().getColorBufferTexture()).setOutput(target).render(mesh);
+            source = target.getFbo().getColorBufferTexture();
+        }
+
+        input.setFilter(inputMinFilter, inputMagFilter);
+        outputTexture.setFilter(outputMinFilter, outputMagFilter);
+        freeBuffers(downLevels);
+        freeBuffers(upLevels);
+    }
+
+    public int getLevels() {
+        return levels;
+    }
+
+    /**
+     * @param levels the number of the pyramid levels, including the top one.
+     *               Every extra level doubles the bloom radius. The chain stops once the levels can't get any smaller.
+     */
+    public void setLevels(int levels) {
+        if (levels < 1) throw new IllegalArgumentException("There should be at least one level: " + levels);
+        this.levels = levels;
+    }
+
+    public float getRadius() {
+        return radius;
+    }
+
+    /** @param radius the upsampling tent filter radius, in texels of the lower level. 1 is the reference value. */
+    public void setRadius(float radius) {
+        this.radius = radius;
+    }
+
+    public float getThreshold() {
+        return thresholdDownsample.threshold;
+    }
+
+    /** @see ThresholdFilter#setTreshold(float) */
+    public void setThreshold(float threshold) {
+        thresholdDownsample.setThreshold(threshold);
+    }
+
+    public VfxFrameBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /** @param bufferPool the pool to borrow the intermediate buffers from, or null to use the own buffers. */
+    public void setBufferPool(VfxFrameBufferPool bufferPool) {
+        if (this.bufferPool == bufferPool) return;
+        this.bufferPool = bufferPool;
+        disposeOwnBuffers();
+    }
+
+    private int getLevelCount(int width, int height) {
+        int count = 1;
+        int w = width;
+        int h = height;
+        while (count < levels && (w > 1 || h > 1)) {
+            w = Math.max(1, w / 2);
+            h = Math.max(1, h / 2);
+            count++;
+        }
+        return count;
+    }
+
+    private VfxFrameBuffer obtainBuffer(Pixmap.Format format, int width, int height) {
+        VfxFrameBuffer buffer;
+        if (bufferPool != null) {
+            buffer = bufferPool.obtain(format, width, height);
+        } else {
+            // The own buffers are requested in the same order every frame, so they are reused as long as the sizes match.
+            int index = ownBufferCursor++;
+            buffer = index < ownBuffers.size ? ownBuffers.get(index) : null;
+            if (buffer != null && (buffer.getPixelFormat() != format ||
+                    buffer.getFbo().getWidth() != width || buffer.getFbo().getHeight() != height)) {
+                buffer.dispose();
+                buffer = null;
+            }
+            if (buffer == null) {
+                buffer = new VfxFrameBuffer(format);
+                buffer.initialize(width, height);
+                if (index < ownBuffers.size) {
+                    ownBuffers.set(index, buffer);
+                } else {
+                    ownBuffers.add(buffer);
+                }
+            }
+        }
+        setLinearFilter(buffer.getFbo().getColorBufferTexture());
+        return buffer;
+    }
+
+    private void freeBuffers(Array<VfxFrameBuffer> buffers) {
+        if (bufferPool != null) {
+            for (int i = 0; i < buffers.size; i++) {
+                VfxFrameBuffer buffer = buffers.get(i);
+                // Restore the default filtering for the other pool users.
+                buffer.getFbo().getColorBufferTexture().setFilter(TextureFilter.Nearest, TextureFilter.Nearest);
+                bufferPool.free(buffer);
+            }
+        }
+        buffers.clear();
+    }
+
+    private void disposeOwnBuffers() {
+        for (int i = 0; i < ownBuffers.size; i++) {
+            ownBuffers.get(i).dispose();
+        }
+        ownBuffers.clear();
+    }
+
+    private static void setLinearFilter(Texture texture) {
+        texture.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+    }
+
+    /** A single 13-tap downsampling step, optionally with the bright-pass. */
+    private static final class DownsampleFilter extends VfxFilter<DownsampleFilter> {
+
+        public enum Param implements Parameter {
+            // @formatter:off
+            Texture("u_texture0", 0),
+            Texel("u_texel", 2),
+            Threshold("u_threshold", 0),
+            ThresholdInv("u_thresholdInv", 0);
+            // @formatter:on
+
+            final String mnemonic;
+            final int elementSize;
+
+            Param(String mnemonic, int elementSize) {
+                this.mnemonic = mnemonic;
+                this.elementSize = elementSize;
+            }
+
+            @Override
+            public String mnemonic() {
+                return this.mnemonic;
+            }
+
+            @Override
+            public int arrayElementSize() {
+                return this.elementSize;
+            }
+        }
+
+        private final boolean thresholded;
+        private final float[] texel = new float[2];
+        private float threshold = 0.5f;
+
+        DownsampleFilter(boolean thresholded) {
+            super(VfxGLUtils.compileShader(
+                    Gdx.files.classpath("shaders/screenspace.vert"),
+                    Gdx.files.classpath("shaders/mip-bloom-down.frag"),
+                    thresholded ? "#define THRESHOLD" : ""));
+            this.thresholded = thresholded;
+            rebind();
+        }
+
+        void setTexel(Texture source) {
+            texel[0] = 1f / source.getWidth();
+            texel[1] = 1f / source.getHeight();
+            setParamv(Param.Texel, texel, 0, 2);
+        }
+
+        void setThreshold(float threshold) {
+            this.threshold = threshold;
+            setParams(Param.Threshold, threshold);
+            setParams(Param.ThresholdInv, 1f / (1f - threshold));
+            endParams();
+        }
+
+        @Override
+        public void resize(int width, int height) {
+            // Do nothing.
+        }
+
+        @Override
+        public void rebind() {
+            setParams(Param.Texture, u_texture0);
+            if (thresholded) {
+                setParams(Param.Threshold, threshold);
+                setParams(Param.ThresholdInv, 1f / (1f - threshold));
+            }
+            endParams();
+        }
+
+        @Override
+        protected void onBeforeRender() {
+            inputTexture.bind(u_texture0);
+        }
+    }
+
+    /** A single tent-filtered upsampling step. */
+    private static final class UpsampleFilter extends VfxFilter<UpsampleFilter> {
+
+        public enum Param implements Parameter {
+            // @formatter:off
+            Texture0("u_texture0", 0),
+            Texture1("u_texture1", 0),
+            Texel("u_texel", 2),
+            Mix("u_mix", 0);
+            // @formatter:on
+
+            final String mnemonic;
+            final int elementSize;
+
+            Param(String mnemonic, int elementSize) {
+                this.mnemonic = mnemonic;
+                this.elementSize = elementSize;
+            }
+
+            @Override
+            public String mnemonic() {
+                return this.mnemonic;
+            }
+
+            @Override
+            public int arrayElementSize() {
+                return this.elementSize;
+            }
+        }
+
+        private final float[] texel = new float[2];
+        private Texture inputTexture2 = null;
+
+        UpsampleFilter() {
+            super(VfxGLUtils.compileShader(
+                    Gdx.files.classpath("shaders/screenspace.vert"),
+                    Gdx.files.classpath("shaders/mip-bloom-up.frag")));
+            rebind();
+        }
+
+        UpsampleFilter setInput(Texture lowerLevel, Texture sameLevel) {
+            this.inputTexture = lowerLevel;
+            this.inputTexture2 = sameLevel;
+            return this;
+        }
+
+        UpsampleFilter setTexel(Texture source, float radius) {
+            texel[0] = radius / source.getWidth();
+            texel[1] = radius / source.getHeight();
+            setParamv(Param.Texel, texel, 0, 2);
+            return this;
+        }
+
+        UpsampleFilter setMix(float mix) {
+            setParam(Param.Mix, mix);
+            return this;
+        }
+
+        @Override
+        public void resize(int width, int height) {
+            // Do nothing.
+        }
+
+        @Override
+        public void rebind() {
+            setParams(Param.Texture0, u_texture0);
+            setParams(Param.Texture1, u_texture1);
+            endParams();
+        }
+
+        @Override
+        protected void onBeforeRender() {
+            inputTexture.bind(u_texture0);
+            inputTexture2.bind(u_texture1);
+        }
+    }
+}
@@ -76,6 +76,7 @@ public class NoiseFilter extends VfxFilter<NoiseFilter> {
 
     public void setAmount(float amount) {
         this.amount = amount;
+        setParam(Param.Amount, amount);
     }
 
     public float getSpeed() {
@@ -84,6 +85,7 @@ public class NoiseFilter extends VfxFilter<NoiseFilter> {
 
     public void setSpeed(float speed) {
         this.speed = speed;
+        setParam(Param.Speed, speed);
     }
 
     @Override